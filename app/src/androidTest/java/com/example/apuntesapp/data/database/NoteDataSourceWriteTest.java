@@ -0,0 +1,233 @@
+package com.example.apuntesapp.data.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.apuntesapp.model.Note;
+import com.example.apuntesapp.model.NoteEdit;
+import com.example.apuntesapp.model.NoteSummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pruebas de las escrituras de NoteDataSource sobre una base de datos separada de la de las notas.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NoteDataSourceWriteTest {
+
+    private static final String TEST_DB = "write-test.db";
+    private static final int CHUNK_SIZE = NoteChunkStore.CHUNK_SIZE;
+
+    private Context context;
+    private NoteDatabaseHelper helper;
+    private NoteDataSource dataSource;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        helper = new NoteDatabaseHelper(context, TEST_DB);
+        dataSource = new NoteDataSource(helper);
+        dataSource.open();
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.close();
+        helper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void batchInsertSkipsDuplicates() {
+        String longText = longContent();
+        dataSource.insertNotes(Arrays.asList(new Note("Compras", "leche"), new Note("Receta", longText)));
+
+        Note storedDuplicate = new Note("Compras", "leche");
+        Note longDuplicate = new Note("Receta", longText);
+        Note otherTitle = new Note("Compras de la semana", "leche");
+        Note fresh = new Note("Ideas", "un libro");
+        Note batchDuplicate = new Note("Ideas", "un libro");
+        BatchResult result = dataSource.insertNotes(
+                Arrays.asList(storedDuplicate, longDuplicate, otherTitle, fresh, batchDuplicate), true);
+
+        assertEquals(5, result.getRequestedRows());
+        // Solo cuentan las notas con otro título o contenido, y la primera copia dentro del lote
+        assertEquals(2, result.getAffectedRows());
+        assertEquals(0, storedDuplicate.getId());
+        assertEquals(0, longDuplicate.getId());
+        assertTrue(otherTitle.getId() > 0);
+        assertTrue(fresh.getId() > 0);
+        assertEquals(0, batchDuplicate.getId());
+        assertEquals(4, dataSource.getNoteCount());
+        assertEquals(1, queryLong("SELECT COUNT(DISTINCT note_id) FROM note_chunks"));
+    }
+
+    @Test
+    public void batchInsertWithoutSkippingKeepsDuplicates() {
+        Note first = new Note("Compras", "leche");
+        Note second = new Note("Compras", "leche");
+
+        BatchResult result = dataSource.insertNotes(Arrays.asList(first, second), false);
+
+        assertEquals(2, result.getAffectedRows());
+        assertTrue(second.getId() > first.getId());
+        assertEquals(Arrays.asList(second.getId(), first.getId()), searchIds("leche"));
+    }
+
+    @Test
+    public void editedShortNoteIsSavedWhole() {
+        Note shortNote = new Note("Compras", "leche, pan y café");
+        Note atLimit = new Note("Límite", longContent().substring(0, CHUNK_SIZE));
+        Note overLimit = new Note("Límite", longContent().substring(0, CHUNK_SIZE + 1));
+        dataSource.insertNotes(Arrays.asList(shortNote, atLimit, overLimit));
+
+        // El editor envía rangos solo a las notas que la base de datos guarda divididas
+        for (Note note : Arrays.asList(shortNote, atLimit, overLimit)) {
+            boolean chunked = queryLong("SELECT content_format FROM notes WHERE _id = " + note.getId())
+                    == ContentCodec.FORMAT_CHUNKED;
+            assertEquals(chunked, NoteDataSource.acceptsNoteEdits(note.getContent().length()));
+        }
+        assertEquals(0, dataSource.applyNoteEdit(
+                new NoteEdit(shortNote.getId(), shortNote.getUpdatedAt(), "Compras", 0, 5, "Leche")));
+
+        shortNote.setContent("Leche, pan y café");
+        assertTrue(dataSource.updateNote(shortNote));
+
+        assertEquals("Leche, pan y café", dataSource.getNoteById(shortNote.getId()).getContent());
+        assertEquals(Arrays.asList(shortNote.getId()), searchIds("leche"));
+    }
+
+    @Test
+    public void compactedEditsMatchAFullUpdate() {
+        String original = longContent() + "\nfinal berenjena";
+        Note edited = new Note("Receta", original);
+        Note updated = new Note("Receta", original);
+        dataSource.insertNotes(Arrays.asList(edited, updated));
+        assertEquals(ContentCodec.FORMAT_CHUNKED, queryLong(
+                "SELECT content_format FROM notes WHERE _id = " + edited.getId()));
+
+        StringBuilder expected = new StringBuilder(original);
+        long updatedAt = dataSource.getNoteById(edited.getId()).getUpdatedAt();
+        // Inserción que cruza el límite del primer bloque
+        updatedAt = applyEdit(edited.getId(), updatedAt, "Receta", expected, CHUNK_SIZE - 3, CHUNK_SIZE - 3,
+                " zanahoria ");
+        // Reemplazo que abarca el final de un bloque y el inicio del siguiente
+        updatedAt = applyEdit(edited.getId(), updatedAt, "Receta", expected, 2 * CHUNK_SIZE - 10,
+                2 * CHUNK_SIZE + 10, "X");
+        // Reemplazo que se superpone con el texto insertado en el primer cambio
+        int inserted = expected.indexOf(" zanahoria ");
+        updatedAt = applyEdit(edited.getId(), updatedAt, "Receta", expected, inserted - 5, inserted + 1, "ABC ");
+        // Borrado al final, con un cambio de título
+        applyEdit(edited.getId(), updatedAt, "Receta editada", expected,
+                expected.length() - "\nfinal berenjena".length(), expected.length(), "");
+
+        // Antes de compactar, la lectura aplica el registro de cambios sobre los bloques
+        assertEquals(expected.toString(), dataSource.getNoteById(edited.getId()).getContent());
+        assertEquals(1, dataSource.compactNoteEdits(10));
+        assertEquals(0, dataSource.compactNoteEdits(10));
+
+        updated.setTitle("Receta editada");
+        updated.setContent(expected.toString());
+        assertTrue(dataSource.updateNote(updated));
+
+        Note compacted = dataSource.getNoteById(edited.getId());
+        assertEquals("Receta editada", compacted.getTitle());
+        assertEquals(expected.toString(), compacted.getContent());
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM note_edits WHERE note_id = " + edited.getId()));
+        // Mismo formato, huella y bloques que la nota guardada completa
+        String row = "SELECT content_format || ':' || content_hash FROM notes WHERE _id = ";
+        assertEquals(queryStrings(row + updated.getId()), queryStrings(row + edited.getId()));
+        String chunks = "SELECT seq || ':' || content_format || ':' || hex(content) FROM note_chunks"
+                + " WHERE note_id = ? ORDER BY seq";
+        assertEquals(queryStrings(chunks.replace("?", String.valueOf(updated.getId()))),
+                queryStrings(chunks.replace("?", String.valueOf(edited.getId()))));
+        // El índice de búsqueda refleja el texto nuevo en ambas notas
+        assertEquals(Arrays.asList(updated.getId(), edited.getId()), searchIds("zanahoria"));
+        assertEquals(Arrays.asList(updated.getId(), edited.getId()), searchIds("editada"));
+        assertEquals(new ArrayList<Long>(), searchIds("berenjena"));
+    }
+
+    @Test
+    public void chunksOfAnEditedNoteFollowEachEdit() {
+        Note note = new Note("Receta", longContent());
+        dataSource.insertNote(note);
+        StringBuilder expected = new StringBuilder(note.getContent());
+
+        long updatedAt = applyEdit(note.getId(), note.getUpdatedAt(), "Receta", expected, 0, 0, "Inicio\n");
+        assertEquals(expected.toString(), readByChunks(note.getId()));
+
+        // Un cambio después de leer los bloques no debe devolver los bloques anteriores
+        applyEdit(note.getId(), updatedAt, "Receta", expected, CHUNK_SIZE, CHUNK_SIZE + 100, "");
+        assertEquals(expected.toString(), readByChunks(note.getId()));
+
+        assertEquals(1, dataSource.compactNoteEdits(10));
+        assertEquals(expected.toString(), readByChunks(note.getId()));
+    }
+
+    private String readByChunks(long id) {
+        StringBuilder content = new StringBuilder();
+        int chunkCount = dataSource.getNoteOutline(id).getChunkCount();
+        for (int i = 0; i < chunkCount; i++) {
+            content.append(dataSource.getNoteChunk(id, i));
+        }
+        return content.toString();
+    }
+
+    private long applyEdit(long id, long baseUpdatedAt, String title, StringBuilder expected, int start, int end,
+                           String replacement) {
+        long updatedAt = dataSource.applyNoteEdit(new NoteEdit(id, baseUpdatedAt, title, start, end, replacement));
+        assertTrue(updatedAt > baseUpdatedAt);
+        expected.replace(start, end, replacement);
+        return updatedAt;
+    }
+
+    private List<Long> searchIds(String query) {
+        List<Long> ids = new ArrayList<>();
+        for (NoteSummary summary : dataSource.searchNotes(query, NoteDataSource.FIRST_PAGE_CURSOR, 10).getItems()) {
+            ids.add(summary.getId());
+        }
+        return ids;
+    }
+
+    private long queryLong(String sql) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+        try (Cursor c = db.rawQuery(sql, null)) {
+            assertTrue(c.moveToFirst());
+            return c.getLong(0);
+        }
+    }
+
+    private List<String> queryStrings(String sql) {
+        SQLiteDatabase db = helper.getReadableDatabase();
+        List<String> rows = new ArrayList<>();
+        try (Cursor c = db.rawQuery(sql, null)) {
+            while (c.moveToNext()) {
+                rows.add(c.getString(0));
+            }
+        }
+        return rows;
+    }
+
+    private static String longContent() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() <= 3 * CHUNK_SIZE; i++) {
+            text.append("Paso ").append(i).append(": mezclar la harina con el agua y dejar reposar\n");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.apuntesapp.data.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Pruebas que actualizan una base de datos de la versión 1, con notas, hasta la versión actual.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NoteDatabaseMigrationTest {
+
+    private static final String UPGRADED_DB = "migration-test.db";
+    private static final String FRESH_DB = "migration-fresh.db";
+    private static final int NOTE_COUNT = 1200;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private Context context;
+    private NoteDatabaseHelper upgradedHelper;
+    private NoteDatabaseHelper freshHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(UPGRADED_DB);
+        context.deleteDatabase(FRESH_DB);
+        createVersion1Database();
+    }
+
+    @After
+    public void tearDown() {
+        if (upgradedHelper != null) {
+            upgradedHelper.close();
+        }
+        if (freshHelper != null) {
+            freshHelper.close();
+        }
+        context.deleteDatabase(UPGRADED_DB);
+        context.deleteDatabase(FRESH_DB);
+    }
+
+    @Test
+    public void upgradeFromVersion1KeepsNotes() {
+        SQLiteDatabase db = openUpgraded();
+
+        assertEquals(NoteDatabaseHelper.DATABASE_VERSION, db.getVersion());
+        assertEquals(NOTE_COUNT, queryLong(db, "SELECT COUNT(*) FROM notes"));
+        try (Cursor c = db.rawQuery(
+                "SELECT title, content, updated_at, content_format FROM notes WHERE _id = 1", null)) {
+            assertTrue(c.moveToFirst());
+            assertEquals("Lista de compras", c.getString(0));
+            assertEquals("leche, pan y café", c.getString(1));
+            // La fecha real de las notas anteriores a la versión 4 no se conoce
+            assertEquals(0, c.getLong(2));
+            // Las notas existentes no se reescriben: siguen en texto plano
+            assertEquals(ContentCodec.FORMAT_PLAIN, c.getInt(3));
+        }
+    }
+
+    @Test
+    public void upgradeFromVersion1IndexesExistingNotes() {
+        SQLiteDatabase db = openUpgraded();
+        // La apertura no lee el texto de las notas
+        assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM notes_fts WHERE notes_fts MATCH 'compras'"));
+
+        // Los triggers creados por la migración indexan las notas editadas antes del trabajo diferido
+        db.execSQL("UPDATE notes SET content = 'huevos' WHERE _id = 1");
+        assertEquals(1, queryLong(db, "SELECT docid FROM notes_fts WHERE notes_fts MATCH 'huevos'"));
+
+        runBackfills(db);
+
+        assertEquals(1, queryLong(db, "SELECT COUNT(*) FROM notes_fts WHERE notes_fts MATCH 'compras'"));
+        assertEquals(1, queryLong(db, "SELECT COUNT(*) FROM notes_fts WHERE notes_fts MATCH 'huevos'"));
+        assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM notes_fts WHERE notes_fts MATCH 'leche'"));
+        assertEquals(NOTE_COUNT - 1, queryLong(db, "SELECT COUNT(*) FROM notes_fts WHERE notes_fts MATCH 'nota'"));
+
+        // Y lo mantienen al editar después
+        db.execSQL("UPDATE notes SET content = 'té' WHERE _id = 1");
+        assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM notes_fts WHERE notes_fts MATCH 'huevos'"));
+        assertEquals(1, queryLong(db, "SELECT docid FROM notes_fts WHERE notes_fts MATCH 'té'"));
+    }
+
+    @Test
+    public void backfillCompletesContentHashesInBatches() {
+        SQLiteDatabase db = openUpgraded();
+        assertEquals(NOTE_COUNT, queryLong(db, "SELECT COUNT(*) FROM notes WHERE content_hash IS NULL"));
+
+        int batches = runBackfills(db);
+
+        assertTrue(batches >= (NOTE_COUNT + BACKFILL_BATCH_SIZE - 1) / BACKFILL_BATCH_SIZE);
+        assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM notes WHERE content_hash IS NULL"));
+        try (Cursor c = db.rawQuery("SELECT content_hash FROM notes WHERE _id = 1", null)) {
+            assertTrue(c.moveToFirst());
+            assertEquals(NoteDataSource.contentHash("Lista de compras", "leche, pan y café"), c.getString(0));
+        }
+    }
+
+    @Test
+    public void backfillSplitsLongNotesIntoChunks() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() <= 3 * NoteChunkStore.CHUNK_SIZE; i++) {
+            text.append("Párrafo ").append(i).append(" de una nota muy larga\n");
+        }
+        String longContent = text.toString();
+        try (SQLiteDatabase v1 = SQLiteDatabase.openDatabase(
+                context.getDatabasePath(UPGRADED_DB).getPath(), null, SQLiteDatabase.OPEN_READWRITE)) {
+            v1.execSQL("UPDATE notes SET content = ? WHERE _id = 2", new Object[]{longContent});
+        }
+        SQLiteDatabase db = openUpgraded();
+
+        runBackfills(db);
+
+        assertTrue(NoteChunkStore.countChunks(db, 2) > 3);
+        assertEquals(0, NoteChunkStore.countChunks(db, 1));
+        try (Cursor c = db.rawQuery("SELECT content_format, content FROM notes WHERE _id = 2", null)) {
+            assertTrue(c.moveToFirst());
+            assertEquals(ContentCodec.FORMAT_CHUNKED, c.getInt(0));
+            assertTrue(c.isNull(1));
+            assertEquals(longContent, NoteChunkStore.readContent(db, 2, c.getInt(0), c, 1));
+        }
+        // La nota dividida pasa del índice de contenido externo al índice propio
+        assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM notes_fts WHERE notes_fts MATCH 'larga'"));
+        assertEquals(2, queryLong(db, "SELECT docid FROM notes_fts_stored WHERE notes_fts_stored MATCH 'larga'"));
+    }
+
+    @Test
+    public void upgradedSchemaMatchesFreshSchema() {
+        SQLiteDatabase upgraded = openUpgraded();
+        freshHelper = new NoteDatabaseHelper(context, FRESH_DB);
+        SQLiteDatabase fresh = freshHelper.getWritableDatabase();
+        // Algunos índices se crean con el trabajo diferido, no durante la actualización
+        runBackfills(upgraded);
+
+        assertEquals(schemaObjects(fresh), schemaObjects(upgraded));
+        assertEquals(columns(fresh), columns(upgraded));
+    }
+
+    @Test
+    public void migrationPathCoversEveryVersion() {
+        List<Migration> path = NoteDatabaseHelper.migrationPath(1, NoteDatabaseHelper.DATABASE_VERSION);
+
+        assertEquals(NoteDatabaseHelper.DATABASE_VERSION - 1, path.size());
+        for (int i = 0; i < path.size(); i++) {
+            assertEquals(i + 1, path.get(i).startVersion);
+            assertEquals(i + 2, path.get(i).endVersion);
+        }
+        try {
+            NoteDatabaseHelper.migrationPath(1, NoteDatabaseHelper.DATABASE_VERSION + 1);
+            fail("Se esperaba IllegalStateException por falta de migración");
+        } catch (IllegalStateException expected) {
+            // Correcto: nunca se debe abrir una versión para la que no existe migración
+        }
+    }
+
+    /**
+     * Crea el esquema original de la aplicación y lo llena con notas.
+     */
+    private void createVersion1Database() {
+        File file = context.getDatabasePath(UPGRADED_DB);
+        file.getParentFile().mkdirs();
+        try (SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null)) {
+            db.execSQL("CREATE TABLE notes (_id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT, content TEXT)");
+            db.beginTransaction();
+            try {
+                db.execSQL("INSERT INTO notes (title, content) VALUES ('Lista de compras', 'leche, pan y café')");
+                for (int i = 2; i <= NOTE_COUNT; i++) {
+                    db.execSQL("INSERT INTO notes (title, content) VALUES (?, ?)",
+                            new Object[]{"Nota " + i, "Contenido de la nota " + i});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            db.setVersion(1);
+        }
+    }
+
+    private SQLiteDatabase openUpgraded() {
+        upgradedHelper = new NoteDatabaseHelper(context, UPGRADED_DB);
+        return upgradedHelper.getWritableDatabase();
+    }
+
+    /**
+     * Ejecuta el trabajo diferido de las migraciones hasta terminarlo.
+     *
+     * @return Cantidad de lotes ejecutados.
+     */
+    private static int runBackfills(SQLiteDatabase db) {
+        int batches = 0;
+        int processed;
+        while ((processed = NoteDatabaseHelper.runBackfillBatch(db, BACKFILL_BATCH_SIZE)) > 0) {
+            assertTrue(processed <= BACKFILL_BATCH_SIZE);
+            batches++;
+        }
+        return batches;
+    }
+
+    private static long queryLong(SQLiteDatabase db, String sql) {
+        try (Cursor c = db.rawQuery(sql, null)) {
+            assertTrue(c.moveToFirst());
+            return c.getLong(0);
+        }
+    }
+
+    /**
+     * Tipos y nombres de tablas, índices y triggers, sin las tablas internas de SQLite.
+     */
+    private static List<String> schemaObjects(SQLiteDatabase db) {
+        List<String> objects = new ArrayList<>();
+        try (Cursor c = db.rawQuery(
+                "SELECT type, name FROM sqlite_master WHERE name NOT LIKE 'sqlite_%'", null)) {
+            while (c.moveToNext()) {
+                objects.add(c.getString(0) + " " + c.getString(1));
+            }
+        }
+        Collections.sort(objects);
+        return objects;
+    }
+
+    private static List<String> columns(SQLiteDatabase db) {
+        List<String> columns = new ArrayList<>();
+        try (Cursor c = db.rawQuery("PRAGMA table_info(notes)", null)) {
+            while (c.moveToNext()) {
+                columns.add(c.getString(c.getColumnIndexOrThrow("name")) + " "
+                        + c.getString(c.getColumnIndexOrThrow("type")));
+            }
+        }
+        return columns;
+    }
+}
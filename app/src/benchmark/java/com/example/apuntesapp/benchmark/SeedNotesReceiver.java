@@ -0,0 +1,101 @@
+package com.example.apuntesapp.benchmark;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.example.apuntesapp.data.database.NoteDataSource;
+import com.example.apuntesapp.model.Note;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Receptor que llena la base de datos con notas generadas antes de una medición. Solo existe en la
+ * compilación benchmark.
+ *
+ * Conceptos:
+ * - Uso desde el shell: El módulo :macrobenchmark borra los datos de la aplicación y envía
+ *   "am broadcast -n com.example.apuntesapp/.benchmark.SeedNotesReceiver --ei count N". El comando
+ *   espera a que termine la inserción y muestra como resultado la cantidad de notas insertadas.
+ *
+ * - Misma ruta de escritura: Las notas se insertan por lotes con NoteDataSource.insertNotes, por lo
+ *   que el índice de búsqueda y las huellas quedan igual que con notas escritas por el usuario.
+ *
+ * - Datos deterministas: Se usa una semilla fija para que todas las mediciones vean las mismas notas.
+ */
+public class SeedNotesReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "SeedNotesReceiver";
+
+    // Cantidad de notas a insertar
+    public static final String EXTRA_COUNT = "count";
+
+    // Notas insertadas por transacción
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String[] WORDS = {
+            "nota", "reunion", "proyecto", "tarea", "lista", "compras", "idea", "pendiente", "revisar",
+            "llamar", "enviar", "correo", "informe", "semana", "lunes", "viernes", "cliente", "equipo",
+            "avance", "entrega", "fecha", "plan", "resumen", "documento", "presupuesto", "viaje", "libro",
+            "curso", "examen", "receta", "casa", "oficina"
+    };
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        int count = intent.getIntExtra(EXTRA_COUNT, 0);
+        Context appContext = context.getApplicationContext();
+        PendingResult result = goAsync();
+        new Thread(() -> {
+            int inserted = 0;
+            try {
+                inserted = seed(appContext, count);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error al generar las notas", e);
+            } finally {
+                result.setResultCode(inserted);
+                result.finish();
+            }
+        }, "notes-seed").start();
+    }
+
+    private static int seed(Context context, int count) {
+        long start = System.nanoTime();
+        NoteDataSource dataSource = new NoteDataSource(context);
+        dataSource.open();
+        Random random = new Random(42);
+        int inserted = 0;
+        try {
+            List<Note> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < count; i++) {
+                batch.add(new Note(WORDS[random.nextInt(WORDS.length)] + " " + i, content(random, i)));
+                if (batch.size() == BATCH_SIZE || i == count - 1) {
+                    inserted += dataSource.insertNotes(batch).getAffectedRows();
+                    batch.clear();
+                }
+            }
+        } finally {
+            dataSource.close();
+        }
+        Log.d(TAG, "Notas insertadas: " + inserted + " en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return inserted;
+    }
+
+    /**
+     * Genera un contenido de entre 10 y 30 palabras, corto como la mayoría de las notas.
+     */
+    private static String content(Random random, int index) {
+        StringBuilder content = new StringBuilder();
+        int words = 10 + random.nextInt(21);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                content.append(' ');
+            }
+            content.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        content.append(" tema").append(index % 5000);
+        return content.toString();
+    }
+}
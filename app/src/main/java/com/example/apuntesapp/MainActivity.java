@@ -1,15 +1,44 @@
 package com.example.apuntesapp;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+import com.example.apuntesapp.data.database.QueryMetrics;
+import com.example.apuntesapp.model.BackupProgress;
 import com.example.apuntesapp.ui.notelist.NoteListActivity;
 import com.example.apuntesapp.ui.addnote.AddNoteActivity;
+import com.example.apuntesapp.viewmodel.NoteViewModel;
 import android.view.View;
 import android.widget.Button;
+import android.widget.Toast;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.Arrays;
 
 public class MainActivity extends AppCompatActivity {
 
+    // Nombre sugerido para el archivo de exportación
+    private static final String EXPORT_FILE_NAME = "notas.ndjson";
+    // Tipos de archivo que se pueden importar; el formato real se detecta por el contenido
+    private static final String[] IMPORT_MIME_TYPES = {
+            "application/x-ndjson", "application/json", "application/zip", "text/*", "application/octet-stream"
+    };
+
+    private NoteViewModel noteViewModel;
+    private Button btnExportar;
+    private Button btnImportar;
+    // Abre el selector de archivos del sistema para elegir dónde guardar la exportación
+    private final ActivityResultLauncher<String> createExportDocument = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("application/x-ndjson"), this::onExportDocumentCreated);
+    // Abre el selector de archivos del sistema para elegir el archivo a importar
+    private final ActivityResultLauncher<String[]> openImportDocument = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::onImportDocumentOpened);
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -17,6 +46,10 @@ public class MainActivity extends AppCompatActivity {
 
         Button btnViewNotes = findViewById(R.id.btnViewNotes);
         Button btnAddNote = findViewById(R.id.btnAddNote);
+        btnExportar = findViewById(R.id.btnExportar);
+        btnImportar = findViewById(R.id.btnImportar);
+
+        noteViewModel = new ViewModelProvider(this).get(NoteViewModel.class);
 
         btnViewNotes.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -33,5 +66,102 @@ public class MainActivity extends AppCompatActivity {
                 startActivity(new Intent(MainActivity.this, AddNoteActivity.class));
             }
         });
+
+        // Inicia la exportación, o la cancela si ya está en curso
+        btnExportar.setOnClickListener(v -> {
+            if (noteViewModel.isBackupRunning()) {
+                noteViewModel.cancelBackup();
+            } else {
+                createExportDocument.launch(EXPORT_FILE_NAME);
+            }
+        });
+
+        // Inicia la importación, o la cancela si ya está en curso
+        btnImportar.setOnClickListener(v -> {
+            if (noteViewModel.isBackupRunning()) {
+                noteViewModel.cancelBackup();
+            } else {
+                openImportDocument.launch(IMPORT_MIME_TYPES);
+            }
+        });
+
+        noteViewModel.getBackupProgress().observe(this, this::showBackupProgress);
+    }
+
+    /**
+     * Inicia la exportación cuando el usuario eligió el archivo de destino.
+     *
+     * @param destination URI del documento creado, o null si el usuario canceló.
+     */
+    private void onExportDocumentCreated(Uri destination) {
+        if (destination != null) {
+            noteViewModel.exportNotes(destination);
+        }
+    }
+
+    /**
+     * Inicia la importación cuando el usuario eligió el archivo de origen.
+     *
+     * @param source URI del documento elegido, o null si el usuario canceló.
+     */
+    private void onImportDocumentOpened(Uri source) {
+        if (source != null) {
+            noteViewModel.importNotes(source);
+        }
+    }
+
+    /**
+     * Muestra el avance de la exportación o importación en su botón y un mensaje cuando termina.
+     *
+     * @param progress Avance de la operación, o null si no hay ninguna que mostrar.
+     */
+    private void showBackupProgress(BackupProgress progress) {
+        btnExportar.setText(R.string.ExportarNotas);
+        btnImportar.setText(R.string.ImportarNotas);
+        if (progress == null) {
+            return;
+        }
+        boolean export = progress.getOperation() == BackupProgress.Operation.EXPORT;
+        switch (progress.getState()) {
+            case RUNNING:
+                if (export) {
+                    btnExportar.setText(getString(R.string.Exportando, Math.max(0, progress.getPercent())));
+                } else {
+                    btnImportar.setText(getString(R.string.Importando, progress.getProcessed()));
+                }
+                return;
+            case FINISHED:
+                if (export) {
+                    Toast.makeText(this, progress.getProcessed() + " notas exportadas", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(this, progress.getProcessed() + " notas importadas, "
+                            + progress.getSkipped() + " omitidas", Toast.LENGTH_SHORT).show();
+                }
+                break;
+            case CANCELED:
+                Toast.makeText(this, export ? "Exportación cancelada"
+                        : "Importación cancelada; se puede continuar eligiendo el mismo archivo", Toast.LENGTH_SHORT).show();
+                break;
+            case FAILED:
+                Toast.makeText(this, export ? "No se pudieron exportar las notas."
+                        : "No se pudieron importar las notas.", Toast.LENGTH_SHORT).show();
+                break;
+        }
+        noteViewModel.clearBackupProgress();
+    }
+
+    /**
+     * Agrega las métricas de la base de datos a la salida de
+     * "adb shell dumpsys activity com.example.apuntesapp/.MainActivity". Con el argumento
+     * "reset-metrics" se borran después de escribirlas.
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        QueryMetrics.getInstance().dump(writer);
+        if (args != null && Arrays.asList(args).contains("reset-metrics")) {
+            QueryMetrics.getInstance().reset();
+            writer.println("Métricas borradas");
+        }
     }
 }
@@ -0,0 +1,130 @@
+package com.example.apuntesapp.data.backup;
+
+import android.os.CancellationSignal;
+
+import com.example.apuntesapp.data.database.NoteDataSource;
+import com.example.apuntesapp.model.NotePage;
+
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Clase que exporta todas las notas a un archivo NDJSON (una nota en formato JSON por línea).
+ *
+ * Conceptos:
+ * - Clean Architecture: Pertenece a la capa de datos. Recibe un OutputStream, por lo que no depende de
+ *   si el destino es un archivo, un documento elegido por el usuario o una conexión de red.
+ *
+ * - Memoria constante: Las notas se leen en páginas por ID y cada fila se escribe en el flujo en cuanto
+ *   se lee del Cursor. Nunca se crea la lista completa de notas, así que el uso de memoria no depende
+ *   del tamaño de la base de datos.
+ *
+ * - Cancelación: La exportación revisa una CancellationSignal después de cada nota.
+ */
+public class NoteExporter {
+
+    /**
+     * Formatos de salida disponibles.
+     */
+    public enum Format {
+        // Archivo NDJSON sin comprimir
+        NDJSON,
+        // Archivo ZIP con una sola entrada NDJSON
+        ZIP
+    }
+
+    /**
+     * Interfaz que recibe el avance de la exportación.
+     */
+    public interface ProgressListener {
+        void onProgress(long exported, long total);
+    }
+
+    // Nombre de la entrada dentro del archivo ZIP
+    public static final String ZIP_ENTRY_NAME = "notes.ndjson";
+
+    // Cantidad de notas que se leen por consulta
+    private static final int CHUNK_SIZE = 64;
+    // Tamaño del búfer de escritura
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final NoteDataSource noteDataSource;
+
+    /**
+     * Constructor del exportador.
+     *
+     * @param noteDataSource Fuente de datos abierta.
+     */
+    public NoteExporter(NoteDataSource noteDataSource) {
+        this.noteDataSource = noteDataSource;
+    }
+
+    /**
+     * Escribe todas las notas en el flujo dado. El flujo se cierra al terminar, incluso si la
+     * exportación falla o se cancela.
+     *
+     * @param out      Flujo de destino.
+     * @param format   Formato de salida.
+     * @param listener Receptor del avance, o null. Se llama después de cada página.
+     * @param signal   Señal para cancelar la exportación, o null.
+     * @return Cantidad de notas exportadas.
+     * @throws IOException                           Si falla la escritura.
+     * @throws android.os.OperationCanceledException Si la exportación se canceló.
+     */
+    public long export(OutputStream out, Format format, ProgressListener listener, CancellationSignal signal)
+            throws IOException {
+        long total = noteDataSource.getNoteCount();
+        long[] exported = {0};
+
+        OutputStream stream = new BufferedOutputStream(out, BUFFER_SIZE);
+        ZipOutputStream zip = null;
+        if (format == Format.ZIP) {
+            zip = new ZipOutputStream(stream);
+            zip.putNextEntry(new ZipEntry(ZIP_ENTRY_NAME));
+            stream = zip;
+        }
+
+        try (Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8)) {
+            long cursor = NoteDataSource.FIRST_PAGE_CURSOR;
+            do {
+                cursor = noteDataSource.forEachNote(cursor, CHUNK_SIZE, (id, title, content) -> {
+                    if (signal != null) {
+                        signal.throwIfCanceled();
+                    }
+                    writeNote(writer, id, title, content);
+                    exported[0]++;
+                });
+                if (listener != null) {
+                    listener.onProgress(exported[0], Math.max(total, exported[0]));
+                }
+            } while (cursor != NotePage.END_OF_LIST);
+
+            writer.flush();
+            if (zip != null) {
+                zip.closeEntry();
+            }
+        }
+        return exported[0];
+    }
+
+    /**
+     * Escribe una nota como una línea JSON.
+     */
+    private static void writeNote(Writer writer, long id, String title, String content) throws IOException {
+        writer.write("{\"id\":");
+        writer.write(Long.toString(id));
+        writer.write(",\"title\":");
+        writer.write(title != null ? JSONObject.quote(title) : "null");
+        writer.write(",\"content\":");
+        writer.write(content != null ? JSONObject.quote(content) : "null");
+        writer.write("}\n");
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.apuntesapp.data.backup;
+
+import android.os.CancellationSignal;
+import android.util.Log;
+
+import com.example.apuntesapp.data.database.BatchResult;
+import com.example.apuntesapp.data.database.NoteDataSource;
+import com.example.apuntesapp.model.Note;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Clase que importa notas desde un archivo NDJSON o desde un archivo ZIP con entradas NDJSON o
+ * Markdown.
+ *
+ * Conceptos:
+ * - Clean Architecture: Pertenece a la capa de datos. Recibe un InputStream, por lo que no depende de
+ *   dónde proviene el archivo.
+ *
+ * - Memoria constante: Las notas se leen una por una y se guardan en bloques de tamaño fijo, cada uno
+ *   en su propia transacción. Nunca se carga el archivo completo en memoria.
+ *
+ * - Duplicados: Cada bloque se inserta con NoteDataSource#insertNotes(Collection, boolean), que omite
+ *   las notas cuyo hash de contenido ya existe. Importar dos veces el mismo archivo no duplica notas.
+ *
+ * - Escritura separada de la lectura: El archivo se lee en el hilo que llama a importNotes, y cada
+ *   bloque se entrega a un ChunkWriter. NoteRepository lo usa para guardar los bloques en su hilo de
+ *   escritura, en orden con el resto de las escrituras.
+ *
+ * - Reanudación: Después de cada bloque confirmado se informa cuántos registros del archivo ya se
+ *   procesaron. Al repetir la importación, esos registros se saltan sin volver a insertarlos.
+ */
+public class NoteImporter {
+
+    /**
+     * Interfaz que recibe el avance de la importación después de cada bloque confirmado.
+     */
+    public interface ProgressListener {
+        void onChunkCommitted(long recordsConsumed, long imported, long skipped);
+    }
+
+    /**
+     * Interfaz que guarda un bloque de notas en una transacción, omitiendo las duplicadas.
+     */
+    public interface ChunkWriter {
+        /**
+         * Guarda un bloque y espera a que termine. La lista se reutiliza después de la llamada.
+         *
+         * @param notes Notas del bloque.
+         * @return Resumen del bloque; las filas afectadas son las notas insertadas.
+         */
+        BatchResult insertChunk(List<Note> notes);
+    }
+
+    private static final String TAG = "NoteImporter";
+
+    // Cantidad de notas que se guardan por transacción
+    private static final int CHUNK_SIZE = 500;
+    // Tamaño del búfer de lectura
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Los archivos ZIP empiezan con los bytes "PK"
+    private static final int ZIP_MAGIC_FIRST = 'P';
+    private static final int ZIP_MAGIC_SECOND = 'K';
+    private static final String NDJSON_EXTENSION = ".ndjson";
+    private static final String JSONL_EXTENSION = ".jsonl";
+    private static final String MARKDOWN_EXTENSION = ".md";
+    private static final String MARKDOWN_TITLE_PREFIX = "# ";
+
+    private final ChunkWriter chunkWriter;
+
+    // Estado de la importación en curso
+    private final List<Note> pending = new ArrayList<>(CHUNK_SIZE);
+    private long recordsToSkip;
+    private long records;
+    private long imported;
+    private long skipped;
+    private ProgressListener listener;
+    private CancellationSignal signal;
+
+    /**
+     * Constructor del importador.
+     *
+     * @param noteDataSource Fuente de datos abierta.
+     */
+    public NoteImporter(NoteDataSource noteDataSource) {
+        this(notes -> noteDataSource.insertNotes(notes, true));
+    }
+
+    /**
+     * Constructor del importador que guarda los bloques con un ChunkWriter.
+     *
+     * @param chunkWriter Objeto que guarda cada bloque.
+     */
+    public NoteImporter(ChunkWriter chunkWriter) {
+        this.chunkWriter = chunkWriter;
+    }
+
+    /**
+     * Lee todas las notas del flujo y las guarda en la base de datos. El formato se detecta por el
+     * contenido: si el flujo empieza como un archivo ZIP se leen sus entradas; si no, se lee como
+     * NDJSON. El flujo se cierra al terminar.
+     *
+     * @param in            Flujo de origen.
+     * @param recordsToSkip Cantidad de registros ya importados en un intento anterior, o 0.
+     * @param listener      Receptor del avance, o null.
+     * @param signal        Señal para cancelar la importación, o null.
+     * @return Cantidad de notas insertadas.
+     * @throws IOException                           Si falla la lectura.
+     * @throws android.os.OperationCanceledException Si la importación se canceló. Los bloques ya
+     *                                               confirmados permanecen en la base de datos.
+     */
+    public long importNotes(InputStream in, long recordsToSkip, ProgressListener listener,
+                            CancellationSignal signal) throws IOException {
+        this.recordsToSkip = recordsToSkip;
+        this.listener = listener;
+        this.signal = signal;
+        pending.clear();
+        records = 0;
+        imported = 0;
+        skipped = 0;
+
+        try (BufferedInputStream stream = new BufferedInputStream(in, BUFFER_SIZE)) {
+            if (isZip(stream)) {
+                readZip(new ZipInputStream(stream));
+            } else {
+                readNdjson(stream);
+            }
+            flush();
+        }
+        return imported;
+    }
+
+    /**
+     * Revisa los primeros bytes del flujo sin consumirlos.
+     */
+    private static boolean isZip(BufferedInputStream stream) throws IOException {
+        stream.mark(2);
+        boolean zip = stream.read() == ZIP_MAGIC_FIRST && stream.read() == ZIP_MAGIC_SECOND;
+        stream.reset();
+        return zip;
+    }
+
+    /**
+     * Lee cada entrada del archivo ZIP según su extensión. Las entradas desconocidas se ignoran.
+     */
+    private void readZip(ZipInputStream zip) throws IOException {
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            String name = entry.getName();
+            String lowerName = name.toLowerCase(Locale.ROOT);
+            if (entry.isDirectory()) {
+                continue;
+            }
+            if (lowerName.endsWith(NDJSON_EXTENSION) || lowerName.endsWith(JSONL_EXTENSION)) {
+                readNdjson(zip);
+            } else if (lowerName.endsWith(MARKDOWN_EXTENSION)) {
+                addRecord(parseMarkdown(name, readFully(zip)));
+            }
+            zip.closeEntry();
+        }
+    }
+
+    /**
+     * Lee un registro JSON por línea. El lector no se cierra para no cerrar el ZIP que lo contiene.
+     */
+    private void readNdjson(InputStream stream) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            Note note;
+            try {
+                JSONObject json = new JSONObject(line);
+                note = new Note(optString(json, "title"), optString(json, "content"));
+            } catch (JSONException e) {
+                // Una línea dañada no debe impedir importar el resto del archivo
+                Log.w(TAG, "Línea " + (records + 1) + " ignorada: " + e.getMessage());
+                note = null;
+            }
+            addRecord(note);
+        }
+    }
+
+    /**
+     * Convierte un archivo Markdown en una nota. Si la primera línea es un encabezado "# " se usa como
+     * título; si no, el título es el nombre del archivo sin extensión.
+     */
+    private static Note parseMarkdown(String entryName, String text) {
+        if (text.startsWith(MARKDOWN_TITLE_PREFIX)) {
+            int end = text.indexOf('\n');
+            if (end == -1) {
+                return new Note(text.substring(MARKDOWN_TITLE_PREFIX.length()).trim(), "");
+            }
+            return new Note(text.substring(MARKDOWN_TITLE_PREFIX.length(), end).trim(),
+                    text.substring(end + 1));
+        }
+        String fileName = entryName.substring(entryName.lastIndexOf('/') + 1);
+        return new Note(fileName.substring(0, fileName.length() - MARKDOWN_EXTENSION.length()), text);
+    }
+
+    /**
+     * Registra un registro leído del archivo. Los registros ya importados en un intento anterior
+     * solo se cuentan. Un registro null es una línea que no se pudo leer y se cuenta como omitido.
+     */
+    private void addRecord(Note note) {
+        if (signal != null) {
+            signal.throwIfCanceled();
+        }
+        records++;
+        if (records <= recordsToSkip) {
+            return;
+        }
+        if (note == null) {
+            skipped++;
+            return;
+        }
+        pending.add(note);
+        if (pending.size() >= CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Guarda el bloque pendiente en una transacción e informa el avance. Al final de la importación
+     * se llama aunque no haya notas pendientes para informar los totales.
+     */
+    private void flush() {
+        if (!pending.isEmpty()) {
+            BatchResult result = chunkWriter.insertChunk(pending);
+            imported += result.getAffectedRows();
+            skipped += pending.size() - result.getAffectedRows();
+            pending.clear();
+        }
+        if (listener != null) {
+            listener.onChunkCommitted(records, imported, skipped);
+        }
+    }
+
+    private static String optString(JSONObject json, String name) {
+        return json.isNull(name) ? null : json.optString(name);
+    }
+
+    private static String readFully(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.apuntesapp.data.database;
+
+import java.util.Locale;
+
+/**
+ * Clase que resume una operación por lotes ejecutada por NoteDataSource.
+ *
+ * Conceptos:
+ * - Clean Architecture: Es un objeto de datos inmutable que permite a las capas superiores informar
+ *   el resultado de una operación masiva sin conocer los detalles de SQLite.
+ *
+ * - Rendimiento: Incluye la duración del lote para medir el rendimiento (filas por segundo) de las
+ *   importaciones y eliminaciones masivas.
+ */
+public class BatchResult {
+
+    private final int requestedRows;
+    private final int affectedRows;
+    private final long elapsedNanos;
+
+    /**
+     * Constructor del resultado.
+     *
+     * @param requestedRows Cantidad de filas que se pidió procesar.
+     * @param affectedRows  Cantidad de filas insertadas, actualizadas o eliminadas.
+     * @param elapsedNanos  Duración del lote en nanosegundos, incluyendo la confirmación de la transacción.
+     */
+    public BatchResult(int requestedRows, int affectedRows, long elapsedNanos) {
+        this.requestedRows = requestedRows;
+        this.affectedRows = affectedRows;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getRequestedRows() {
+        return requestedRows;
+    }
+
+    public int getAffectedRows() {
+        return affectedRows;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Calcula el rendimiento del lote.
+     *
+     * @return Filas procesadas por segundo, o 0 si el lote no tomó tiempo medible.
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos > 0 ? requestedRows * 1_000_000_000d / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d/%d filas en %.1f ms (%.0f filas/s)",
+                affectedRows, requestedRows, elapsedNanos / 1_000_000d, getRowsPerSecond());
+    }
+}
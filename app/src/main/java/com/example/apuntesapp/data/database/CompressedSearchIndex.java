@@ -0,0 +1,191 @@
+package com.example.apuntesapp.data.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Clase que mantiene el índice de búsqueda de las notas cuyo contenido no está en texto plano en su
+ * fila: las comprimidas y las divididas en bloques.
+ *
+ * Conceptos:
+ * - Contenido externo: La tabla FTS4 de las notas en texto plano lee el texto de la tabla de notas
+ *   para borrar una fila del índice y para armar los fragmentos. Con un BLOB comprimido, o con NULL
+ *   en una nota dividida, leería otro texto, por lo que los triggers solo actúan cuando la fila es
+ *   texto plano antes y después del cambio.
+ *
+ * - Índice propio: Las demás notas se indexan en una segunda tabla FTS4 que guarda su propia copia
+ *   del texto indexado. Para quitar una nota basta su docid: no se descomprime ni se vuelve a
+ *   escribir su texto en la fila. FTS4 no permite borrar de una tabla sin contenido, por lo que la
+ *   copia es necesaria.
+ *
+ * - Sincronización manual: NoteDataSource llama a esta clase dentro de la misma transacción de cada
+ *   escritura. Si una nota cambia de formato, se quita del índice que le correspondía antes y se
+ *   indexa en el que le corresponde ahora.
+ *
+ * - Cambios pendientes: Los cambios por rango de una nota dividida no actualizan el índice; se
+ *   indexan cuando NoteDataSource#compactNoteEdits los incorpora a los bloques.
+ *
+ * Las instrucciones se compilan la primera vez que se usan y se liberan con close().
+ */
+final class CompressedSearchIndex {
+
+    private static final String SQL_SELECT_FORMAT =
+            "SELECT " + NoteDatabaseHelper.COLUMN_CONTENT_FORMAT + " FROM " + NoteDatabaseHelper.TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+    private static final String SQL_PLAIN_INDEX_DELETE =
+            "DELETE FROM " + NoteDatabaseHelper.FTS_TABLE_NAME + " WHERE docid = ?";
+    private static final String SQL_STORED_INDEX_DELETE =
+            "DELETE FROM " + NoteDatabaseHelper.STORED_FTS_TABLE_NAME + " WHERE docid = ?";
+    private static final String SQL_PLAIN_INDEX_INSERT =
+            "INSERT INTO " + NoteDatabaseHelper.FTS_TABLE_NAME + " (docid, " + NoteDatabaseHelper.COLUMN_TITLE +
+                    ", " + NoteDatabaseHelper.COLUMN_CONTENT + ") VALUES (?, ?, ?)";
+    private static final String SQL_STORED_INDEX_INSERT =
+            "INSERT INTO " + NoteDatabaseHelper.STORED_FTS_TABLE_NAME + " (docid, " +
+                    NoteDatabaseHelper.COLUMN_TITLE + ", " + NoteDatabaseHelper.COLUMN_CONTENT + ") VALUES (?, ?, ?)";
+
+    private final SQLiteDatabase database;
+    private SQLiteStatement plainDeleteStatement;
+    private SQLiteStatement storedDeleteStatement;
+    private SQLiteStatement plainInsertStatement;
+    private SQLiteStatement storedInsertStatement;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param database Base de datos con una transacción abierta durante todo el uso del objeto.
+     */
+    CompressedSearchIndex(SQLiteDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Prepara el índice antes de actualizar el contenido de una nota.
+     *
+     * @param id       ID de la nota.
+     * @param newPlain True si el contenido nuevo se guardará como texto plano en la fila.
+     * @return True si después de la actualización se debe llamar a index(), porque los triggers no
+     *         indexarán el texto nuevo.
+     */
+    boolean beforeUpdate(long id, boolean newPlain) {
+        Cursor c = database.rawQuery(SQL_SELECT_FORMAT, new String[]{String.valueOf(id)});
+        try {
+            if (!c.moveToFirst()) {
+                return false;
+            }
+            if (c.getInt(0) != ContentCodec.FORMAT_PLAIN) {
+                removeFromStoredIndex(id);
+                return true;
+            }
+        } finally {
+            c.close();
+        }
+        if (!newPlain) {
+            // La fila todavía tiene el texto plano anterior, que es lo que FTS4 debe quitar
+            removeFromPlainIndex(id);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Quita del índice una nota comprimida o dividida antes de eliminarla. Las notas en texto plano
+     * las quita el trigger de eliminación, y para ellas esta llamada no hace nada.
+     *
+     * @param id ID de la nota.
+     */
+    void beforeDelete(long id) {
+        removeFromStoredIndex(id);
+    }
+
+    /**
+     * Indexa el texto de una nota que los triggers no indexaron.
+     *
+     * @param id      ID de la nota.
+     * @param title   Título de la nota.
+     * @param content Contenido original, sin comprimir.
+     * @param plain   True si el contenido está guardado como texto plano en la fila.
+     */
+    void index(long id, String title, String content, boolean plain) {
+        SQLiteStatement statement;
+        if (plain) {
+            if (plainInsertStatement == null) {
+                plainInsertStatement = database.compileStatement(SQL_PLAIN_INDEX_INSERT);
+            }
+            statement = plainInsertStatement;
+        } else {
+            if (storedInsertStatement == null) {
+                storedInsertStatement = database.compileStatement(SQL_STORED_INDEX_INSERT);
+            }
+            statement = storedInsertStatement;
+        }
+        statement.clearBindings();
+        statement.bindLong(1, id);
+        if (title != null) {
+            statement.bindString(2, title);
+        }
+        if (content != null) {
+            statement.bindString(3, content);
+        }
+        statement.executeInsert();
+    }
+
+    /**
+     * Vuelve a indexar una nota comprimida o dividida, la haya indexado antes o no.
+     *
+     * @param id      ID de la nota.
+     * @param title   Título de la nota.
+     * @param content Contenido original, sin comprimir.
+     */
+    void reindexStored(long id, String title, String content) {
+        removeFromStoredIndex(id);
+        index(id, title, content, false);
+    }
+
+    /**
+     * Vuelve a indexar una nota en texto plano, la haya indexado antes o no. FTS4 quita del índice
+     * el texto que la fila tiene ahora, que es el mismo que se vuelve a indexar.
+     *
+     * @param id      ID de la nota.
+     * @param title   Título de la nota.
+     * @param content Contenido guardado en la fila.
+     */
+    void reindexPlain(long id, String title, String content) {
+        removeFromPlainIndex(id);
+        index(id, title, content, true);
+    }
+
+    /**
+     * Libera las instrucciones compiladas.
+     */
+    void close() {
+        if (plainDeleteStatement != null) {
+            plainDeleteStatement.close();
+        }
+        if (storedDeleteStatement != null) {
+            storedDeleteStatement.close();
+        }
+        if (plainInsertStatement != null) {
+            plainInsertStatement.close();
+        }
+        if (storedInsertStatement != null) {
+            storedInsertStatement.close();
+        }
+    }
+
+    private void removeFromPlainIndex(long id) {
+        if (plainDeleteStatement == null) {
+            plainDeleteStatement = database.compileStatement(SQL_PLAIN_INDEX_DELETE);
+        }
+        plainDeleteStatement.bindLong(1, id);
+        plainDeleteStatement.executeUpdateDelete();
+    }
+
+    private void removeFromStoredIndex(long id) {
+        if (storedDeleteStatement == null) {
+            storedDeleteStatement = database.compileStatement(SQL_STORED_INDEX_DELETE);
+        }
+        storedDeleteStatement.bindLong(1, id);
+        storedDeleteStatement.executeUpdateDelete();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.apuntesapp.data.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Clase que convierte el contenido de una nota entre su texto y la forma en que se guarda en la
+ * columna de contenido.
+ *
+ * Conceptos:
+ * - Clean Architecture: La compresión es un detalle de almacenamiento de la capa de datos. Solo
+ *   NoteDataSource la utiliza; el resto de la aplicación siempre recibe el texto original.
+ *
+ * - Formato por fila: Cada fila indica en COLUMN_CONTENT_FORMAT cómo está guardado su contenido. Las
+ *   notas cortas y las anteriores a la versión 5 quedan como texto plano y se leen sin cambios; las
+ *   largas se guardan como un BLOB comprimido con Deflate (formato zlib, que incluye una suma de
+ *   verificación). Las notas más largas que un bloque se guardan divididas en la tabla de bloques
+ *   (ver NoteChunkStore) y la columna de contenido de la nota queda en NULL.
+ *
+ * - Páginas leídas: Una nota comprimida ocupa menos páginas de desbordamiento, por lo que leer sus
+ *   columnas, copiar la base de datos o recorrer la tabla toca menos páginas del archivo.
+ */
+final class ContentCodec {
+
+    // Valores de COLUMN_CONTENT_FORMAT
+    static final int FORMAT_PLAIN = 0;
+    static final int FORMAT_DEFLATE = 1;
+    static final int FORMAT_CHUNKED = 2;
+
+    // Por debajo de este tamaño en bytes UTF-8 la nota cabe en una página de la tabla y comprimirla
+    // no reduce las páginas leídas
+    static final int COMPRESSION_THRESHOLD = 1024;
+
+    // Solo se guarda comprimido si se ahorra al menos una décima parte del tamaño
+    private static final int MIN_SAVINGS_DIVISOR = 10;
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Contenido listo para guardarse: un texto plano, los bytes comprimidos o, si la nota se divide
+     * en bloques, ningún dato.
+     */
+    static final class Encoded {
+        final int format;
+        private final String text;
+        private final byte[] data;
+
+        private Encoded(int format, String text, byte[] data) {
+            this.format = format;
+            this.text = text;
+            this.data = data;
+        }
+
+        /**
+         * Indica si el contenido se guarda como texto plano en la fila, el único formato que los
+         * triggers del índice de búsqueda pueden leer.
+         */
+        boolean isPlain() {
+            return format == FORMAT_PLAIN;
+        }
+
+        boolean isChunked() {
+            return format == FORMAT_CHUNKED;
+        }
+
+        /**
+         * Asigna el contenido a un parámetro de una instrucción compilada.
+         */
+        void bind(SQLiteStatement statement, int index) {
+            if (data != null) {
+                statement.bindBlob(index, data);
+            } else if (text != null) {
+                statement.bindString(index, text);
+            } else {
+                statement.bindNull(index);
+            }
+        }
+    }
+
+    private ContentCodec() {
+    }
+
+    /**
+     * Prepara el contenido de una nota para guardarlo, comprimiéndolo si es lo bastante grande. Si
+     * no cabe en un bloque, el resultado no contiene datos: el texto se guarda con NoteChunkStore.
+     *
+     * @param content Texto de la nota, o null.
+     * @return Contenido a guardar.
+     */
+    static Encoded encode(String content) {
+        if (content != null && content.length() > NoteChunkStore.CHUNK_SIZE) {
+            return new Encoded(FORMAT_CHUNKED, null, null);
+        }
+        if (content == null || content.length() < COMPRESSION_THRESHOLD / 4) {
+            // Un carácter ocupa como máximo 4 bytes en UTF-8; se evita convertir textos cortos
+            return new Encoded(FORMAT_PLAIN, content, null);
+        }
+        byte[] plain = content.getBytes(StandardCharsets.UTF_8);
+        if (plain.length < COMPRESSION_THRESHOLD) {
+            return new Encoded(FORMAT_PLAIN, content, null);
+        }
+        byte[] compressed = deflate(plain);
+        if (compressed.length > plain.length - plain.length / MIN_SAVINGS_DIVISOR) {
+            return new Encoded(FORMAT_PLAIN, content, null);
+        }
+        return new Encoded(FORMAT_DEFLATE, null, compressed);
+    }
+
+    /**
+     * Lee el texto original de una columna de contenido. Los bloques de una nota dividida se leen con
+     * NoteChunkStore#readContent.
+     *
+     * @param format       Valor de COLUMN_CONTENT_FORMAT de la fila.
+     * @param cursor       Cursor posicionado en la fila.
+     * @param contentIndex Índice de la columna de contenido.
+     * @return Texto de la nota, o null.
+     * @throws IllegalStateException Si el formato es desconocido o los datos están dañados.
+     */
+    static String decode(int format, Cursor cursor, int contentIndex) {
+        switch (format) {
+            case FORMAT_PLAIN:
+                return cursor.getString(contentIndex);
+            case FORMAT_DEFLATE:
+                return inflate(cursor.getBlob(contentIndex));
+            default:
+                throw new IllegalStateException("Formato de contenido desconocido: " + format);
+        }
+    }
+
+    private static byte[] deflate(byte[] plain) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(plain);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length / 2);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Datos comprimidos incompletos");
+                }
+                out.write(buffer, 0, length);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Contenido comprimido dañado", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.apuntesapp.data.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Paso de migración que lleva el esquema de la base de datos de una versión a la siguiente.
+ *
+ * Conceptos:
+ * - Clean Architecture: Cada cambio de esquema se describe en un objeto propio, por lo que
+ *   NoteDatabaseHelper solo decide qué pasos ejecutar y en qué orden.
+ *
+ * - Transacciones: NoteDatabaseHelper ejecuta cada paso dentro de su propia transacción. Si un paso
+ *   falla, la actualización completa se revierte y la base de datos queda en la versión anterior,
+ *   sin perder notas.
+ *
+ * - Trabajo diferido: Un paso puede dejar trabajo pendiente para después de abrir la base de datos,
+ *   como completar una columna nueva en filas existentes. Ese trabajo se hace en lotes pequeños en
+ *   segundo plano para que la primera apertura después de actualizar la aplicación no se congele.
+ */
+abstract class Migration {
+
+    final int startVersion;
+    final int endVersion;
+
+    /**
+     * Constructor del paso.
+     *
+     * @param startVersion Versión de la que parte el paso; el paso deja la base de datos en la
+     *                     versión siguiente.
+     */
+    Migration(int startVersion) {
+        this.startVersion = startVersion;
+        this.endVersion = startVersion + 1;
+    }
+
+    /**
+     * Aplica los cambios de esquema. Se ejecuta dentro de una transacción y no debe recorrer todas
+     * las filas de una tabla grande; ese trabajo corresponde a backfill(SQLiteDatabase, int).
+     *
+     * @param db Base de datos SQLite.
+     */
+    abstract void migrate(SQLiteDatabase db);
+
+    /**
+     * Procesa un lote del trabajo diferido de este paso. Se llama repetidamente en segundo plano
+     * hasta que devuelve 0, y también en cada apertura, por lo que debe ser idempotente y barato
+     * cuando ya no queda nada pendiente.
+     *
+     * @param db        Base de datos SQLite.
+     * @param batchSize Cantidad máxima de filas a procesar.
+     * @return Cantidad de filas procesadas, o 0 si no queda trabajo.
+     */
+    int backfill(SQLiteDatabase db, int batchSize) {
+        return 0;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.apuntesapp.data.database;
+
+import com.example.apuntesapp.model.NoteChange;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Canal de notificaciones, compartido por todo el proceso, por el que NoteDataSource publica cada
+ * nota insertada, actualizada o eliminada.
+ *
+ * Conceptos:
+ * - Patrón observador: Cualquier pantalla puede suscribirse y aplicar el cambio a sus datos en memoria,
+ *   aunque el cambio se haya hecho desde otra actividad o desde otro ViewModel.
+ *
+ * - Concurrencia: Los cambios se publican en el hilo que escribió en la base de datos. Cada oyente es
+ *   responsable de pasar el cambio al hilo que necesite.
+ *
+ * - Lotes: Los cambios de una misma transacción se entregan juntos, de modo que una eliminación masiva
+ *   produce una sola actualización de la lista.
+ */
+public class NoteChangeNotifier {
+
+    /**
+     * Interfaz que reciben los oyentes de cambios.
+     */
+    public interface Listener {
+        void onNotesChanged(List<NoteChange> changes);
+    }
+
+    private static final NoteChangeNotifier INSTANCE = new NoteChangeNotifier();
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private NoteChangeNotifier() {
+    }
+
+    /**
+     * Obtiene el canal de notificaciones del proceso.
+     *
+     * @return Instancia compartida.
+     */
+    public static NoteChangeNotifier getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registra un oyente de cambios.
+     *
+     * @param listener Oyente a registrar.
+     */
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Quita un oyente registrado.
+     *
+     * @param listener Oyente a quitar.
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Publica un cambio a todos los oyentes registrados.
+     *
+     * @param change Cambio aplicado.
+     */
+    void notifyChange(NoteChange change) {
+        notifyChanges(Collections.singletonList(change));
+    }
+
+    /**
+     * Publica los cambios de una misma transacción a todos los oyentes registrados.
+     *
+     * @param changes Cambios aplicados, en orden; la lista no debe modificarse después.
+     */
+    void notifyChanges(List<NoteChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<NoteChange> published = Collections.unmodifiableList(changes);
+        for (Listener listener : listeners) {
+            listener.onNotesChanged(published);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.apuntesapp.data.database;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clase que guarda y lee el contenido de las notas largas dividido en bloques.
+ *
+ * Conceptos:
+ * - Bloques de tamaño fijo: Una nota más larga que CHUNK_SIZE caracteres se guarda en varias filas
+ *   de la tabla de bloques, cada una codificada con ContentCodec. Ninguna fila supera el límite de
+ *   2 MB por fila de CursorWindow, sin importar el tamaño de la nota.
+ *
+ * - Párrafos completos: Los cortes se hacen después de un salto de línea cuando es posible, por lo
+ *   que cada bloque contiene párrafos completos y la pantalla de detalle puede mostrar cada bloque
+ *   como un elemento independiente.
+ *
+ * - Lectura por rangos: Un bloque se lee por su número con el índice único (note_id, seq), sin
+ *   tocar el resto de la nota.
+ *
+ * - Cambios por rango: Guardar un cambio pequeño en una nota dividida solo agrega una fila al
+ *   registro de cambios con el rango reemplazado y el texto nuevo; los bloques no se reescriben. Las
+ *   lecturas completas aplican el registro sobre los bloques, y NoteDataSource#compactNoteEdits lo
+ *   incorpora a los bloques más tarde, en segundo plano, junto con el índice de búsqueda.
+ *
+ * Las instrucciones de escritura se compilan la primera vez que se usan y se liberan con close().
+ */
+final class NoteChunkStore {
+
+    // Cantidad máxima de caracteres por bloque
+    static final int CHUNK_SIZE = 8192;
+
+    // Cantidad de caracteres que se leen por consulta al dividir una nota antigua en texto plano
+    private static final int LEGACY_READ_SIZE = 256 * 1024;
+
+    private static final String SQL_INSERT_CHUNK =
+            "INSERT INTO " + NoteDatabaseHelper.CHUNKS_TABLE_NAME + " (" +
+                    NoteDatabaseHelper.COLUMN_NOTE_ID + ", " + NoteDatabaseHelper.COLUMN_SEQ + ", " +
+                    NoteDatabaseHelper.COLUMN_CONTENT + ", " + NoteDatabaseHelper.COLUMN_CONTENT_FORMAT +
+                    ") VALUES (?, ?, ?, ?)";
+    private static final String SQL_DELETE_CHUNKS =
+            "DELETE FROM " + NoteDatabaseHelper.CHUNKS_TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_NOTE_ID + " = ?";
+    private static final String SQL_SELECT_CHUNKS =
+            "SELECT " + NoteDatabaseHelper.COLUMN_CONTENT + ", " + NoteDatabaseHelper.COLUMN_CONTENT_FORMAT +
+                    " FROM " + NoteDatabaseHelper.CHUNKS_TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_NOTE_ID + " = ?" +
+                    " ORDER BY " + NoteDatabaseHelper.COLUMN_SEQ;
+    private static final String SQL_SELECT_CHUNK =
+            "SELECT " + NoteDatabaseHelper.COLUMN_CONTENT + ", " + NoteDatabaseHelper.COLUMN_CONTENT_FORMAT +
+                    " FROM " + NoteDatabaseHelper.CHUNKS_TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_NOTE_ID + " = ? AND " + NoteDatabaseHelper.COLUMN_SEQ + " = ?";
+    private static final String SQL_COUNT_CHUNKS =
+            "SELECT COUNT(*) FROM " + NoteDatabaseHelper.CHUNKS_TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_NOTE_ID + " = ?";
+
+    private static final String SQL_INSERT_EDIT =
+            "INSERT INTO " + NoteDatabaseHelper.EDITS_TABLE_NAME + " (" +
+                    NoteDatabaseHelper.COLUMN_NOTE_ID + ", " + NoteDatabaseHelper.COLUMN_RANGE_START + ", " +
+                    NoteDatabaseHelper.COLUMN_RANGE_END + ", " + NoteDatabaseHelper.COLUMN_REPLACEMENT + ", " +
+                    NoteDatabaseHelper.COLUMN_PREVIOUS_TITLE + ") VALUES (?, ?, ?, ?, ?)";
+    private static final String SQL_DELETE_EDITS =
+            "DELETE FROM " + NoteDatabaseHelper.EDITS_TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_NOTE_ID + " = ?";
+    private static final String SQL_SELECT_EDITS =
+            "SELECT " + NoteDatabaseHelper.COLUMN_RANGE_START + ", " + NoteDatabaseHelper.COLUMN_RANGE_END + ", " +
+                    NoteDatabaseHelper.COLUMN_REPLACEMENT + " FROM " + NoteDatabaseHelper.EDITS_TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_NOTE_ID + " = ? ORDER BY " + NoteDatabaseHelper.COLUMN_ID;
+    private static final String SQL_COUNT_EDITS =
+            "SELECT COUNT(*) FROM " + NoteDatabaseHelper.EDITS_TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_NOTE_ID + " = ?";
+    private static final String SQL_SELECT_NOTES_WITH_EDITS =
+            "SELECT DISTINCT " + NoteDatabaseHelper.COLUMN_NOTE_ID + " FROM " + NoteDatabaseHelper.EDITS_TABLE_NAME +
+                    " LIMIT ?";
+
+    // Consultas usadas al dividir las notas guardadas antes de la versión 6
+    private static final String SQL_SELECT_STORED_SIZE =
+            "SELECT " + NoteDatabaseHelper.COLUMN_CONTENT_FORMAT + ", length(" + NoteDatabaseHelper.COLUMN_CONTENT +
+                    "), " + NoteDatabaseHelper.COLUMN_TITLE + " FROM " + NoteDatabaseHelper.TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+    private static final String SQL_SELECT_CONTENT_RANGE =
+            "SELECT substr(" + NoteDatabaseHelper.COLUMN_CONTENT + ", ?, ?) FROM " + NoteDatabaseHelper.TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+    private static final String SQL_SELECT_CONTENT =
+            "SELECT " + NoteDatabaseHelper.COLUMN_CONTENT + " FROM " + NoteDatabaseHelper.TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+    // El formato nuevo no es texto plano, por lo que los triggers del índice de búsqueda no se
+    // ejecutan; chunkLegacyNote mueve la nota al índice propio de CompressedSearchIndex
+    private static final String SQL_MARK_CHUNKED =
+            "UPDATE " + NoteDatabaseHelper.TABLE_NAME + " SET " + NoteDatabaseHelper.COLUMN_CONTENT + " = NULL, " +
+                    NoteDatabaseHelper.COLUMN_CONTENT_FORMAT + " = " + ContentCodec.FORMAT_CHUNKED +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+
+    private final SQLiteDatabase database;
+    private SQLiteStatement insertStatement;
+    private SQLiteStatement deleteStatement;
+    private SQLiteStatement insertEditStatement;
+    private SQLiteStatement deleteEditsStatement;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param database Base de datos con una transacción abierta durante todo el uso del objeto.
+     */
+    NoteChunkStore(SQLiteDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Reemplaza los bloques de una nota y descarta sus cambios pendientes, que ya están incluidos en
+     * el contenido nuevo.
+     *
+     * @param noteId  ID de la nota.
+     * @param content Contenido completo de la nota, o null para solo borrar sus bloques.
+     */
+    void write(long noteId, String content) {
+        delete(noteId);
+        if (content == null) {
+            return;
+        }
+        if (insertStatement == null) {
+            insertStatement = database.compileStatement(SQL_INSERT_CHUNK);
+        }
+        List<String> chunks = split(content);
+        for (int i = 0; i < chunks.size(); i++) {
+            ContentCodec.Encoded chunk = ContentCodec.encode(chunks.get(i));
+            insertStatement.clearBindings();
+            insertStatement.bindLong(1, noteId);
+            insertStatement.bindLong(2, i);
+            chunk.bind(insertStatement, 3);
+            insertStatement.bindLong(4, chunk.format);
+            insertStatement.executeInsert();
+        }
+    }
+
+    /**
+     * Borra los bloques y los cambios pendientes de una nota. Si la nota no está dividida, no hace
+     * nada.
+     *
+     * @param noteId ID de la nota.
+     */
+    void delete(long noteId) {
+        if (deleteStatement == null) {
+            deleteStatement = database.compileStatement(SQL_DELETE_CHUNKS);
+            deleteEditsStatement = database.compileStatement(SQL_DELETE_EDITS);
+        }
+        deleteStatement.bindLong(1, noteId);
+        deleteStatement.executeUpdateDelete();
+        deleteEditsStatement.bindLong(1, noteId);
+        deleteEditsStatement.executeUpdateDelete();
+    }
+
+    /**
+     * Registra el reemplazo de un rango del contenido de una nota dividida, sin tocar sus bloques.
+     *
+     * @param noteId        ID de la nota.
+     * @param start         Inicio del rango reemplazado en el texto actual.
+     * @param end           Fin del rango reemplazado, exclusivo.
+     * @param replacement   Texto nuevo del rango.
+     * @param previousTitle Título de la nota antes del cambio.
+     */
+    void appendEdit(long noteId, int start, int end, String replacement, String previousTitle) {
+        if (insertEditStatement == null) {
+            insertEditStatement = database.compileStatement(SQL_INSERT_EDIT);
+        }
+        insertEditStatement.clearBindings();
+        insertEditStatement.bindLong(1, noteId);
+        insertEditStatement.bindLong(2, start);
+        insertEditStatement.bindLong(3, end);
+        insertEditStatement.bindString(4, replacement);
+        if (previousTitle != null) {
+            insertEditStatement.bindString(5, previousTitle);
+        }
+        insertEditStatement.executeInsert();
+    }
+
+    /**
+     * Divide una nota antigua guardada en una sola fila si es más larga que un bloque. El texto
+     * plano se lee por partes con substr() para no superar el límite de CursorWindow.
+     *
+     * @param noteId      ID de la nota.
+     * @param searchIndex Índice de las notas que no están en texto plano, al que pasa la nota si
+     *                    estaba en texto plano.
+     */
+    void chunkLegacyNote(long noteId, CompressedSearchIndex searchIndex) {
+        String[] args = {String.valueOf(noteId)};
+        int format;
+        long length;
+        String title;
+        Cursor c = database.rawQuery(SQL_SELECT_STORED_SIZE, args);
+        try {
+            if (!c.moveToFirst()) {
+                return;
+            }
+            format = c.getInt(0);
+            length = c.getLong(1);
+            title = c.getString(2);
+        } finally {
+            c.close();
+        }
+
+        String content;
+        if (format == ContentCodec.FORMAT_PLAIN) {
+            if (length <= CHUNK_SIZE) {
+                return;
+            }
+            StringBuilder text = new StringBuilder((int) length);
+            for (long start = 1; start <= length; start += LEGACY_READ_SIZE) {
+                text.append(DatabaseUtils.stringForQuery(database, SQL_SELECT_CONTENT_RANGE,
+                        new String[]{String.valueOf(start), String.valueOf(LEGACY_READ_SIZE), args[0]}));
+            }
+            content = text.toString();
+        } else if (format == ContentCodec.FORMAT_DEFLATE) {
+            c = database.rawQuery(SQL_SELECT_CONTENT, args);
+            try {
+                content = c.moveToFirst() ? ContentCodec.decode(format, c, 0) : null;
+            } finally {
+                c.close();
+            }
+            if (content == null || content.length() <= CHUNK_SIZE) {
+                return;
+            }
+        } else {
+            return;
+        }
+        // Se quita del índice de contenido externo mientras la fila todavía tiene el texto plano
+        boolean reindex = searchIndex.beforeUpdate(noteId, false);
+        write(noteId, content);
+        database.execSQL(SQL_MARK_CHUNKED, new Object[]{noteId});
+        if (reindex) {
+            searchIndex.index(noteId, title, content, false);
+        }
+    }
+
+    /**
+     * Libera las instrucciones compiladas.
+     */
+    void close() {
+        if (insertStatement != null) {
+            insertStatement.close();
+        }
+        if (deleteStatement != null) {
+            deleteStatement.close();
+            deleteEditsStatement.close();
+        }
+        if (insertEditStatement != null) {
+            insertEditStatement.close();
+        }
+    }
+
+    /**
+     * Lee el contenido completo de una nota a partir de la fila de la tabla de notas, uniendo sus
+     * bloques y aplicando sus cambios pendientes si está dividida.
+     *
+     * @param db           Base de datos abierta.
+     * @param noteId       ID de la nota.
+     * @param format       Valor de COLUMN_CONTENT_FORMAT de la fila.
+     * @param cursor       Cursor posicionado en la fila.
+     * @param contentIndex Índice de la columna de contenido.
+     * @return Texto de la nota, o null.
+     */
+    static String readContent(SQLiteDatabase db, long noteId, int format, Cursor cursor, int contentIndex) {
+        if (format != ContentCodec.FORMAT_CHUNKED) {
+            return ContentCodec.decode(format, cursor, contentIndex);
+        }
+        StringBuilder content = readChunks(db, noteId);
+        Cursor c = db.rawQuery(SQL_SELECT_EDITS, new String[]{String.valueOf(noteId)});
+        try {
+            while (c.moveToNext()) {
+                // Los rangos se limitan al texto por si un registro no coincide con los bloques
+                int start = Math.min(c.getInt(0), content.length());
+                int end = Math.max(start, Math.min(c.getInt(1), content.length()));
+                content.replace(start, end, c.getString(2));
+            }
+        } finally {
+            c.close();
+        }
+        return content.toString();
+    }
+
+    private static StringBuilder readChunks(SQLiteDatabase db, long noteId) {
+        StringBuilder content = new StringBuilder();
+        Cursor c = db.rawQuery(SQL_SELECT_CHUNKS, new String[]{String.valueOf(noteId)});
+        try {
+            while (c.moveToNext()) {
+                content.append(ContentCodec.decode(c.getInt(1), c, 0));
+            }
+        } finally {
+            c.close();
+        }
+        return content;
+    }
+
+    /**
+     * Cuenta los cambios pendientes de una nota usando solo el índice del registro.
+     *
+     * @param db     Base de datos abierta.
+     * @param noteId ID de la nota.
+     * @return Cantidad de cambios sin incorporar a los bloques.
+     */
+    static int countEdits(SQLiteDatabase db, long noteId) {
+        return (int) DatabaseUtils.longForQuery(db, SQL_COUNT_EDITS, new String[]{String.valueOf(noteId)});
+    }
+
+    /**
+     * Obtiene las notas que tienen cambios pendientes de incorporar a sus bloques.
+     *
+     * @param db    Base de datos abierta.
+     * @param limit Cantidad máxima de notas.
+     * @return IDs de las notas.
+     */
+    static long[] notesWithEdits(SQLiteDatabase db, int limit) {
+        Cursor c = db.rawQuery(SQL_SELECT_NOTES_WITH_EDITS, new String[]{String.valueOf(limit)});
+        try {
+            long[] ids = new long[c.getCount()];
+            for (int i = 0; c.moveToNext(); i++) {
+                ids[i] = c.getLong(0);
+            }
+            return ids;
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * Lee un bloque de una nota dividida.
+     *
+     * @param db     Base de datos abierta.
+     * @param noteId ID de la nota.
+     * @param seq    Número del bloque, desde 0.
+     * @return Texto del bloque, o null si no existe.
+     */
+    static String readChunk(SQLiteDatabase db, long noteId, int seq) {
+        Cursor c = db.rawQuery(SQL_SELECT_CHUNK, new String[]{String.valueOf(noteId), String.valueOf(seq)});
+        try {
+            return c.moveToFirst() ? ContentCodec.decode(c.getInt(1), c, 0) : null;
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * Cuenta los bloques de una nota dividida usando solo el índice de bloques.
+     *
+     * @param db     Base de datos abierta.
+     * @param noteId ID de la nota.
+     * @return Cantidad de bloques.
+     */
+    static int countChunks(SQLiteDatabase db, long noteId) {
+        return (int) DatabaseUtils.longForQuery(db, SQL_COUNT_CHUNKS, new String[]{String.valueOf(noteId)});
+    }
+
+    /**
+     * Divide un texto en bloques de como máximo CHUNK_SIZE caracteres. Cada bloque termina después
+     * del último salto de línea de su segunda mitad; si no hay ninguno, se corta en el límite sin
+     * separar un par sustituto.
+     *
+     * @param content Texto a dividir.
+     * @return Bloques en orden; unidos reproducen el texto original.
+     */
+    static List<String> split(String content) {
+        List<String> chunks = new ArrayList<>(content.length() / CHUNK_SIZE + 1);
+        int start = 0;
+        while (start < content.length()) {
+            int end = Math.min(start + CHUNK_SIZE, content.length());
+            if (end < content.length()) {
+                int lineBreak = content.lastIndexOf('\n', end - 1);
+                if (lineBreak >= start + CHUNK_SIZE / 2) {
+                    end = lineBreak + 1;
+                } else if (Character.isHighSurrogate(content.charAt(end - 1))) {
+                    end--;
+                }
+            }
+            chunks.add(content.substring(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+}
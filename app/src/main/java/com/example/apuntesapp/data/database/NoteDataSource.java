@@ -1,13 +1,31 @@
 package com.example.apuntesapp.data.database;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import androidx.annotation.VisibleForTesting;
 import com.example.apuntesapp.model.Note;
+import com.example.apuntesapp.model.NoteChange;
+import com.example.apuntesapp.model.NoteEdit;
+import com.example.apuntesapp.model.NoteOutline;
+import com.example.apuntesapp.model.NotePage;
+import com.example.apuntesapp.model.NoteSortOrder;
+import com.example.apuntesapp.model.NoteSummary;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Clase que actúa como fuente de datos para la gestión de notas en la base de datos SQLite.
@@ -25,12 +43,134 @@ import java.util.List;
  *
  * - Custom Views: No utiliza directamente Custom Views. En cambio, se centra en la manipulación de datos y operaciones
  *   relacionadas con la base de datos.
+ *
+ * - Compresión transparente: El contenido de las notas grandes se guarda comprimido con ContentCodec y
+ *   se descomprime solo al leer notas completas. Las listas y búsquedas nunca leen el contenido
+ *   comprimido, y CompressedSearchIndex mantiene el índice de búsqueda de esas filas.
+ *
+ * - Bloques: Las notas más largas que NoteChunkStore.CHUNK_SIZE se guardan divididas en la tabla de
+ *   bloques. getNoteOutline y getNoteChunk permiten mostrarlas leyendo solo los bloques visibles.
+ *
+ * - Cambios por rango: applyNoteEdit guarda un cambio en una nota dividida escribiendo solo el rango
+ *   modificado, por lo que su costo depende del tamaño del cambio y no del de la nota. El trabajo
+ *   proporcional a la nota (bloques, huella e índice de búsqueda) lo hace compactNoteEdits después.
+ *
+ * - Métricas: Cada operación registra en QueryMetrics su duración, sus filas y los bytes de texto
+ *   leídos o escritos. Si una lectura de una sola consulta es lenta, se registra también el plan de
+ *   esa consulta.
  */
 
 public class NoteDataSource {
 
+    // Cursor con el que se pide la primera página (los IDs generados por SQLite inician en 1)
+    public static final long FIRST_PAGE_CURSOR = 0;
+    // Cantidad de notas que se leen por página cuando no se indica otra
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    // Cantidad máxima de caracteres del contenido que se leen como fragmento en las listas
+    public static final int SNIPPET_LENGTH = 120;
+
+    // Marcas que rodean los términos encontrados en los fragmentos de búsqueda (STX y ETX). Se usan
+    // caracteres de control para que no se confundan con texto escrito por el usuario.
+    public static final char HIGHLIGHT_START = '\u0002';
+    public static final char HIGHLIGHT_END = '\u0003';
+    // Cantidad aproximada de palabras en los fragmentos de búsqueda
+    private static final int SEARCH_SNIPPET_TOKENS = 12;
+    // Cantidad máxima de caracteres nuevos de un cambio por rango; uno más grande se guarda
+    // reescribiendo la nota completa
+    public static final int MAX_EDIT_LENGTH = 4 * NoteChunkStore.CHUNK_SIZE;
+    // Cantidad de cambios pendientes de una nota a partir de la cual se guarda la nota completa, para
+    // que las lecturas nunca apliquen un registro largo
+    private static final int MAX_PENDING_EDITS = 64;
+
+    private static final String COLUMN_SNIPPET = "snippet";
+    private static final String COLUMN_TITLE_MATCH = "title_match";
+
+    // Instrucciones que se compilan una vez por lote y se reutilizan en cada fila
+    private static final String SQL_INSERT =
+            "INSERT INTO " + NoteDatabaseHelper.TABLE_NAME + " (" +
+                    NoteDatabaseHelper.COLUMN_TITLE + ", " + NoteDatabaseHelper.COLUMN_CONTENT + ", " +
+                    NoteDatabaseHelper.COLUMN_CONTENT_FORMAT + ", " +
+                    NoteDatabaseHelper.COLUMN_CONTENT_HASH + ", " + NoteDatabaseHelper.COLUMN_CREATED_AT + ", " +
+                    NoteDatabaseHelper.COLUMN_UPDATED_AT + ") VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SQL_UPDATE =
+            "UPDATE " + NoteDatabaseHelper.TABLE_NAME + " SET " +
+                    NoteDatabaseHelper.COLUMN_TITLE + " = ?, " + NoteDatabaseHelper.COLUMN_CONTENT + " = ?, " +
+                    NoteDatabaseHelper.COLUMN_CONTENT_FORMAT + " = ?, " +
+                    NoteDatabaseHelper.COLUMN_CONTENT_HASH + " = ?, " + NoteDatabaseHelper.COLUMN_UPDATED_AT + " = ?" +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+    private static final String SQL_HASH_EXISTS =
+            "SELECT COUNT(*) FROM " + NoteDatabaseHelper.TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_CONTENT_HASH + " = ?";
+    private static final String SQL_DELETE =
+            "DELETE FROM " + NoteDatabaseHelper.TABLE_NAME + " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+
+    // Las notas cuyo título coincide aparecen primero; dentro de cada grupo, las más recientes primero.
+    // Las notas en texto plano y las demás están en índices distintos (ver CompressedSearchIndex),
+    // por lo que se buscan en ambos. Las notas comprimidas o divididas se devuelven sin fragmento,
+    // para no recorrer su texto completo en cada resultado.
+    private static final String SQL_SEARCH =
+            "SELECT " + NoteDatabaseHelper.COLUMN_ID + ", " + NoteDatabaseHelper.COLUMN_TITLE + ", " +
+                    COLUMN_SNIPPET + " FROM (" +
+                    "SELECT n." + NoteDatabaseHelper.COLUMN_ID + ", n." + NoteDatabaseHelper.COLUMN_TITLE + ", " +
+                    "snippet(" + NoteDatabaseHelper.FTS_TABLE_NAME + ", char(2), char(3), '…', 1, " +
+                    SEARCH_SNIPPET_TOKENS + ") AS " + COLUMN_SNIPPET + ", " +
+                    NoteDatabaseHelper.FTS_TABLE_NAME + ".docid IN (SELECT docid FROM " +
+                    NoteDatabaseHelper.FTS_TABLE_NAME + " WHERE " + NoteDatabaseHelper.FTS_TABLE_NAME +
+                    " MATCH ?) AS " + COLUMN_TITLE_MATCH +
+                    " FROM " + NoteDatabaseHelper.FTS_TABLE_NAME +
+                    " JOIN " + NoteDatabaseHelper.TABLE_NAME + " n ON n." + NoteDatabaseHelper.COLUMN_ID +
+                    " = " + NoteDatabaseHelper.FTS_TABLE_NAME + ".docid" +
+                    " WHERE " + NoteDatabaseHelper.FTS_TABLE_NAME + " MATCH ?" +
+                    " UNION ALL " +
+                    "SELECT n." + NoteDatabaseHelper.COLUMN_ID + ", n." + NoteDatabaseHelper.COLUMN_TITLE + ", NULL, " +
+                    NoteDatabaseHelper.STORED_FTS_TABLE_NAME + ".docid IN (SELECT docid FROM " +
+                    NoteDatabaseHelper.STORED_FTS_TABLE_NAME + " WHERE " + NoteDatabaseHelper.STORED_FTS_TABLE_NAME +
+                    " MATCH ?)" +
+                    " FROM " + NoteDatabaseHelper.STORED_FTS_TABLE_NAME +
+                    " JOIN " + NoteDatabaseHelper.TABLE_NAME + " n ON n." + NoteDatabaseHelper.COLUMN_ID +
+                    " = " + NoteDatabaseHelper.STORED_FTS_TABLE_NAME + ".docid" +
+                    " WHERE " + NoteDatabaseHelper.STORED_FTS_TABLE_NAME + " MATCH ?)" +
+                    " ORDER BY " + COLUMN_TITLE_MATCH + " DESC, " + NoteDatabaseHelper.COLUMN_ID + " DESC" +
+                    " LIMIT ? OFFSET ?";
+
+    private static final String SQL_SELECT_OUTLINE =
+            "SELECT " + NoteDatabaseHelper.COLUMN_ID + ", " + NoteDatabaseHelper.COLUMN_TITLE + ", " +
+                    NoteDatabaseHelper.COLUMN_CONTENT_FORMAT + " FROM " + NoteDatabaseHelper.TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+    private static final String SQL_SELECT_STORED_CONTENT =
+            "SELECT " + NoteDatabaseHelper.COLUMN_CONTENT + ", " + NoteDatabaseHelper.COLUMN_CONTENT_FORMAT +
+                    " FROM " + NoteDatabaseHelper.TABLE_NAME + " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+    private static final String SQL_SELECT_EDITED_SOURCE =
+            "SELECT " + NoteDatabaseHelper.COLUMN_CONTENT + ", " + NoteDatabaseHelper.COLUMN_CONTENT_FORMAT + ", " +
+                    NoteDatabaseHelper.COLUMN_UPDATED_AT + " FROM " + NoteDatabaseHelper.TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+
+    // Instrucciones de los cambios por rango y de su compactación
+    private static final String SQL_SELECT_EDIT_TARGET =
+            "SELECT " + NoteDatabaseHelper.COLUMN_TITLE + ", " + NoteDatabaseHelper.COLUMN_CONTENT_FORMAT + ", " +
+                    NoteDatabaseHelper.COLUMN_UPDATED_AT + " FROM " + NoteDatabaseHelper.TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+    // La huella se calcula al compactar, porque requiere el texto completo
+    private static final String SQL_UPDATE_EDITED =
+            "UPDATE " + NoteDatabaseHelper.TABLE_NAME + " SET " + NoteDatabaseHelper.COLUMN_TITLE + " = ?, " +
+                    NoteDatabaseHelper.COLUMN_CONTENT_HASH + " = NULL, " + NoteDatabaseHelper.COLUMN_UPDATED_AT + " = ?" +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+    private static final String SQL_SELECT_COMPACT_SOURCE =
+            "SELECT " + NoteDatabaseHelper.COLUMN_TITLE + ", " + NoteDatabaseHelper.COLUMN_CONTENT + ", " +
+                    NoteDatabaseHelper.COLUMN_CONTENT_FORMAT + " FROM " + NoteDatabaseHelper.TABLE_NAME +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+    // No modifica la fecha: compactar no cambia el texto de la nota
+    private static final String SQL_COMPACT =
+            "UPDATE " + NoteDatabaseHelper.TABLE_NAME + " SET " +
+                    NoteDatabaseHelper.COLUMN_TITLE + " = ?, " + NoteDatabaseHelper.COLUMN_CONTENT + " = ?, " +
+                    NoteDatabaseHelper.COLUMN_CONTENT_FORMAT + " = ?, " + NoteDatabaseHelper.COLUMN_CONTENT_HASH + " = ?" +
+                    " WHERE " + NoteDatabaseHelper.COLUMN_ID + " = ?";
+
     private SQLiteDatabase database;
     private NoteDatabaseHelper dbHelper;
+    private final QueryMetrics metrics = QueryMetrics.getInstance();
+    // Bloques de la última nota con cambios pendientes que se mostró por bloques (ver getEditedChunks)
+    private volatile EditedChunks editedChunks;
 
     /**
      * Constructor de la clase.
@@ -38,11 +178,21 @@ public class NoteDataSource {
      * @param context Contexto de la aplicación.
      */
     public NoteDataSource(Context context) {
-        dbHelper = new NoteDatabaseHelper(context);
+        dbHelper = NoteDatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * Constructor que usa otra base de datos, para probar las escrituras sin tocar las notas.
+     *
+     * @param dbHelper Base de datos a usar.
+     */
+    @VisibleForTesting
+    NoteDataSource(NoteDatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
     }
 
     /**
-     * Abre la base de datos en modo escritura.
+     * Abre la base de datos en modo escritura. Si la conexión compartida ya está abierta, se reutiliza.
      *
      * @throws SQLException Excepción lanzada en caso de error al abrir la base de datos.
      */
@@ -51,32 +201,945 @@ public class NoteDataSource {
     }
 
     /**
-     * Cierra la base de datos.
+     * Libera la referencia a la base de datos. La conexión es compartida por todo el proceso, por lo
+     * que no se cierra aquí.
      */
     public void close() {
-        dbHelper.close();
+        database = null;
     }
 
     /**
-     * Inserta una nueva nota en la base de datos.
+     * Inserta una nueva nota en la base de datos y publica el cambio en NoteChangeNotifier. Usa la
+     * misma ruta que los lotes, que mantiene los bloques y el índice de búsqueda.
      *
      * @param note Objeto Note que contiene la información de la nota a insertar.
-     * @return El ID de la nueva nota insertada.
+     * @return El ID de la nueva nota insertada, o -1 si falló.
      */
     public long insertNote(Note note) {
-        ContentValues values = new ContentValues();
-        values.put(NoteDatabaseHelper.COLUMN_TITLE, note.getTitle());
-        values.put(NoteDatabaseHelper.COLUMN_CONTENT, note.getContent());
-        return database.insert(NoteDatabaseHelper.TABLE_NAME, null, values);
+        BatchResult result = insertNotes(Collections.singletonList(note));
+        return result.getAffectedRows() > 0 ? note.getId() : -1;
+    }
+
+    /**
+     * Inserta varias notas en una sola transacción, reutilizando una instrucción compilada para cada
+     * fila. SQLite sincroniza el archivo una vez por lote en lugar de una vez por nota. A cada nota
+     * insertada se le asigna su nuevo ID.
+     *
+     * @param notes Notas a insertar.
+     * @return Resumen del lote.
+     */
+    public BatchResult insertNotes(Collection<Note> notes) {
+        return insertNotes(notes, false);
+    }
+
+    /**
+     * Inserta varias notas en una sola transacción, opcionalmente omitiendo las que ya existen con el
+     * mismo título y contenido. Los duplicados se detectan con la huella indexada del contenido, tanto
+     * contra la base de datos como dentro del mismo lote.
+     *
+     * @param notes          Notas a insertar.
+     * @param skipDuplicates True para omitir las notas duplicadas.
+     * @return Resumen del lote; las notas omitidas no cuentan como afectadas.
+     */
+    public BatchResult insertNotes(Collection<Note> notes, boolean skipDuplicates) {
+        long start = System.nanoTime();
+        List<NoteChange> changes = new ArrayList<>(notes.size());
+        Set<String> batchHashes = skipDuplicates ? new HashSet<>() : null;
+        SQLiteStatement statement = database.compileStatement(SQL_INSERT);
+        SQLiteStatement exists = skipDuplicates ? database.compileStatement(SQL_HASH_EXISTS) : null;
+        CompressedSearchIndex searchIndex = new CompressedSearchIndex(database);
+        NoteChunkStore chunkStore = new NoteChunkStore(database);
+        long bytes = 0;
+        database.beginTransaction();
+        try {
+            for (Note note : notes) {
+                String hash = contentHash(note.getTitle(), note.getContent());
+                if (skipDuplicates) {
+                    if (!batchHashes.add(hash)) {
+                        continue;
+                    }
+                    exists.bindString(1, hash);
+                    if (exists.simpleQueryForLong() > 0) {
+                        continue;
+                    }
+                }
+                ContentCodec.Encoded content = ContentCodec.encode(note.getContent());
+                statement.clearBindings();
+                bindText(statement, 1, note.getTitle());
+                content.bind(statement, 2);
+                statement.bindLong(3, content.format);
+                statement.bindString(4, hash);
+                long now = System.currentTimeMillis();
+                statement.bindLong(5, now);
+                statement.bindLong(6, now);
+                long id = statement.executeInsert();
+                if (id != -1) {
+                    if (content.isChunked()) {
+                        chunkStore.write(id, note.getContent());
+                    }
+                    if (!content.isPlain()) {
+                        searchIndex.index(id, note.getTitle(), note.getContent(), false);
+                    }
+                    note.setId(id);
+                    note.setCreatedAt(now);
+                    note.setUpdatedAt(now);
+                    changes.add(new NoteChange(NoteChange.Type.INSERTED, id, note.getTitle(), now));
+                    bytes += textBytes(note.getTitle()) + textBytes(note.getContent());
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            statement.close();
+            searchIndex.close();
+            chunkStore.close();
+            if (exists != null) {
+                exists.close();
+            }
+        }
+        return finishBatch("insertNotes", notes.size(), changes, start, bytes);
+    }
+
+    /**
+     * Actualiza varias notas en una sola transacción, reutilizando una instrucción compilada.
+     *
+     * @param notes Notas con la información actualizada.
+     * @return Resumen del lote; las notas que no existen no cuentan como afectadas.
+     */
+    public BatchResult updateNotes(Collection<Note> notes) {
+        long start = System.nanoTime();
+        List<NoteChange> changes = new ArrayList<>(notes.size());
+        SQLiteStatement statement = database.compileStatement(SQL_UPDATE);
+        CompressedSearchIndex searchIndex = new CompressedSearchIndex(database);
+        NoteChunkStore chunkStore = new NoteChunkStore(database);
+        long bytes = 0;
+        database.beginTransaction();
+        try {
+            for (Note note : notes) {
+                ContentCodec.Encoded content = ContentCodec.encode(note.getContent());
+                boolean reindex = searchIndex.beforeUpdate(note.getId(), content.isPlain());
+                statement.clearBindings();
+                bindText(statement, 1, note.getTitle());
+                content.bind(statement, 2);
+                statement.bindLong(3, content.format);
+                statement.bindString(4, contentHash(note.getTitle(), note.getContent()));
+                long now = System.currentTimeMillis();
+                statement.bindLong(5, now);
+                statement.bindLong(6, note.getId());
+                if (statement.executeUpdateDelete() > 0) {
+                    // Reemplaza los bloques anteriores, o solo los borra si la nota ya no se divide
+                    chunkStore.write(note.getId(), content.isChunked() ? note.getContent() : null);
+                    if (reindex) {
+                        searchIndex.index(note.getId(), note.getTitle(), note.getContent(), content.isPlain());
+                    }
+                    note.setUpdatedAt(now);
+                    changes.add(new NoteChange(NoteChange.Type.UPDATED, note.getId(), note.getTitle(), now));
+                    bytes += textBytes(note.getTitle()) + textBytes(note.getContent());
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            statement.close();
+            searchIndex.close();
+            chunkStore.close();
+        }
+        return finishBatch("updateNotes", notes.size(), changes, start, bytes);
+    }
+
+    /**
+     * Elimina varias notas en una sola transacción, reutilizando una instrucción compilada.
+     *
+     * @param ids IDs de las notas a eliminar.
+     * @return Resumen del lote; los IDs que no existen no cuentan como afectados.
+     */
+    public BatchResult deleteNotes(long[] ids) {
+        long start = System.nanoTime();
+        List<NoteChange> changes = new ArrayList<>(ids.length);
+        SQLiteStatement statement = database.compileStatement(SQL_DELETE);
+        CompressedSearchIndex searchIndex = new CompressedSearchIndex(database);
+        NoteChunkStore chunkStore = new NoteChunkStore(database);
+        database.beginTransaction();
+        try {
+            for (long id : ids) {
+                searchIndex.beforeDelete(id);
+                chunkStore.delete(id);
+                statement.bindLong(1, id);
+                if (statement.executeUpdateDelete() > 0) {
+                    changes.add(new NoteChange(NoteChange.Type.DELETED, id, null, 0));
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            statement.close();
+            searchIndex.close();
+            chunkStore.close();
+        }
+        return finishBatch("deleteNotes", ids.length, changes, start, 0);
+    }
+
+    /**
+     * Indica si una nota con un contenido de este largo se guarda dividida y, por lo tanto, acepta
+     * cambios por rango con applyNoteEdit. Las notas más cortas se deben guardar con updateNote.
+     *
+     * @param contentLength Largo del contenido guardado, en caracteres.
+     * @return True si el contenido se divide en bloques.
+     */
+    public static boolean acceptsNoteEdits(int contentLength) {
+        return contentLength > NoteChunkStore.CHUNK_SIZE;
+    }
+
+    /**
+     * Guarda un cambio por rango en una nota dividida, sin reescribir sus bloques. Si la nota no está
+     * dividida, cambió desde la versión editada o ya tiene demasiados cambios pendientes, no se hace
+     * nada y quien llama debe guardar la nota completa con updateNote.
+     *
+     * @param edit Cambio a guardar.
+     * @return Nueva fecha de modificación de la nota, o 0 si el cambio no se aplicó.
+     * @throws IllegalArgumentException Si el rango no es válido.
+     */
+    public long applyNoteEdit(NoteEdit edit) {
+        if (edit.getStart() < 0 || edit.getEnd() < edit.getStart() || edit.getReplacement() == null) {
+            throw new IllegalArgumentException("Rango de cambio no válido: " + edit.getStart() + ".." + edit.getEnd());
+        }
+        if (edit.getReplacement().length() > MAX_EDIT_LENGTH) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long id = edit.getNoteId();
+        long now;
+        List<NoteChange> changes = new ArrayList<>(1);
+        NoteChunkStore chunkStore = new NoteChunkStore(database);
+        database.beginTransaction();
+        try {
+            String previousTitle;
+            Cursor c = database.rawQuery(SQL_SELECT_EDIT_TARGET, new String[]{String.valueOf(id)});
+            try {
+                if (!c.moveToFirst() || c.getInt(1) != ContentCodec.FORMAT_CHUNKED
+                        || c.getLong(2) != edit.getBaseUpdatedAt()) {
+                    return 0;
+                }
+                previousTitle = c.getString(0);
+            } finally {
+                c.close();
+            }
+            if (NoteChunkStore.countEdits(database, id) >= MAX_PENDING_EDITS) {
+                return 0;
+            }
+
+            chunkStore.appendEdit(id, edit.getStart(), edit.getEnd(), edit.getReplacement(), previousTitle);
+            // La fecha siempre avanza, para que un editor con la versión anterior no aplique sus rangos
+            now = Math.max(System.currentTimeMillis(), edit.getBaseUpdatedAt() + 1);
+            database.execSQL(SQL_UPDATE_EDITED, new Object[]{edit.getTitle(), now, id});
+            changes.add(new NoteChange(NoteChange.Type.UPDATED, id, edit.getTitle(), now));
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            chunkStore.close();
+        }
+        finishBatch("applyNoteEdit", 1, changes, start,
+                textBytes(edit.getTitle()) + textBytes(edit.getReplacement()));
+        return now;
+    }
+
+    /**
+     * Incorpora a los bloques los cambios por rango pendientes de algunas notas. Cada nota se vuelve
+     * a dividir, se calcula su huella y se actualiza su índice de búsqueda. La fecha de modificación
+     * no cambia, por lo que un editor abierto puede seguir guardando cambios por rango. Se debe
+     * llamar en segundo plano hasta que devuelva 0.
+     *
+     * @param maxNotes Cantidad máxima de notas a compactar en esta llamada.
+     * @return Cantidad de notas compactadas, o 0 si no quedan cambios pendientes.
+     */
+    public int compactNoteEdits(int maxNotes) {
+        long[] ids = NoteChunkStore.notesWithEdits(database, maxNotes);
+        if (ids.length == 0) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        SQLiteStatement statement = database.compileStatement(SQL_COMPACT);
+        CompressedSearchIndex searchIndex = new CompressedSearchIndex(database);
+        NoteChunkStore chunkStore = new NoteChunkStore(database);
+        long bytes = 0;
+        database.beginTransaction();
+        try {
+            for (long id : ids) {
+                String title;
+                String content;
+                Cursor c = database.rawQuery(SQL_SELECT_COMPACT_SOURCE, new String[]{String.valueOf(id)});
+                try {
+                    if (!c.moveToFirst()) {
+                        chunkStore.delete(id);
+                        continue;
+                    }
+                    title = c.getString(0);
+                    content = NoteChunkStore.readContent(database, id, c.getInt(2), c, 1);
+                } finally {
+                    c.close();
+                }
+
+                ContentCodec.Encoded encoded = ContentCodec.encode(content);
+                boolean reindex = searchIndex.beforeUpdate(id, encoded.isPlain());
+                statement.clearBindings();
+                bindText(statement, 1, title);
+                encoded.bind(statement, 2);
+                statement.bindLong(3, encoded.format);
+                statement.bindString(4, contentHash(title, content));
+                statement.bindLong(5, id);
+                statement.executeUpdateDelete();
+                // Reemplaza los bloques y descarta el registro, que ya está incluido en el texto
+                chunkStore.write(id, encoded.isChunked() ? content : null);
+                if (reindex) {
+                    searchIndex.index(id, title, content, encoded.isPlain());
+                }
+                bytes += textBytes(title) + textBytes(content);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            statement.close();
+            searchIndex.close();
+            chunkStore.close();
+        }
+        // Los bloques guardados ya incluyen los cambios; no hace falta retener el texto dividido
+        editedChunks = null;
+        metrics.record("compactNoteEdits", start, ids.length, bytes);
+        return ids.length;
+    }
+
+    /**
+     * Procesa un lote del trabajo que las migraciones dejaron pendiente, como completar columnas
+     * nuevas en notas existentes. Cada lote es una transacción corta; se debe llamar en segundo plano
+     * hasta que devuelva 0.
+     *
+     * @param batchSize Cantidad máxima de notas a procesar en esta llamada.
+     * @return Cantidad de notas procesadas, o 0 si no queda trabajo pendiente.
+     */
+    public int runBackfillBatch(int batchSize) {
+        return NoteDatabaseHelper.runBackfillBatch(database, batchSize);
+    }
+
+    /**
+     * Calcula la huella SHA-256 del título y el contenido de una nota.
+     *
+     * @param title   Título de la nota.
+     * @param content Contenido de la nota.
+     * @return Huella en hexadecimal.
+     */
+    public static String contentHash(String title, String content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Todas las implementaciones de Java deben incluir SHA-256
+            throw new IllegalStateException(e);
+        }
+        if (title != null) {
+            digest.update(title.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separador para que ("ab", "c") y ("a", "bc") no produzcan la misma huella
+        digest.update((byte) 0);
+        if (content != null) {
+            digest.update(content.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = Character.forDigit((hash[i] >> 4) & 0xF, 16);
+            hex[i * 2 + 1] = Character.forDigit(hash[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Publica los cambios de un lote ya confirmado y registra su rendimiento. Los cambios se publican
+     * solo después de la transacción para que ningún oyente vea filas que podrían revertirse.
+     */
+    private BatchResult finishBatch(String operation, int requestedRows, List<NoteChange> changes,
+                                    long startNanos, long bytes) {
+        BatchResult result = new BatchResult(requestedRows, changes.size(), System.nanoTime() - startNanos);
+        metrics.record(operation, startNanos, changes.size(), bytes);
+        NoteChangeNotifier.getInstance().notifyChanges(changes);
+        return result;
+    }
+
+    /**
+     * Calcula los bytes que ocupa un texto en memoria, para las métricas.
+     */
+    private static long textBytes(String text) {
+        return text != null ? 2L * text.length() : 0;
+    }
+
+    /**
+     * Registra una lectura en QueryMetrics y, si fue lenta, el plan de su consulta.
+     *
+     * @param sql  Consulta ejecutada; solo se usa si la lectura fue lenta.
+     * @param args Argumentos de la consulta.
+     */
+    private void recordRead(String operation, long start, long rows, long bytes, String sql, String[] args) {
+        if (metrics.record(operation, start, rows, bytes)) {
+            metrics.explain(database, operation, sql, args);
+        }
+    }
+
+    /**
+     * Construye el texto de una consulta hecha con SQLiteDatabase#query, para registrar su plan.
+     */
+    private static String buildQuery(String[] columns, String selection, String orderBy, String limit) {
+        return SQLiteQueryBuilder.buildQueryString(false, NoteDatabaseHelper.TABLE_NAME, columns, selection,
+                null, null, orderBy, limit);
+    }
+
+    /**
+     * Asigna un texto a un parámetro de una instrucción compilada, aceptando null.
+     */
+    private static void bindText(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * Obtiene una página de notas usando paginación por llave sobre la columna _id.
+     *
+     * La consulta utiliza "_id > cursor ORDER BY _id LIMIT n", por lo que SQLite recorre el índice de
+     * la llave primaria directamente y solo lee las filas de la página, sin importar cuántas notas
+     * existan en la tabla.
+     *
+     * @param cursor   Cursor devuelto por la página anterior, o FIRST_PAGE_CURSOR para la primera.
+     * @param pageSize Cantidad máxima de notas a devolver.
+     * @return Página con las notas y el cursor para pedir la siguiente.
+     */
+    public NotePage<Note> getNotesPage(long cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize debe ser mayor que cero: " + pageSize);
+        }
+        long start = System.nanoTime();
+        long bytes = 0;
+        List<Note> notes = new ArrayList<>(pageSize);
+        String selection = NoteDatabaseHelper.COLUMN_ID + " > ?";
+        String[] selectionArgs = {String.valueOf(cursor)};
+        String orderBy = NoteDatabaseHelper.COLUMN_ID + " ASC";
+        // Se pide una fila extra solo para saber si existe una página siguiente
+        String limit = String.valueOf(pageSize + 1);
+
+        Cursor c = database.query(
+                NoteDatabaseHelper.TABLE_NAME,
+                null,
+                selection,
+                selectionArgs,
+                null,
+                null,
+                orderBy,
+                limit
+        );
+
+        boolean hasMore = false;
+        try {
+            int idIndex = c.getColumnIndexOrThrow(NoteDatabaseHelper.COLUMN_ID);
+            int titleIndex = c.getColumnIndexOrThrow(NoteDatabaseHelper.COLUMN_TITLE);
+            int contentIndex = c.getColumnIndexOrThrow(NoteDatabaseHelper.COLUMN_CONTENT);
+            int formatIndex = c.getColumnIndexOrThrow(NoteDatabaseHelper.COLUMN_CONTENT_FORMAT);
+
+            while (c.moveToNext()) {
+                if (notes.size() == pageSize) {
+                    hasMore = true;
+                    break;
+                }
+                Note note = new Note();
+                note.setId(c.getLong(idIndex));
+                note.setTitle(c.getString(titleIndex));
+                note.setContent(NoteChunkStore.readContent(database, note.getId(), c.getInt(formatIndex), c,
+                        contentIndex));
+                notes.add(note);
+                bytes += textBytes(note.getTitle()) + textBytes(note.getContent());
+            }
+        } finally {
+            c.close();
+        }
+        if (metrics.record("getNotesPage", start, notes.size(), bytes)) {
+            metrics.explain(database, "getNotesPage", buildQuery(null, selection, orderBy, limit), selectionArgs);
+        }
+
+        long nextCursor = hasMore ? notes.get(notes.size() - 1).getId() : NotePage.END_OF_LIST;
+        return new NotePage<>(notes, nextCursor);
+    }
+
+    /**
+     * Interfaz que recibe las notas, una por una, al recorrer la tabla con forEachNote.
+     */
+    public interface NoteRowHandler {
+        void onNote(long id, String title, String content) throws IOException;
+    }
+
+    /**
+     * Recorre una página de notas completas entregando cada fila directamente desde el Cursor, sin
+     * crear objetos Note ni listas. Permite procesar toda la tabla con memoria constante llamando
+     * al método con el cursor devuelto hasta recibir END_OF_LIST.
+     *
+     * @param cursor   Cursor devuelto por la llamada anterior, o FIRST_PAGE_CURSOR para la primera.
+     * @param pageSize Cantidad máxima de notas a recorrer en esta llamada.
+     * @param handler  Receptor de cada nota.
+     * @return Cursor para recorrer la siguiente página, o END_OF_LIST si no hay más notas.
+     * @throws IOException Si el receptor falla al procesar una nota.
+     */
+    public long forEachNote(long cursor, int pageSize, NoteRowHandler handler) throws IOException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize debe ser mayor que cero: " + pageSize);
+        }
+        long start = System.nanoTime();
+        long bytes = 0;
+        String[] columns = {
+                NoteDatabaseHelper.COLUMN_ID,
+                NoteDatabaseHelper.COLUMN_TITLE,
+                NoteDatabaseHelper.COLUMN_CONTENT,
+                NoteDatabaseHelper.COLUMN_CONTENT_FORMAT};
+        String selection = NoteDatabaseHelper.COLUMN_ID + " > ?";
+        String[] selectionArgs = {String.valueOf(cursor)};
+        String orderBy = NoteDatabaseHelper.COLUMN_ID + " ASC";
+        String limit = String.valueOf(pageSize);
+        Cursor c = database.query(
+                NoteDatabaseHelper.TABLE_NAME,
+                columns,
+                selection,
+                selectionArgs,
+                null,
+                null,
+                orderBy,
+                limit
+        );
+
+        long lastId = NotePage.END_OF_LIST;
+        int rows = 0;
+        try {
+            while (c.moveToNext()) {
+                lastId = c.getLong(0);
+                String title = c.getString(1);
+                String content = NoteChunkStore.readContent(database, lastId, c.getInt(3), c, 2);
+                handler.onNote(lastId, title, content);
+                bytes += textBytes(title) + textBytes(content);
+                rows++;
+            }
+        } finally {
+            c.close();
+        }
+        // El tiempo incluye el del receptor, por ejemplo escribir la nota en un respaldo
+        if (metrics.record("forEachNote", start, rows, bytes)) {
+            metrics.explain(database, "forEachNote", buildQuery(columns, selection, orderBy, limit), selectionArgs);
+        }
+        return rows == pageSize ? lastId : NotePage.END_OF_LIST;
+    }
+
+    /**
+     * Cuenta las notas almacenadas.
+     *
+     * @return Cantidad de notas.
+     */
+    public long getNoteCount() {
+        long start = System.nanoTime();
+        long count = DatabaseUtils.queryNumEntries(database, NoteDatabaseHelper.TABLE_NAME);
+        recordRead("getNoteCount", start, 1, 0, "SELECT COUNT(*) FROM " + NoteDatabaseHelper.TABLE_NAME, null);
+        return count;
+    }
+
+    /**
+     * Obtiene una página de resúmenes de notas para la pantalla de lista.
+     *
+     * Solo se proyectan las columnas necesarias; la columna de contenido nunca se lee completa, por
+     * lo que SQLite no necesita cargar las páginas de desbordamiento de las notas grandes. Las notas
+     * guardadas comprimidas no tienen fragmento, porque obtenerlo requeriría descomprimirlas.
+     *
+     * Cada orden se resuelve con su índice: la condición sobre la llave de la última fila cargada
+     * permite que SQLite empiece a leer el índice justo después de ella, sin ordenar ni saltar filas.
+     *
+     * @param order          Orden de la lista.
+     * @param after          Última fila de la página anterior tal como se leyó, o null para la primera.
+     * @param pageSize       Cantidad máxima de resúmenes a devolver.
+     * @param includeSnippet True para incluir los primeros SNIPPET_LENGTH caracteres del contenido.
+     * @return Página con los resúmenes; el cursor es el ID de la última fila, o END_OF_LIST.
+     */
+    public NotePage<NoteSummary> getNoteSummariesPage(NoteSortOrder order, NoteSummary after, int pageSize,
+                                                      boolean includeSnippet) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize debe ser mayor que cero: " + pageSize);
+        }
+        long start = System.nanoTime();
+        long bytes = 0;
+        List<String> projection = new ArrayList<>(4);
+        projection.add(NoteDatabaseHelper.COLUMN_ID);
+        projection.add(NoteDatabaseHelper.COLUMN_TITLE);
+        if (order == NoteSortOrder.UPDATED) {
+            // Solo este orden necesita la fecha; así el índice de título sigue cubriendo su consulta
+            projection.add(NoteDatabaseHelper.COLUMN_UPDATED_AT);
+        }
+        if (includeSnippet) {
+            projection.add("CASE WHEN " + NoteDatabaseHelper.COLUMN_CONTENT_FORMAT + " = " + ContentCodec.FORMAT_PLAIN
+                    + " THEN substr(" + NoteDatabaseHelper.COLUMN_CONTENT + ", 1, " + SNIPPET_LENGTH + ") END AS "
+                    + COLUMN_SNIPPET);
+        }
+
+        String id = NoteDatabaseHelper.COLUMN_ID;
+        String selection = null;
+        String[] selectionArgs = null;
+        String orderBy;
+        switch (order) {
+            case UPDATED:
+                String updatedAt = NoteDatabaseHelper.COLUMN_UPDATED_AT;
+                orderBy = updatedAt + " DESC, " + id + " ASC";
+                if (after != null) {
+                    selection = updatedAt + " <= ? AND (" + updatedAt + " < ? OR " + id + " > ?)";
+                    String key = String.valueOf(after.getUpdatedAt());
+                    selectionArgs = new String[]{key, key, String.valueOf(after.getId())};
+                }
+                break;
+            case TITLE:
+                String title = NoteDatabaseHelper.COLUMN_TITLE + " COLLATE NOCASE";
+                orderBy = title + " ASC, " + id + " ASC";
+                if (after != null && after.getTitle() == null) {
+                    // Los títulos nulos van primero; no hay una llave con la que comparar el resto
+                    selection = "(" + NoteDatabaseHelper.COLUMN_TITLE + " IS NULL AND " + id + " > ?) OR "
+                            + NoteDatabaseHelper.COLUMN_TITLE + " IS NOT NULL";
+                    selectionArgs = new String[]{String.valueOf(after.getId())};
+                } else if (after != null) {
+                    selection = title + " >= ? AND (" + title + " > ? OR " + id + " > ?)";
+                    selectionArgs = new String[]{after.getTitle(), after.getTitle(), String.valueOf(after.getId())};
+                }
+                break;
+            default:
+                orderBy = id + " ASC";
+                if (after != null) {
+                    selection = id + " > ?";
+                    selectionArgs = new String[]{String.valueOf(after.getId())};
+                }
+                break;
+        }
+
+        List<NoteSummary> summaries = new ArrayList<>(pageSize);
+        String[] columns = projection.toArray(new String[0]);
+        String limit = String.valueOf(pageSize + 1);
+        Cursor c = database.query(
+                NoteDatabaseHelper.TABLE_NAME,
+                columns,
+                selection,
+                selectionArgs,
+                null,
+                null,
+                orderBy,
+                limit
+        );
+
+        boolean hasMore = false;
+        try {
+            int idIndex = c.getColumnIndexOrThrow(NoteDatabaseHelper.COLUMN_ID);
+            int titleIndex = c.getColumnIndexOrThrow(NoteDatabaseHelper.COLUMN_TITLE);
+            int updatedAtIndex = c.getColumnIndex(NoteDatabaseHelper.COLUMN_UPDATED_AT);
+            int snippetIndex = includeSnippet ? c.getColumnIndexOrThrow(COLUMN_SNIPPET) : -1;
+
+            while (c.moveToNext()) {
+                if (summaries.size() == pageSize) {
+                    hasMore = true;
+                    break;
+                }
+                String title = c.getString(titleIndex);
+                String snippet = snippetIndex >= 0 ? c.getString(snippetIndex) : null;
+                long updated = updatedAtIndex >= 0 ? c.getLong(updatedAtIndex) : 0;
+                summaries.add(new NoteSummary(c.getLong(idIndex), title, snippet, updated));
+                bytes += textBytes(title) + textBytes(snippet);
+            }
+        } finally {
+            c.close();
+        }
+        if (metrics.record("getNoteSummariesPage", start, summaries.size(), bytes)) {
+            metrics.explain(database, "getNoteSummariesPage", buildQuery(columns, selection, orderBy, limit),
+                    selectionArgs);
+        }
+
+        long nextCursor = hasMore ? summaries.get(summaries.size() - 1).getId() : NotePage.END_OF_LIST;
+        return new NotePage<>(summaries, nextCursor);
+    }
+
+    /**
+     * Busca notas por título y contenido usando el índice de texto completo.
+     *
+     * Cada palabra de la consulta se busca como prefijo y todas deben aparecer en la nota. Los
+     * resultados se ordenan por relevancia (primero las coincidencias en el título), por lo que el
+     * cursor de esta consulta es la posición del primer resultado de la página y no un ID.
+     *
+     * @param query    Texto escrito por el usuario.
+     * @param cursor   Cursor devuelto por la página anterior, o FIRST_PAGE_CURSOR para la primera.
+     * @param pageSize Cantidad máxima de resultados a devolver.
+     * @return Página de resúmenes con fragmentos del contenido donde los términos encontrados están
+     *         rodeados por HIGHLIGHT_START y HIGHLIGHT_END.
+     */
+    public NotePage<NoteSummary> searchNotes(String query, long cursor, int pageSize) {
+        return searchNotes(query, cursor, pageSize, null);
+    }
+
+    /**
+     * Busca notas igual que {@link #searchNotes(String, long, int)}, permitiendo cancelar la
+     * consulta mientras se ejecuta.
+     *
+     * @param query    Texto escrito por el usuario.
+     * @param cursor   Cursor devuelto por la página anterior, o FIRST_PAGE_CURSOR para la primera.
+     * @param pageSize Cantidad máxima de resultados a devolver.
+     * @param signal   Señal para cancelar la consulta, o null.
+     * @return Página de resúmenes con fragmentos resaltados.
+     * @throws android.os.OperationCanceledException Si la señal se canceló antes o durante la consulta.
+     */
+    public NotePage<NoteSummary> searchNotes(String query, long cursor, int pageSize,
+                                             CancellationSignal signal) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize debe ser mayor que cero: " + pageSize);
+        }
+        String match = toMatchExpression(query, null);
+        List<NoteSummary> results = new ArrayList<>();
+        if (match == null) {
+            return new NotePage<>(results, NotePage.END_OF_LIST);
+        }
+        long start = System.nanoTime();
+        long bytes = 0;
+        String titleMatch = toMatchExpression(query, NoteDatabaseHelper.COLUMN_TITLE);
+        String[] selectionArgs = {
+                titleMatch,
+                match,
+                titleMatch,
+                match,
+                String.valueOf(pageSize + 1),
+                String.valueOf(cursor)};
+
+        boolean hasMore = false;
+        Cursor c = database.rawQuery(SQL_SEARCH, selectionArgs, signal);
+        try {
+            while (c.moveToNext()) {
+                if (results.size() == pageSize) {
+                    hasMore = true;
+                    break;
+                }
+                String title = c.getString(1);
+                String snippet = c.getString(2);
+                results.add(new NoteSummary(c.getLong(0), title, snippet));
+                bytes += textBytes(title) + textBytes(snippet);
+            }
+        } finally {
+            c.close();
+        }
+        recordRead("searchNotes", start, results.size(), bytes, SQL_SEARCH, selectionArgs);
+
+        long nextCursor = hasMore ? cursor + pageSize : NotePage.END_OF_LIST;
+        return new NotePage<>(results, nextCursor);
+    }
+
+    /**
+     * Convierte el texto escrito por el usuario en una expresión MATCH de FTS4. Se descartan los
+     * operadores y signos de puntuación para que ninguna entrada produzca un error de sintaxis, y
+     * cada palabra se busca como prefijo.
+     *
+     * @param query  Texto escrito por el usuario.
+     * @param column Columna a la que se limita la búsqueda, o null para buscar en todas.
+     * @return Expresión MATCH, o null si la consulta no contiene palabras.
+     */
+    static String toMatchExpression(String query, String column) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= query.length(); i++) {
+            char ch = i < query.length() ? query.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(ch)) {
+                // En minúsculas para que AND, OR y NOT no se interpreten como operadores
+                term.append(Character.toLowerCase(ch));
+            } else if (term.length() > 0) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                if (column != null) {
+                    match.append(column).append(':');
+                }
+                match.append(term).append('*');
+                term.setLength(0);
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    /**
+     * Obtiene una nota completa, incluyendo su contenido, a partir de su ID. Es el único punto en el
+     * que se descomprime el contenido al abrir una nota.
+     *
+     * @param id ID de la nota.
+     * @return La nota encontrada, o null si no existe.
+     */
+    public Note getNoteById(long id) {
+        long start = System.nanoTime();
+        String[] columns = {
+                NoteDatabaseHelper.COLUMN_ID,
+                NoteDatabaseHelper.COLUMN_TITLE,
+                NoteDatabaseHelper.COLUMN_CONTENT,
+                NoteDatabaseHelper.COLUMN_CREATED_AT,
+                NoteDatabaseHelper.COLUMN_UPDATED_AT,
+                NoteDatabaseHelper.COLUMN_CONTENT_FORMAT};
+        String selection = NoteDatabaseHelper.COLUMN_ID + "=?";
+        String[] selectionArgs = {String.valueOf(id)};
+        Cursor c = database.query(
+                NoteDatabaseHelper.TABLE_NAME,
+                columns,
+                selection,
+                selectionArgs,
+                null,
+                null,
+                null
+        );
+
+        Note note = null;
+        try {
+            if (c.moveToFirst()) {
+                note = new Note();
+                note.setId(c.getLong(0));
+                note.setTitle(c.getString(1));
+                note.setContent(NoteChunkStore.readContent(database, note.getId(), c.getInt(5), c, 2));
+                note.setCreatedAt(c.getLong(3));
+                note.setUpdatedAt(c.getLong(4));
+            }
+        } finally {
+            c.close();
+        }
+        long bytes = note != null ? textBytes(note.getTitle()) + textBytes(note.getContent()) : 0;
+        if (metrics.record("getNoteById", start, note != null ? 1 : 0, bytes)) {
+            metrics.explain(database, "getNoteById", buildQuery(columns, selection, null, null), selectionArgs);
+        }
+        return note;
+    }
+
+    /**
+     * Obtiene el título de una nota y la cantidad de bloques de su contenido, sin leer el contenido.
+     * Una nota que no está dividida tiene un solo bloque. Si una nota dividida tiene cambios por rango
+     * sin compactar, los bloques se calculan sobre su texto completo.
+     *
+     * @param id ID de la nota.
+     * @return Resumen de la nota, o null si no existe.
+     */
+    public NoteOutline getNoteOutline(long id) {
+        long start = System.nanoTime();
+        String[] selectionArgs = {String.valueOf(id)};
+        NoteOutline outline = null;
+        Cursor c = database.rawQuery(SQL_SELECT_OUTLINE, selectionArgs);
+        try {
+            if (c.moveToFirst()) {
+                int chunkCount = 1;
+                if (c.getInt(2) == ContentCodec.FORMAT_CHUNKED) {
+                    List<String> edited = getEditedChunks(id);
+                    chunkCount = edited != null ? edited.size() : NoteChunkStore.countChunks(database, id);
+                }
+                outline = new NoteOutline(id, c.getString(1), chunkCount);
+            }
+        } finally {
+            c.close();
+        }
+        recordRead("getNoteOutline", start, outline != null ? 1 : 0,
+                outline != null ? textBytes(outline.getTitle()) : 0, SQL_SELECT_OUTLINE, selectionArgs);
+        return outline;
+    }
+
+    /**
+     * Obtiene un bloque del contenido de una nota, leyendo solo la fila de ese bloque.
+     *
+     * @param id    ID de la nota.
+     * @param index Número del bloque, desde 0, menor que NoteOutline#getChunkCount().
+     * @return Texto del bloque, o null si la nota o el bloque no existen.
+     */
+    public String getNoteChunk(long id, int index) {
+        // El bloque puede salir de varias consultas, por lo que solo se registra el tiempo total
+        long start = System.nanoTime();
+        String chunk = readNoteChunk(id, index);
+        metrics.record("getNoteChunk", start, chunk != null ? 1 : 0, textBytes(chunk));
+        return chunk;
+    }
+
+    private String readNoteChunk(long id, int index) {
+        List<String> edited = getEditedChunks(id);
+        if (edited != null) {
+            return index < edited.size() ? edited.get(index) : null;
+        }
+        String chunk = NoteChunkStore.readChunk(database, id, index);
+        if (chunk != null || index != 0) {
+            return chunk;
+        }
+        // Las notas que no están divididas tienen todo su contenido en un único bloque
+        Cursor c = database.rawQuery(SQL_SELECT_STORED_CONTENT, new String[]{String.valueOf(id)});
+        try {
+            if (!c.moveToFirst() || c.getInt(1) == ContentCodec.FORMAT_CHUNKED) {
+                return null;
+            }
+            return ContentCodec.decode(c.getInt(1), c, 0);
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * Obtiene los bloques de una nota dividida que tiene cambios por rango sin compactar. Los bloques
+     * guardados todavía no incluyen los cambios, por lo que se divide el texto completo igual que lo
+     * hará la compactación y los números de bloque no cambian. El resultado se conserva para la
+     * última nota: al mostrarla, el texto se divide una vez al leer su resumen y no una vez por
+     * bloque. Cada cambio por rango avanza la fecha de modificación, así que una entrada con la misma
+     * fecha sigue vigente.
+     *
+     * @param id ID de la nota.
+     * @return Bloques del texto con los cambios, o null si la nota no tiene cambios pendientes.
+     */
+    private List<String> getEditedChunks(long id) {
+        if (NoteChunkStore.countEdits(database, id) == 0) {
+            return null;
+        }
+        Cursor c = database.rawQuery(SQL_SELECT_EDITED_SOURCE, new String[]{String.valueOf(id)});
+        try {
+            if (!c.moveToFirst()) {
+                return Collections.emptyList();
+            }
+            long updatedAt = c.getLong(2);
+            EditedChunks cached = editedChunks;
+            if (cached != null && cached.noteId == id && cached.updatedAt == updatedAt) {
+                return cached.chunks;
+            }
+            List<String> chunks = NoteChunkStore.split(NoteChunkStore.readContent(database, id, c.getInt(1), c, 0));
+            editedChunks = new EditedChunks(id, updatedAt, chunks);
+            return chunks;
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * Bloques de una nota con cambios pendientes, válidos mientras su fecha de modificación no cambie.
+     */
+    private static final class EditedChunks {
+        final long noteId;
+        final long updatedAt;
+        final List<String> chunks;
+
+        EditedChunks(long noteId, long updatedAt, List<String> chunks) {
+            this.noteId = noteId;
+            this.updatedAt = updatedAt;
+            this.chunks = chunks;
+        }
     }
 
     /**
      * Obtiene todas las notas almacenadas en la base de datos.
      *
      * @return Lista de objetos Note que representan todas las notas.
+     * @deprecated Carga la tabla completa en memoria; utilizar {@link #getNotesPage(long, int)}.
      */
+    @Deprecated
     public List<Note> getAllNotes() {
+        long start = System.nanoTime();
+        long bytes = 0;
         List<Note> notes = new ArrayList<>();
+        String orderBy = NoteDatabaseHelper.COLUMN_ID + " ASC";
         Cursor cursor = database.query(
                 NoteDatabaseHelper.TABLE_NAME,
                 null,
@@ -84,13 +1147,15 @@ public class NoteDataSource {
                 null,
                 null,
                 null,
-                null
+                orderBy
         );
 
         while (cursor.moveToNext()) {
             long id = cursor.getLong(cursor.getColumnIndex(NoteDatabaseHelper.COLUMN_ID));
             String title = cursor.getString(cursor.getColumnIndex(NoteDatabaseHelper.COLUMN_TITLE));
-            String content = cursor.getString(cursor.getColumnIndex(NoteDatabaseHelper.COLUMN_CONTENT));
+            String content = NoteChunkStore.readContent(database, id,
+                    cursor.getInt(cursor.getColumnIndex(NoteDatabaseHelper.COLUMN_CONTENT_FORMAT)),
+                    cursor, cursor.getColumnIndex(NoteDatabaseHelper.COLUMN_CONTENT));
 
             Note note = new Note();
             note.setId(id);
@@ -98,28 +1163,24 @@ public class NoteDataSource {
             note.setContent(content);
 
             notes.add(note);
+            bytes += textBytes(title) + textBytes(content);
         }
 
         cursor.close();
+        if (metrics.record("getAllNotes", start, notes.size(), bytes)) {
+            metrics.explain(database, "getAllNotes", buildQuery(null, null, orderBy, null), null);
+        }
         return notes;
     }
 
     /**
-     * Actualiza una nota existente en la base de datos.
+     * Actualiza una nota existente en la base de datos y publica el cambio en NoteChangeNotifier.
      *
      * @param note Objeto Note que contiene la información actualizada de la nota.
-     * @return True si la actualización fue exitosa, false en caso contrario.
+     * @return True si la nota existía y fue actualizada, false en caso contrario.
      */
     public boolean updateNote(Note note) {
-        ContentValues values = new ContentValues();
-        values.put(NoteDatabaseHelper.COLUMN_TITLE, note.getTitle());
-        values.put(NoteDatabaseHelper.COLUMN_CONTENT, note.getContent());
-
-        String whereClause = NoteDatabaseHelper.COLUMN_ID + "=?";
-        String[] whereArgs = {String.valueOf(note.getId())};
-
-        database.update(NoteDatabaseHelper.TABLE_NAME, values, whereClause, whereArgs);
-        return true;
+        return updateNotes(Collections.singletonList(note)).getAffectedRows() > 0;
     }
 
     /**
@@ -128,12 +1189,15 @@ public class NoteDataSource {
      * @param note Objeto Note que representa la nota a eliminar.
      */
     public void deleteNote(Note note) {
-        String whereClause = NoteDatabaseHelper.COLUMN_ID + "=?";
-        String[] whereArgs = {String.valueOf(note.getId())};
+        deleteNote(note.getId());
+    }
 
-        database.delete(NoteDatabaseHelper.TABLE_NAME, whereClause, whereArgs);
+    /**
+     * Elimina una nota de la base de datos a partir de su ID y publica el cambio en NoteChangeNotifier.
+     *
+     * @param id ID de la nota a eliminar.
+     */
+    public void deleteNote(long id) {
+        deleteNotes(new long[]{id});
     }
 }
-
-
-
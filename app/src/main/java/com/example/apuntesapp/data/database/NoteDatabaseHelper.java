@@ -1,8 +1,17 @@
 package com.example.apuntesapp.data.database;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Clase que actúa como un ayudante para gestionar la creación y actualización de la base de datos
@@ -24,33 +33,404 @@ import android.database.sqlite.SQLiteOpenHelper;
  * - Custom Views: Esta clase no es una vista personalizada, sino una utilidad para la gestión de la
  *   base de datos. Sin embargo, al manejar la persistencia de datos, puede ser crucial para el
  *   soporte de vistas personalizadas que muestran datos almacenados.
+ *
+ * - Migraciones: onCreate crea directamente el esquema más reciente. onUpgrade nunca borra tablas;
+ *   ejecuta en orden los pasos de MIGRATIONS que separan la versión instalada de la actual, cada uno
+ *   en su propia transacción.
  */
 public class NoteDatabaseHelper extends SQLiteOpenHelper {
 
-    // Define el nombre y la versión de la base de datos
+    private static final String TAG = "NoteDatabaseHelper";
+
+    // Define el nombre y la versión de la base de datos. Al aumentar la versión se debe agregar el
+    // paso correspondiente al final de MIGRATIONS.
     private static final String DATABASE_NAME = "notes.db";
-    private static final int DATABASE_VERSION = 1;
+    static final int DATABASE_VERSION = 8;
 
     // Define el nombre de la tabla y las columnas
     public static final String TABLE_NAME = "notes";
     public static final String COLUMN_ID = "_id";
     public static final String COLUMN_TITLE = "title";
     public static final String COLUMN_CONTENT = "content";
+    // Huella SHA-256 del título y el contenido, usada para detectar notas duplicadas al importar
+    public static final String COLUMN_CONTENT_HASH = "content_hash";
+    // Fechas de creación y de última modificación en milisegundos, mantenidas por NoteDataSource.
+    // Las notas creadas antes de la versión 4 tienen 0 porque sus fechas reales no se conocen.
+    public static final String COLUMN_CREATED_AT = "created_at";
+    public static final String COLUMN_UPDATED_AT = "updated_at";
+    // Forma en que está guardado el contenido (ver ContentCodec). Las notas anteriores a la versión
+    // 5 quedan en 0, texto plano, y se comprimen la próxima vez que se guardan.
+    public static final String COLUMN_CONTENT_FORMAT = "content_format";
 
     // Define la instrucción SQL para crear la tabla
     private static final String SQL_CREATE_TABLE =
             "CREATE TABLE " + TABLE_NAME + " (" +
                     COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
                     COLUMN_TITLE + " TEXT," +
-                    COLUMN_CONTENT + " TEXT)";
+                    COLUMN_CONTENT + " TEXT," +
+                    COLUMN_CONTENT_HASH + " TEXT," +
+                    COLUMN_CREATED_AT + " INTEGER NOT NULL DEFAULT 0," +
+                    COLUMN_UPDATED_AT + " INTEGER NOT NULL DEFAULT 0," +
+                    COLUMN_CONTENT_FORMAT + " INTEGER NOT NULL DEFAULT 0)";
+
+    private static final String SQL_ADD_CONTENT_HASH_COLUMN =
+            "ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_CONTENT_HASH + " TEXT";
+
+    private static final String SQL_CREATE_CONTENT_HASH_INDEX =
+            "CREATE INDEX " + TABLE_NAME + "_" + COLUMN_CONTENT_HASH + " ON " + TABLE_NAME +
+                    " (" + COLUMN_CONTENT_HASH + ")";
+
+    // Con un valor por defecto constante, SQLite agrega la columna sin reescribir las filas existentes
+    private static final String SQL_ADD_CREATED_AT_COLUMN =
+            "ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_CREATED_AT + " INTEGER NOT NULL DEFAULT 0";
+    private static final String SQL_ADD_UPDATED_AT_COLUMN =
+            "ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_UPDATED_AT + " INTEGER NOT NULL DEFAULT 0";
+
+    private static final String SQL_ADD_CONTENT_FORMAT_COLUMN =
+            "ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_CONTENT_FORMAT + " INTEGER NOT NULL DEFAULT 0";
+
+    // Tabla hija con el contenido de las notas largas dividido en bloques (ver NoteChunkStore). Usa
+    // la misma columna de contenido y de formato que la tabla de notas. Las filas se borran
+    // explícitamente junto con su nota, porque las llaves foráneas no están activadas.
+    public static final String CHUNKS_TABLE_NAME = "note_chunks";
+    public static final String COLUMN_NOTE_ID = "note_id";
+    // Número del bloque dentro de la nota, desde 0
+    public static final String COLUMN_SEQ = "seq";
+
+    // Los bloques ocupan varios KB, por lo que se guardan en una tabla con rowid y el índice único
+    // solo contiene la llave; leer un bloque es una búsqueda en el índice y otra en la tabla
+    private static final String SQL_CREATE_CHUNKS_TABLE =
+            "CREATE TABLE " + CHUNKS_TABLE_NAME + " (" +
+                    COLUMN_ID + " INTEGER PRIMARY KEY," +
+                    COLUMN_NOTE_ID + " INTEGER NOT NULL," +
+                    COLUMN_SEQ + " INTEGER NOT NULL," +
+                    COLUMN_CONTENT + " TEXT," +
+                    COLUMN_CONTENT_FORMAT + " INTEGER NOT NULL DEFAULT 0)";
+    private static final String SQL_CREATE_CHUNKS_INDEX =
+            "CREATE UNIQUE INDEX " + CHUNKS_TABLE_NAME + "_" + COLUMN_NOTE_ID + " ON " + CHUNKS_TABLE_NAME +
+                    " (" + COLUMN_NOTE_ID + ", " + COLUMN_SEQ + ")";
+
+    // Registro de los cambios guardados por rango en notas divididas (ver NoteChunkStore). Cada fila
+    // reemplaza el rango [range_start, range_end) del texto que resulta de aplicar las filas
+    // anteriores de la misma nota. previous_title guarda el título que tenía la nota antes del
+    // cambio.
+    public static final String EDITS_TABLE_NAME = "note_edits";
+    public static final String COLUMN_RANGE_START = "range_start";
+    public static final String COLUMN_RANGE_END = "range_end";
+    public static final String COLUMN_REPLACEMENT = "replacement";
+    public static final String COLUMN_PREVIOUS_TITLE = "previous_title";
+
+    private static final String SQL_CREATE_EDITS_TABLE =
+            "CREATE TABLE " + EDITS_TABLE_NAME + " (" +
+                    COLUMN_ID + " INTEGER PRIMARY KEY," +
+                    COLUMN_NOTE_ID + " INTEGER NOT NULL," +
+                    COLUMN_RANGE_START + " INTEGER NOT NULL," +
+                    COLUMN_RANGE_END + " INTEGER NOT NULL," +
+                    COLUMN_REPLACEMENT + " TEXT," +
+                    COLUMN_PREVIOUS_TITLE + " TEXT)";
+    // Cada entrada del índice incluye el rowid, por lo que las filas de una nota se recorren en el
+    // orden en que se guardaron sin ordenar
+    private static final String SQL_CREATE_EDITS_INDEX =
+            "CREATE INDEX " + EDITS_TABLE_NAME + "_" + COLUMN_NOTE_ID + " ON " + EDITS_TABLE_NAME +
+                    " (" + COLUMN_NOTE_ID + ")";
+
+    // IDs de las notas que existían al actualizar a la versión 6 y todavía no se revisan para
+    // dividirlas. La tabla se borra cuando queda vacía.
+    private static final String CHUNK_BACKFILL_TABLE = "note_chunks_pending";
+
+    private static final String SQL_SELECT_CHUNK_BACKFILL_TABLE =
+            "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = '" + CHUNK_BACKFILL_TABLE + "'";
+    private static final String SQL_SELECT_CHUNK_BACKFILL_IDS =
+            "SELECT " + COLUMN_ID + " FROM " + CHUNK_BACKFILL_TABLE + " ORDER BY " + COLUMN_ID + " LIMIT ?";
+
+    // Índices que resuelven los órdenes de la lista sin ordenar en memoria. El de fecha incluye el
+    // título para que la consulta de resúmenes se responda solo con el índice; el de título ya
+    // contiene el ID, porque SQLite guarda el rowid en cada entrada.
+    private static final String INDEX_UPDATED_AT = TABLE_NAME + "_" + COLUMN_UPDATED_AT;
+    private static final String INDEX_TITLE = TABLE_NAME + "_" + COLUMN_TITLE;
+
+    private static final String SQL_CREATE_UPDATED_AT_INDEX =
+            "CREATE INDEX IF NOT EXISTS " + INDEX_UPDATED_AT + " ON " + TABLE_NAME +
+                    " (" + COLUMN_UPDATED_AT + " DESC, " + COLUMN_ID + ", " + COLUMN_TITLE + ")";
+    private static final String SQL_CREATE_TITLE_INDEX =
+            "CREATE INDEX IF NOT EXISTS " + INDEX_TITLE + " ON " + TABLE_NAME +
+                    " (" + COLUMN_TITLE + " COLLATE NOCASE)";
+
+    private static final String SQL_COUNT_INDEXES =
+            "SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' AND name IN (?, ?)";
+
+    // Tabla virtual FTS4 que indexa el título y el contenido. Usa la tabla de notas como contenido
+    // externo, por lo que el texto no se duplica: solo se guarda el índice invertido.
+    public static final String FTS_TABLE_NAME = "notes_fts";
+
+    private static final String SQL_CREATE_FTS_TABLE =
+            "CREATE VIRTUAL TABLE " + FTS_TABLE_NAME + " USING fts4(" +
+                    "content=\"" + TABLE_NAME + "\", " +
+                    COLUMN_TITLE + ", " +
+                    COLUMN_CONTENT + ", " +
+                    "tokenize=unicode61)";
+
+    // IDs de las notas que existían al actualizar a la versión 2 o a la 8 y todavía no se indexan
+    // en FTS_TABLE_NAME. La tabla se borra cuando queda vacía.
+    private static final String FTS_BACKFILL_TABLE = "notes_fts_pending";
+
+    private static final String SQL_SELECT_FTS_BACKFILL_TABLE =
+            "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = '" + FTS_BACKFILL_TABLE + "'";
+    private static final String SQL_SELECT_FTS_BACKFILL_IDS =
+            "SELECT " + COLUMN_ID + " FROM " + FTS_BACKFILL_TABLE + " ORDER BY " + COLUMN_ID + " LIMIT ?";
+
+    // Tabla FTS4 con su propia copia del texto, para las notas comprimidas o divididas (ver
+    // CompressedSearchIndex). FTS4 no puede leer esas filas de la tabla de notas, y al guardar el
+    // texto indexado una nota se quita del índice solo con su docid.
+    public static final String STORED_FTS_TABLE_NAME = "notes_fts_stored";
+
+    private static final String SQL_CREATE_STORED_FTS_TABLE =
+            "CREATE VIRTUAL TABLE " + STORED_FTS_TABLE_NAME + " USING fts4(" +
+                    COLUMN_TITLE + ", " +
+                    COLUMN_CONTENT + ", " +
+                    "tokenize=unicode61)";
+
+    // IDs de las notas comprimidas o divididas que existían al actualizar a la versión 8 y todavía
+    // no se indexan en STORED_FTS_TABLE_NAME. La tabla se borra cuando queda vacía.
+    private static final String STORED_FTS_BACKFILL_TABLE = "notes_fts_stored_pending";
+
+    private static final String SQL_SELECT_STORED_FTS_BACKFILL_TABLE =
+            "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = '" + STORED_FTS_BACKFILL_TABLE + "'";
+    private static final String SQL_SELECT_STORED_FTS_BACKFILL_IDS =
+            "SELECT " + COLUMN_ID + " FROM " + STORED_FTS_BACKFILL_TABLE + " ORDER BY " + COLUMN_ID + " LIMIT ?";
+    private static final String SQL_SELECT_INDEX_SOURCE =
+            "SELECT " + COLUMN_TITLE + ", " + COLUMN_CONTENT + ", " + COLUMN_CONTENT_FORMAT + " FROM " + TABLE_NAME +
+                    " WHERE " + COLUMN_ID + " = ?";
+
+    // Triggers que mantienen el índice sincronizado con la tabla de notas. En una tabla FTS4 con
+    // contenido externo, las filas viejas deben borrarse del índice antes de modificar la nota. Los
+    // triggers de actualización solo se ejecutan si cambia el texto indexado, no otras columnas.
+    //
+    // Los triggers solo actúan sobre filas en texto plano: FTS4 no puede leer un contenido
+    // comprimido, por lo que NoteDataSource indexa esas filas en STORED_FTS_TABLE_NAME con
+    // CompressedSearchIndex. Las condiciones se evalúan al escribir, no al crear el trigger, así que
+    // los pasos de migración anteriores a la versión 5 pueden crearlos antes de que exista la
+    // columna de formato.
+    private static final String FTS_TRIGGER_BEFORE_UPDATE = TABLE_NAME + "_fts_bu";
+    private static final String FTS_TRIGGER_BEFORE_DELETE = TABLE_NAME + "_fts_bd";
+    private static final String FTS_TRIGGER_AFTER_UPDATE = TABLE_NAME + "_fts_au";
+    private static final String FTS_TRIGGER_AFTER_INSERT = TABLE_NAME + "_fts_ai";
+
+    private static final String PLAIN_OLD_ROW =
+            "old." + COLUMN_CONTENT_FORMAT + " = " + ContentCodec.FORMAT_PLAIN;
+    private static final String PLAIN_NEW_ROW =
+            "new." + COLUMN_CONTENT_FORMAT + " = " + ContentCodec.FORMAT_PLAIN;
+
+    private static final String SQL_CREATE_FTS_TRIGGER_BEFORE_UPDATE =
+            "CREATE TRIGGER " + FTS_TRIGGER_BEFORE_UPDATE + " BEFORE UPDATE OF " +
+                    COLUMN_TITLE + ", " + COLUMN_CONTENT + " ON " + TABLE_NAME +
+                    " WHEN " + PLAIN_OLD_ROW + " AND " + PLAIN_NEW_ROW + " BEGIN " +
+                    "DELETE FROM " + FTS_TABLE_NAME + " WHERE docid = old." + COLUMN_ID + "; END";
+    private static final String SQL_CREATE_FTS_TRIGGER_AFTER_UPDATE =
+            "CREATE TRIGGER " + FTS_TRIGGER_AFTER_UPDATE + " AFTER UPDATE OF " +
+                    COLUMN_TITLE + ", " + COLUMN_CONTENT + " ON " + TABLE_NAME +
+                    " WHEN " + PLAIN_OLD_ROW + " AND " + PLAIN_NEW_ROW + " BEGIN " +
+                    "INSERT INTO " + FTS_TABLE_NAME + " (docid, " + COLUMN_TITLE + ", " + COLUMN_CONTENT + ") " +
+                    "VALUES (new." + COLUMN_ID + ", new." + COLUMN_TITLE + ", new." + COLUMN_CONTENT + "); END";
+
+    private static final String[] SQL_CREATE_FTS_TRIGGERS = {
+            SQL_CREATE_FTS_TRIGGER_BEFORE_UPDATE,
+            "CREATE TRIGGER " + FTS_TRIGGER_BEFORE_DELETE + " BEFORE DELETE ON " + TABLE_NAME +
+                    " WHEN " + PLAIN_OLD_ROW + " BEGIN " +
+                    "DELETE FROM " + FTS_TABLE_NAME + " WHERE docid = old." + COLUMN_ID + "; END",
+            SQL_CREATE_FTS_TRIGGER_AFTER_UPDATE,
+            "CREATE TRIGGER " + FTS_TRIGGER_AFTER_INSERT + " AFTER INSERT ON " + TABLE_NAME +
+                    " WHEN " + PLAIN_NEW_ROW + " BEGIN " +
+                    "INSERT INTO " + FTS_TABLE_NAME + " (docid, " + COLUMN_TITLE + ", " + COLUMN_CONTENT + ") " +
+                    "VALUES (new." + COLUMN_ID + ", new." + COLUMN_TITLE + ", new." + COLUMN_CONTENT + "); END"
+    };
+
+    private static final String[] FTS_TRIGGERS = {
+            FTS_TRIGGER_BEFORE_UPDATE, FTS_TRIGGER_BEFORE_DELETE, FTS_TRIGGER_AFTER_UPDATE, FTS_TRIGGER_AFTER_INSERT
+    };
+
+    private static final String SQL_SELECT_MISSING_HASHES =
+            "SELECT " + COLUMN_ID + ", " + COLUMN_TITLE + ", " + COLUMN_CONTENT + ", " + COLUMN_CONTENT_FORMAT +
+                    " FROM " + TABLE_NAME +
+                    " WHERE " + COLUMN_CONTENT_HASH + " IS NULL LIMIT ?";
+    private static final String SQL_SET_CONTENT_HASH =
+            "UPDATE " + TABLE_NAME + " SET " + COLUMN_CONTENT_HASH + " = ? WHERE " + COLUMN_ID + " = ?";
+
+    // Pasos de migración en orden; el paso en la posición i lleva la base de datos de la versión
+    // i + 1 a la i + 2
+    private static final Migration[] MIGRATIONS = {
+            // Versión 2: agrega el índice de búsqueda. Los triggers indexan las notas nuevas desde la
+            // actualización; las existentes se indexan después, en segundo plano, para no leer todo el
+            // texto al abrir. Mientras tanto no aparecen en las búsquedas.
+            new Migration(1) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    createSearchIndex(db);
+                    queueSearchIndex(db);
+                }
+
+                @Override
+                int backfill(SQLiteDatabase db, int batchSize) {
+                    return backfillSearchIndex(db, batchSize);
+                }
+            },
+            // Versión 3: agrega la huella del contenido. Las filas existentes quedan con NULL y se
+            // completan en lotes en segundo plano, para no bloquear la apertura calculando miles
+            // de huellas.
+            new Migration(2) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL(SQL_ADD_CONTENT_HASH_COLUMN);
+                    db.execSQL(SQL_CREATE_CONTENT_HASH_INDEX);
+                    // Los triggers de actualización se limitan al texto indexado para que completar
+                    // la huella no vuelva a indexar cada nota
+                    db.execSQL("DROP TRIGGER IF EXISTS " + FTS_TRIGGER_BEFORE_UPDATE);
+                    db.execSQL("DROP TRIGGER IF EXISTS " + FTS_TRIGGER_AFTER_UPDATE);
+                    db.execSQL(SQL_CREATE_FTS_TRIGGER_BEFORE_UPDATE);
+                    db.execSQL(SQL_CREATE_FTS_TRIGGER_AFTER_UPDATE);
+                }
+
+                @Override
+                int backfill(SQLiteDatabase db, int batchSize) {
+                    return backfillContentHashes(db, batchSize);
+                }
+            },
+            // Versión 4: agrega las fechas de creación y modificación. Los índices de orden recorren
+            // toda la tabla, por lo que se crean después de abrir la base de datos, en segundo plano.
+            new Migration(3) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL(SQL_ADD_CREATED_AT_COLUMN);
+                    db.execSQL(SQL_ADD_UPDATED_AT_COLUMN);
+                }
+
+                @Override
+                int backfill(SQLiteDatabase db, int batchSize) {
+                    long existing = DatabaseUtils.longForQuery(db, SQL_COUNT_INDEXES,
+                            new String[]{INDEX_UPDATED_AT, INDEX_TITLE});
+                    if (existing == 2) {
+                        return 0;
+                    }
+                    createSortIndexes(db);
+                    return 1;
+                }
+            },
+            // Versión 5: agrega el formato del contenido. Las filas existentes quedan en texto plano,
+            // que se sigue leyendo igual; reescribirlas todas no reduciría el archivo sin un VACUUM
+            // completo, por lo que cada nota se comprime la próxima vez que se guarda.
+            new Migration(4) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL(SQL_ADD_CONTENT_FORMAT_COLUMN);
+                    for (String trigger : FTS_TRIGGERS) {
+                        db.execSQL("DROP TRIGGER IF EXISTS " + trigger);
+                    }
+                    for (String trigger : SQL_CREATE_FTS_TRIGGERS) {
+                        db.execSQL(trigger);
+                    }
+                }
+            },
+            // Versión 6: agrega la tabla de bloques. Las notas existentes más largas que un bloque se
+            // dividen después, en segundo plano; mientras tanto se siguen leyendo de su fila.
+            new Migration(5) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL(SQL_CREATE_CHUNKS_TABLE);
+                    db.execSQL(SQL_CREATE_CHUNKS_INDEX);
+                    // Solo se copian los IDs, que SQLite lee de un índice sin tocar el contenido
+                    db.execSQL("CREATE TABLE " + CHUNK_BACKFILL_TABLE + " (" + COLUMN_ID + " INTEGER PRIMARY KEY)");
+                    db.execSQL("INSERT INTO " + CHUNK_BACKFILL_TABLE + " SELECT " + COLUMN_ID + " FROM " + TABLE_NAME);
+                }
+
+                @Override
+                int backfill(SQLiteDatabase db, int batchSize) {
+                    return backfillChunks(db, batchSize);
+                }
+            },
+            // Versión 7: agrega el registro de cambios por rango. Ninguna nota existente tiene
+            // cambios pendientes, por lo que no queda trabajo diferido.
+            new Migration(6) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL(SQL_CREATE_EDITS_TABLE);
+                    db.execSQL(SQL_CREATE_EDITS_INDEX);
+                }
+            },
+            // Versión 8: las notas comprimidas o divididas pasan a su propio índice, que guarda el
+            // texto indexado. Para quitarlas del índice de contenido externo habría que volver a
+            // escribir su texto plano en la fila, así que ese índice se vacía y se vuelve a llenar
+            // solo con las notas en texto plano, como en la versión 2. Ambos índices se llenan
+            // después, en segundo plano; mientras tanto las notas existentes no aparecen en las
+            // búsquedas.
+            new Migration(7) {
+                @Override
+                void migrate(SQLiteDatabase db) {
+                    db.execSQL("DROP TABLE " + FTS_TABLE_NAME);
+                    db.execSQL(SQL_CREATE_FTS_TABLE);
+                    queueSearchIndex(db);
+                    db.execSQL(SQL_CREATE_STORED_FTS_TABLE);
+                    db.execSQL("CREATE TABLE " + STORED_FTS_BACKFILL_TABLE + " (" + COLUMN_ID + " INTEGER PRIMARY KEY)");
+                    db.execSQL("INSERT INTO " + STORED_FTS_BACKFILL_TABLE + " SELECT " + COLUMN_ID + " FROM " +
+                            TABLE_NAME + " WHERE " + COLUMN_CONTENT_FORMAT + " != " + ContentCodec.FORMAT_PLAIN);
+                }
+
+                @Override
+                int backfill(SQLiteDatabase db, int batchSize) {
+                    int indexed = backfillSearchIndex(db, batchSize);
+                    return indexed > 0 ? indexed : backfillStoredSearchIndex(db, batchSize);
+                }
+            }
+    };
+
+    private static NoteDatabaseHelper instance;
+
+    /**
+     * Obtiene el ayudante compartido por todo el proceso. Todas las pantallas usan la misma conexión,
+     * que permanece abierta mientras viva el proceso, en lugar de abrir y cerrar la base de datos en
+     * cada actividad.
+     *
+     * @param context Cualquier contexto; se utiliza el contexto de la aplicación.
+     * @return Instancia compartida del ayudante.
+     */
+    public static synchronized NoteDatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new NoteDatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
 
     /**
      * Constructor que inicializa el ayudante de la base de datos.
      *
      * @param context Contexto de la aplicación.
      */
-    public NoteDatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    private NoteDatabaseHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * Constructor que permite usar otro archivo, para probar las migraciones sin tocar las notas.
+     *
+     * @param context Contexto de la aplicación.
+     * @param name    Nombre del archivo de la base de datos.
+     */
+    @VisibleForTesting
+    NoteDatabaseHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+    }
+
+    /**
+     * Método llamado al abrir la conexión, antes de crearla o actualizarla.
+     *
+     * Activa el modo WAL (write-ahead logging) para que las lecturas se ejecuten en paralelo con
+     * las escrituras en lugar de esperar a que terminen.
+     *
+     * @param db Base de datos SQLite.
+     */
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.enableWriteAheadLogging();
     }
 
     /**
@@ -62,10 +442,20 @@ public class NoteDatabaseHelper extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase db) {
         // Crea la tabla cuando se crea la base de datos
         db.execSQL(SQL_CREATE_TABLE);
+        db.execSQL(SQL_CREATE_CONTENT_HASH_INDEX);
+        createSortIndexes(db);
+        createSearchIndex(db);
+        db.execSQL(SQL_CREATE_STORED_FTS_TABLE);
+        db.execSQL(SQL_CREATE_CHUNKS_TABLE);
+        db.execSQL(SQL_CREATE_CHUNKS_INDEX);
+        db.execSQL(SQL_CREATE_EDITS_TABLE);
+        db.execSQL(SQL_CREATE_EDITS_INDEX);
     }
 
     /**
-     * Método llamado cuando la versión de la base de datos cambia.
+     * Método llamado cuando la versión de la base de datos cambia. Ejecuta en orden cada paso de
+     * migración pendiente. SQLiteOpenHelper envuelve toda la actualización en una transacción, por
+     * lo que si un paso falla no se aplica ninguno y la versión guardada no cambia.
      *
      * @param db         Base de datos SQLite.
      * @param oldVersion Versión antigua de la base de datos.
@@ -73,10 +463,239 @@ public class NoteDatabaseHelper extends SQLiteOpenHelper {
      */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Maneja las actualizaciones de la base de datos aquí si es necesario
-        // Para simplificar, eliminaremos y recrearemos la tabla
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
-        onCreate(db);
+        for (Migration migration : migrationPath(oldVersion, newVersion)) {
+            long start = System.nanoTime();
+            db.beginTransaction();
+            try {
+                migration.migrate(db);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            Log.i(TAG, "Migración " + migration.startVersion + " -> " + migration.endVersion + " en " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+    /**
+     * Obtiene los pasos que llevan la base de datos de una versión a otra.
+     *
+     * @param oldVersion Versión instalada.
+     * @param newVersion Versión de destino.
+     * @return Pasos en el orden en que deben ejecutarse.
+     * @throws IllegalStateException Si falta algún paso intermedio.
+     */
+    @VisibleForTesting
+    static List<Migration> migrationPath(int oldVersion, int newVersion) {
+        List<Migration> path = new ArrayList<>();
+        for (int version = oldVersion; version < newVersion; version++) {
+            int index = version - 1;
+            if (index < 0 || index >= MIGRATIONS.length || MIGRATIONS[index].startVersion != version) {
+                throw new IllegalStateException("No existe migración desde la versión " + version);
+            }
+            path.add(MIGRATIONS[index]);
+        }
+        return path;
+    }
+
+    /**
+     * Procesa un lote del trabajo diferido que dejaron las migraciones. Se debe llamar en segundo
+     * plano hasta que devuelva 0.
+     *
+     * @param db        Base de datos abierta.
+     * @param batchSize Cantidad máxima de filas a procesar.
+     * @return Cantidad de filas procesadas, o 0 si no queda trabajo pendiente.
+     */
+    static int runBackfillBatch(SQLiteDatabase db, int batchSize) {
+        for (Migration migration : MIGRATIONS) {
+            int processed = migration.backfill(db, batchSize);
+            if (processed > 0) {
+                return processed;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Indexa en la tabla de contenido externo las notas en texto plano que existían al crearla en la
+     * versión 2 o al volver a crearla en la 8. Cada lote revisa hasta batchSize notas en una
+     * transacción corta. Las notas que se guardaron desde la actualización ya las indexaron los
+     * triggers, y se vuelven a indexar sin duplicarse.
+     */
+    private static int backfillSearchIndex(SQLiteDatabase db, int batchSize) {
+        if (DatabaseUtils.longForQuery(db, SQL_SELECT_FTS_BACKFILL_TABLE, null) == 0) {
+            return 0;
+        }
+        long[] ids;
+        try (Cursor c = db.rawQuery(SQL_SELECT_FTS_BACKFILL_IDS, new String[]{String.valueOf(batchSize)})) {
+            ids = new long[c.getCount()];
+            for (int i = 0; c.moveToNext(); i++) {
+                ids[i] = c.getLong(0);
+            }
+        }
+
+        CompressedSearchIndex searchIndex = new CompressedSearchIndex(db);
+        db.beginTransaction();
+        try {
+            if (ids.length == 0) {
+                db.execSQL("DROP TABLE " + FTS_BACKFILL_TABLE);
+            } else {
+                for (long id : ids) {
+                    try (Cursor c = db.rawQuery(SQL_SELECT_INDEX_SOURCE, new String[]{String.valueOf(id)})) {
+                        // Las notas eliminadas, comprimidas o divididas no van en este índice
+                        if (c.moveToFirst() && c.getInt(2) == ContentCodec.FORMAT_PLAIN) {
+                            searchIndex.reindexPlain(id, c.getString(0), c.getString(1));
+                        }
+                    }
+                }
+                db.execSQL("DELETE FROM " + FTS_BACKFILL_TABLE + " WHERE " + COLUMN_ID + " <= ?",
+                        new Object[]{ids[ids.length - 1]});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            searchIndex.close();
+        }
+        return ids.length;
+    }
+
+    /**
+     * Completa la huella del contenido de las notas creadas antes de la versión 3, en una
+     * transacción corta por lote.
+     */
+    private static int backfillContentHashes(SQLiteDatabase db, int batchSize) {
+        int updated = 0;
+        SQLiteStatement statement = db.compileStatement(SQL_SET_CONTENT_HASH);
+        db.beginTransaction();
+        try (Cursor c = db.rawQuery(SQL_SELECT_MISSING_HASHES, new String[]{String.valueOf(batchSize)})) {
+            while (c.moveToNext()) {
+                String content = NoteChunkStore.readContent(db, c.getLong(0), c.getInt(3), c, 2);
+                statement.bindString(1, NoteDataSource.contentHash(c.getString(1), content));
+                statement.bindLong(2, c.getLong(0));
+                statement.executeUpdateDelete();
+                updated++;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statement.close();
+        }
+        return updated;
+    }
+
+    /**
+     * Divide las notas existentes antes de la versión 6 que superan el tamaño de un bloque. Cada lote
+     * revisa hasta batchSize notas en una transacción corta.
+     */
+    private static int backfillChunks(SQLiteDatabase db, int batchSize) {
+        if (DatabaseUtils.longForQuery(db, SQL_SELECT_CHUNK_BACKFILL_TABLE, null) == 0) {
+            return 0;
+        }
+        long[] ids;
+        try (Cursor c = db.rawQuery(SQL_SELECT_CHUNK_BACKFILL_IDS, new String[]{String.valueOf(batchSize)})) {
+            ids = new long[c.getCount()];
+            for (int i = 0; c.moveToNext(); i++) {
+                ids[i] = c.getLong(0);
+            }
+        }
+
+        NoteChunkStore chunkStore = new NoteChunkStore(db);
+        CompressedSearchIndex searchIndex = new CompressedSearchIndex(db);
+        db.beginTransaction();
+        try {
+            if (ids.length == 0) {
+                db.execSQL("DROP TABLE " + CHUNK_BACKFILL_TABLE);
+            } else {
+                for (long id : ids) {
+                    chunkStore.chunkLegacyNote(id, searchIndex);
+                }
+                db.execSQL("DELETE FROM " + CHUNK_BACKFILL_TABLE + " WHERE " + COLUMN_ID + " <= ?",
+                        new Object[]{ids[ids.length - 1]});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            chunkStore.close();
+            searchIndex.close();
+        }
+        return ids.length;
+    }
+
+    /**
+     * Indexa en la tabla propia del índice las notas comprimidas o divididas antes de la versión 8.
+     * Cada lote revisa hasta batchSize notas en una transacción corta. Las notas que se guardaron
+     * desde la actualización ya están indexadas y se vuelven a indexar sin duplicarse.
+     */
+    private static int backfillStoredSearchIndex(SQLiteDatabase db, int batchSize) {
+        if (DatabaseUtils.longForQuery(db, SQL_SELECT_STORED_FTS_BACKFILL_TABLE, null) == 0) {
+            return 0;
+        }
+        long[] ids;
+        try (Cursor c = db.rawQuery(SQL_SELECT_STORED_FTS_BACKFILL_IDS, new String[]{String.valueOf(batchSize)})) {
+            ids = new long[c.getCount()];
+            for (int i = 0; c.moveToNext(); i++) {
+                ids[i] = c.getLong(0);
+            }
+        }
+
+        CompressedSearchIndex searchIndex = new CompressedSearchIndex(db);
+        db.beginTransaction();
+        try {
+            if (ids.length == 0) {
+                db.execSQL("DROP TABLE " + STORED_FTS_BACKFILL_TABLE);
+            } else {
+                for (long id : ids) {
+                    try (Cursor c = db.rawQuery(SQL_SELECT_INDEX_SOURCE, new String[]{String.valueOf(id)})) {
+                        // Las notas eliminadas o guardadas otra vez en texto plano ya no se indexan aquí
+                        if (c.moveToFirst() && c.getInt(2) != ContentCodec.FORMAT_PLAIN) {
+                            searchIndex.reindexStored(id, c.getString(0),
+                                    NoteChunkStore.readContent(db, id, c.getInt(2), c, 1));
+                        }
+                    }
+                }
+                db.execSQL("DELETE FROM " + STORED_FTS_BACKFILL_TABLE + " WHERE " + COLUMN_ID + " <= ?",
+                        new Object[]{ids[ids.length - 1]});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            searchIndex.close();
+        }
+        return ids.length;
+    }
+
+    /**
+     * Crea los índices que usan los órdenes de la lista de notas.
+     *
+     * @param db Base de datos SQLite.
+     */
+    private static void createSortIndexes(SQLiteDatabase db) {
+        db.execSQL(SQL_CREATE_UPDATED_AT_INDEX);
+        db.execSQL(SQL_CREATE_TITLE_INDEX);
+    }
+
+    /**
+     * Crea la tabla de búsqueda de texto completo y los triggers que la mantienen actualizada.
+     *
+     * @param db Base de datos SQLite.
+     */
+    private static void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL(SQL_CREATE_FTS_TABLE);
+        for (String trigger : SQL_CREATE_FTS_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+
+    /**
+     * Deja pendientes de indexar en la tabla de contenido externo todas las notas existentes. Solo
+     * copia los IDs, que SQLite lee de un índice sin tocar el contenido; backfillSearchIndex indexa
+     * el texto después.
+     *
+     * @param db Base de datos SQLite.
+     */
+    private static void queueSearchIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + FTS_BACKFILL_TABLE + " (" + COLUMN_ID + " INTEGER PRIMARY KEY)");
+        db.execSQL("INSERT OR IGNORE INTO " + FTS_BACKFILL_TABLE + " SELECT " + COLUMN_ID + " FROM " + TABLE_NAME);
     }
 }
 
@@ -0,0 +1,216 @@
+package com.example.apuntesapp.data.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Métricas, compartidas por todo el proceso, de cada operación de NoteDataSource: histograma de
+ * latencias, filas y bytes de texto leídos o escritos.
+ *
+ * Conceptos:
+ * - Bajo costo: Registrar una operación solo actualiza contadores atómicos, sin bloqueos ni objetos
+ *   nuevos, por lo que las métricas quedan activas también en las compilaciones release. Los bytes
+ *   se calculan con el largo de los textos que la operación ya tiene en memoria (2 bytes por
+ *   carácter), sin volver a leer la base de datos.
+ *
+ * - Histograma: Las latencias se cuentan en intervalos que duplican su límite (0,25 ms, 0,5 ms,
+ *   1 ms...). Los percentiles del resumen son el límite superior del intervalo en que caen.
+ *
+ * - Consultas lentas: Una operación que supera el umbral configurable se registra en el log. Las
+ *   lecturas registran además el plan de su consulta (EXPLAIN QUERY PLAN), como máximo una vez por
+ *   minuto por operación, para ver si SQLite recorrió la tabla en lugar de usar un índice.
+ *
+ * - Consulta de los datos: dump() escribe el resumen; MainActivity lo incluye en
+ *   "adb shell dumpsys activity com.example.apuntesapp/.MainActivity".
+ */
+public class QueryMetrics {
+
+    private static final String TAG = "QueryMetrics";
+
+    // Umbral inicial para considerar lenta una operación; 100 ms son unos seis cuadros
+    public static final long DEFAULT_SLOW_QUERY_THRESHOLD_MS = 100;
+    // Tiempo mínimo entre dos planes registrados de la misma operación
+    private static final long EXPLAIN_INTERVAL_MS = 60_000;
+
+    // Límites superiores de los intervalos del histograma, en microsegundos; el último es abierto
+    private static final long[] BUCKET_LIMITS_US = {
+            250, 500, 1_000, 2_000, 4_000, 8_000, 16_000, 32_000, 64_000, 128_000, 256_000, 512_000, 1_024_000
+    };
+
+    private static final QueryMetrics INSTANCE = new QueryMetrics();
+
+    private final ConcurrentHashMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private volatile long slowQueryThresholdNanos = DEFAULT_SLOW_QUERY_THRESHOLD_MS * 1_000_000;
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * Obtiene las métricas del proceso.
+     *
+     * @return Instancia compartida.
+     */
+    public static QueryMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Cambia el umbral a partir del cual una operación se registra como lenta.
+     *
+     * @param thresholdMs Umbral en milisegundos, o 0 para no registrar operaciones lentas.
+     */
+    public void setSlowQueryThresholdMs(long thresholdMs) {
+        slowQueryThresholdNanos = thresholdMs > 0 ? thresholdMs * 1_000_000 : Long.MAX_VALUE;
+    }
+
+    /**
+     * Registra una operación terminada.
+     *
+     * @param operation  Nombre de la operación, normalmente el del método de NoteDataSource.
+     * @param startNanos Valor de System.nanoTime() al empezar la operación.
+     * @param rows       Filas leídas o modificadas.
+     * @param bytes      Bytes de texto leídos o escritos.
+     * @return True si la operación superó el umbral de consulta lenta.
+     */
+    public boolean record(String operation, long startNanos, long rows, long bytes) {
+        long elapsed = System.nanoTime() - startNanos;
+        OperationStats stats = operations.get(operation);
+        if (stats == null) {
+            stats = operations.computeIfAbsent(operation, name -> new OperationStats());
+        }
+        stats.add(elapsed, rows, bytes);
+        if (elapsed < slowQueryThresholdNanos) {
+            return false;
+        }
+        Log.w(TAG, "Operación lenta: " + operation + " tardó " + elapsed / 1_000_000 + " ms (" + rows
+                + " filas, " + bytes + " bytes)");
+        return true;
+    }
+
+    /**
+     * Registra el plan de una consulta lenta. Se llama solo cuando record devolvió true y como
+     * máximo registra un plan por minuto por operación.
+     *
+     * @param database  Base de datos en la que se ejecutó la consulta.
+     * @param operation Nombre de la operación.
+     * @param sql       Consulta ejecutada.
+     * @param args      Argumentos de la consulta, o null.
+     */
+    public void explain(SQLiteDatabase database, String operation, String sql, String[] args) {
+        OperationStats stats = operations.get(operation);
+        if (stats == null) {
+            // Las métricas se borraron después de registrar la operación
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        long last = stats.lastExplainMs.get();
+        if ((last != 0 && now - last < EXPLAIN_INTERVAL_MS) || !stats.lastExplainMs.compareAndSet(last, now)) {
+            return;
+        }
+        StringBuilder plan = new StringBuilder("Plan de ").append(operation).append(": ").append(sql);
+        try {
+            Cursor c = database.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+            try {
+                int detailIndex = c.getColumnIndexOrThrow("detail");
+                while (c.moveToNext()) {
+                    plan.append("\n  ").append(c.getString(detailIndex));
+                }
+            } finally {
+                c.close();
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "No se pudo obtener el plan de " + operation, e);
+            return;
+        }
+        Log.w(TAG, plan.toString());
+    }
+
+    /**
+     * Borra todas las métricas registradas.
+     */
+    public void reset() {
+        operations.clear();
+    }
+
+    /**
+     * Escribe un resumen de las métricas, una línea por operación ordenadas por nombre.
+     *
+     * @param writer Destino del resumen.
+     */
+    public void dump(PrintWriter writer) {
+        List<String> names = new ArrayList<>(operations.keySet());
+        Collections.sort(names);
+        writer.println("Métricas de la base de datos (umbral lento: "
+                + (slowQueryThresholdNanos == Long.MAX_VALUE ? "desactivado" : slowQueryThresholdNanos / 1_000_000 + " ms")
+                + ")");
+        writer.println(String.format(Locale.ROOT, "  %-24s %8s %9s %9s %9s %9s %10s %12s",
+                "operación", "veces", "prom ms", "p50 ms", "p99 ms", "máx ms", "filas", "bytes"));
+        for (String name : names) {
+            OperationStats stats = operations.get(name);
+            long count = stats != null ? stats.count.get() : 0;
+            if (count == 0) {
+                continue;
+            }
+            writer.println(String.format(Locale.ROOT, "  %-24s %8d %9.2f %9s %9s %9.2f %10d %12d",
+                    name, count, stats.totalNanos.get() / 1e6 / count, stats.percentile(count, 0.5),
+                    stats.percentile(count, 0.99), stats.maxNanos.get() / 1e6, stats.rows.get(), stats.bytes.get()));
+        }
+    }
+
+    /**
+     * Contadores de una operación. Cada contador se actualiza de forma atómica por separado; un
+     * resumen tomado mientras se registran operaciones puede mezclar valores de dos momentos, lo que
+     * no afecta a unas métricas de diagnóstico.
+     */
+    private static final class OperationStats {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKET_LIMITS_US.length + 1);
+        final AtomicLong lastExplainMs = new AtomicLong();
+
+        void add(long elapsedNanos, long rowCount, long byteCount) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            rows.addAndGet(rowCount);
+            bytes.addAndGet(byteCount);
+            long micros = elapsedNanos / 1_000;
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS_US.length && micros >= BUCKET_LIMITS_US[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+        }
+
+        /**
+         * Obtiene el límite superior del intervalo que contiene el percentil indicado.
+         */
+        String percentile(long total, double fraction) {
+            long target = (long) Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return i < BUCKET_LIMITS_US.length
+                            ? String.format(Locale.ROOT, "<%.2f", BUCKET_LIMITS_US[i] / 1000.0)
+                            : ">1024";
+                }
+            }
+            return "-";
+        }
+    }
+}
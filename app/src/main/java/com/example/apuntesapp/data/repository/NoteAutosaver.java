@@ -0,0 +1,272 @@
+package com.example.apuntesapp.data.repository;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.apuntesapp.data.database.NoteDataSource;
+import com.example.apuntesapp.model.Note;
+import com.example.apuntesapp.model.NoteEdit;
+import com.example.apuntesapp.tracing.NoteTrace;
+
+/**
+ * Clase que guarda automáticamente la nota de un editor mientras el usuario escribe.
+ *
+ * Conceptos:
+ * - Agrupación de cambios: Cada pulsación solo marca el borrador como modificado. El texto se toma
+ *   del editor como máximo una vez por intervalo, por lo que escribir rápido produce una sola
+ *   escritura por intervalo y no una por tecla.
+ *
+ * - Un solo escritor: Las escrituras se ejecutan en el hilo de escritura del repositorio, en el
+ *   mismo orden que el resto de los cambios. Después de start(), el estado de la nota guardada (ID,
+ *   fecha y huella) solo se modifica en ese hilo.
+ *
+ * - Huella: Antes de escribir una nota completa se calcula la huella del título y el contenido; si
+ *   es igual a la de la última versión guardada, no se escribe nada. Los borradores con rango no
+ *   llevan el contenido completo y no se comparan: el rango ya indica que algo cambió. Después de
+ *   guardar un rango la huella se desconoce, y la siguiente nota completa siempre se escribe.
+ *
+ * - Contenido solo cuando hace falta: El editor entrega solo el rango modificado mientras pueda. Si
+ *   un rango no se pudo guardar, se le pide el contenido completo en el siguiente borrador.
+ *
+ * - Ciclo de vida: El editor llama a flush() en onPause, de modo que lo escrito no se pierde si el
+ *   proceso termina en segundo plano. El objeto pertenece al ViewModel, así que sobrevive a la
+ *   recreación de la actividad; el editor se registra con attach() y se quita con detach().
+ *
+ * Los métodos públicos deben llamarse desde el hilo principal.
+ */
+public class NoteAutosaver {
+
+    // Tiempo mínimo entre dos escrituras de la misma nota
+    public static final long DEFAULT_INTERVAL_MS = 3000;
+
+    /**
+     * Interfaz que implementa el editor para entregar el texto a guardar.
+     */
+    public interface DraftSource {
+        /**
+         * Toma el estado actual del editor. Se llama en el hilo principal.
+         *
+         * @param fullContent True si el borrador debe incluir el contenido completo, por ejemplo
+         *                    porque no se pudo guardar el rango anterior.
+         * @return Borrador a guardar, o null si todavía no hay nada que guardar.
+         */
+        Draft takeDraft(boolean fullContent);
+    }
+
+    /**
+     * Versión de la nota tomada del editor: la nota con el contenido completo, o solo con el título y
+     * el rango modificado. La fecha base del rango la completa el autoguardado con la de la última
+     * versión que escribió.
+     */
+    public static final class Draft {
+        final Note note;
+        final NoteEdit edit;
+
+        /**
+         * @param note Nota con el título actual, y con el contenido completo si edit es null.
+         * @param edit Rango modificado desde el borrador anterior, o null si no se conoce; en ese
+         *             caso el contenido de la nota puede ser null.
+         */
+        public Draft(Note note, NoteEdit edit) {
+            this.note = note;
+            this.edit = edit;
+        }
+    }
+
+    private final NoteRepository repository;
+    private final Handler mainHandler;
+    private final long intervalMs;
+    private final Runnable pendingTick = this::tick;
+
+    // Estado del hilo principal
+    private DraftSource source;
+    private boolean started;
+    private boolean dirty;
+    private boolean tickPosted;
+    private long lastDraftTime;
+    // True si se perdió un borrador; el siguiente se envía sin rango para guardar la nota completa
+    private boolean discardEdit;
+
+    // Estado del hilo de escritura. start() asigna el ID y la fecha antes de enviar la primera
+    // escritura, y el ID se lee también desde el hilo principal.
+    private volatile long noteId = -1;
+    private long updatedAt;
+    private String savedHash;
+    // True si la última escritura falló; la siguiente guarda la nota completa. Se lee también desde
+    // el hilo principal para pedir al editor el contenido completo
+    private volatile boolean needsFullSave;
+
+    NoteAutosaver(NoteRepository repository, Handler mainHandler, long intervalMs) {
+        this.repository = repository;
+        this.mainHandler = mainHandler;
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * Registra el editor que entrega los borradores.
+     *
+     * @param source Editor actual.
+     */
+    public void attach(DraftSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Quita el editor registrado, para no retenerlo después de destruir la actividad.
+     */
+    public void detach() {
+        source = null;
+    }
+
+    /**
+     * Indica la versión de la nota que se está editando. Solo se toma en cuenta la primera llamada,
+     * para que la recreación de la actividad no reemplace la versión que ya guardó el autoguardado.
+     * Si no se llama, el primer borrador se inserta como una nota nueva.
+     *
+     * @param saved Nota tal como está guardada.
+     */
+    public void start(Note saved) {
+        if (started) {
+            return;
+        }
+        started = true;
+        noteId = saved.getId();
+        updatedAt = saved.getUpdatedAt();
+        // La huella se calcula en el hilo de escritura; si la tarea se rechaza, el primer borrador
+        // simplemente no se compara
+        String title = saved.getTitle();
+        String content = saved.getContent();
+        repository.executeWrite("NoteAutosaver.hash", () -> savedHash = NoteDataSource.contentHash(title, content));
+    }
+
+    /**
+     * Avisa que el usuario modificó el borrador. Programa la toma del borrador al terminar el
+     * intervalo desde la anterior.
+     */
+    public void onEdited() {
+        dirty = true;
+        if (!tickPosted) {
+            tickPosted = true;
+            long delay = Math.max(0, lastDraftTime + intervalMs - SystemClock.uptimeMillis());
+            mainHandler.postDelayed(pendingTick, delay);
+        }
+    }
+
+    /**
+     * Guarda de inmediato el borrador si tiene cambios, sin esperar el intervalo.
+     *
+     * @return LiveData que recibe true cuando todas las escrituras anteriores terminaron y la última
+     *         fue exitosa.
+     */
+    public LiveData<Boolean> flush() {
+        mainHandler.removeCallbacks(pendingTick);
+        tickPosted = false;
+        takeAndSubmit();
+        MutableLiveData<Boolean> result = new MutableLiveData<>();
+        if (!repository.executeWrite("NoteAutosaver.flush", () -> result.postValue(!needsFullSave))) {
+            result.setValue(false);
+        }
+        return result;
+    }
+
+    /**
+     * Obtiene el ID de la nota guardada. En una nota nueva es -1 hasta que termina la primera
+     * escritura.
+     */
+    public long getNoteId() {
+        return noteId;
+    }
+
+    /**
+     * Cancela la toma de borrador programada, sin guardar.
+     */
+    public void cancel() {
+        mainHandler.removeCallbacks(pendingTick);
+        tickPosted = false;
+    }
+
+    private void tick() {
+        tickPosted = false;
+        takeAndSubmit();
+    }
+
+    private void takeAndSubmit() {
+        if (!dirty || source == null) {
+            return;
+        }
+        // El editor copia su texto en el hilo principal; con un rango solo copia la región modificada
+        NoteTrace.begin("NoteAutosaver.takeDraft");
+        Draft draft;
+        try {
+            // Si se perdió un borrador, su rango ya no sirve como base y se pide la nota completa
+            draft = source.takeDraft(discardEdit || needsFullSave);
+        } finally {
+            NoteTrace.end();
+        }
+        if (draft == null) {
+            return;
+        }
+        Draft submitted = draft;
+        dirty = false;
+        lastDraftTime = SystemClock.uptimeMillis();
+        if (repository.executeWrite("NoteAutosaver.write", () -> write(submitted))) {
+            discardEdit = false;
+        } else {
+            // La cola de escrituras está llena. El editor ya tomó el rango, así que se vuelve a
+            // intentar en el siguiente intervalo con la nota completa.
+            discardEdit = true;
+            onEdited();
+        }
+    }
+
+    /**
+     * Escribe un borrador. Se ejecuta en el hilo de escritura.
+     */
+    private void write(Draft draft) {
+        Note note = draft.note;
+        boolean rangeOnly = note.getContent() == null;
+        if (rangeOnly && (noteId == -1 || needsFullSave)) {
+            // El rango se tomó antes de saber que la escritura anterior falló; se pide al editor un
+            // borrador con el contenido completo
+            mainHandler.post(this::onEdited);
+            return;
+        }
+        // Con un rango no se calcula la huella, que recorrería el contenido completo
+        String hash = rangeOnly ? null : NoteDataSource.contentHash(note.getTitle(), note.getContent());
+        if (hash != null && hash.equals(savedHash) && !needsFullSave) {
+            return;
+        }
+        boolean saved;
+        if (noteId == -1) {
+            long id = repository.writeInsert(note);
+            saved = id != -1;
+            if (saved) {
+                noteId = id;
+                updatedAt = note.getUpdatedAt();
+            }
+        } else {
+            note.setId(noteId);
+            NoteEdit edit = null;
+            if (draft.edit != null && !needsFullSave) {
+                NoteEdit region = draft.edit;
+                edit = new NoteEdit(noteId, updatedAt, note.getTitle(), region.getStart(), region.getEnd(),
+                        region.getReplacement());
+            }
+            long result = repository.writeUpdate(edit, note);
+            saved = result != 0;
+            if (saved) {
+                updatedAt = result;
+            }
+        }
+        needsFullSave = !saved;
+        if (saved) {
+            savedHash = hash;
+        } else if (rangeOnly) {
+            // Sin el contenido completo no se pudo guardar la nota de otra forma
+            mainHandler.post(this::onEdited);
+        }
+    }
+}
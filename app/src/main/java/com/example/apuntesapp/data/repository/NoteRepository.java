@@ -0,0 +1,752 @@
+package com.example.apuntesapp.data.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.apuntesapp.data.backup.NoteExporter;
+import com.example.apuntesapp.data.backup.NoteImporter;
+import com.example.apuntesapp.data.database.BatchResult;
+import com.example.apuntesapp.data.database.NoteChangeNotifier;
+import com.example.apuntesapp.data.database.NoteDataSource;
+import com.example.apuntesapp.model.BackupProgress;
+import com.example.apuntesapp.model.Note;
+import com.example.apuntesapp.model.NoteChange;
+import com.example.apuntesapp.model.NoteEdit;
+import com.example.apuntesapp.model.NoteOutline;
+import com.example.apuntesapp.model.NotePage;
+import com.example.apuntesapp.model.NoteSortOrder;
+import com.example.apuntesapp.model.NoteSummary;
+import com.example.apuntesapp.tracing.NoteTrace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Repositorio que ejecuta todas las operaciones de notas fuera del hilo principal.
+ *
+ * Conceptos:
+ * - Clean Architecture: Se ubica entre el ViewModel y NoteDataSource. Las capas de presentación no
+ *   conocen SQLite ni los hilos en los que se ejecutan las consultas.
+ *
+ * - Model-View-ViewModel (MVVM): Los resultados se entregan mediante LiveData, que el ViewModel y las
+ *   actividades observan respetando su ciclo de vida.
+ *
+ * - Concurrencia: Las escrituras se ejecutan en un único hilo con una cola acotada, por lo que se
+ *   aplican en el mismo orden en que se solicitaron. Las lecturas usan un grupo de hilos separado
+ *   para que una escritura larga no bloquee la carga de la lista.
+ *
+ * - Caché: Las notas completas se guardan en una caché LRU por ID, limitada por la cantidad total de
+ *   caracteres y no por la cantidad de notas. Las escrituras hechas por el repositorio actualizan la
+ *   caché y cualquier otro cambio publicado en NoteChangeNotifier la invalida.
+ *
+ * - Compactación: Los cambios por rango de las notas divididas se incorporan a sus bloques en el
+ *   hilo de escritura, COMPACTION_DELAY_MS después del primer cambio sin compactar. Mientras el
+ *   usuario edita, la compactación se repite como máximo una vez por intervalo.
+ *
+ * - Trazas: Cada operación es una sección asíncrona de NoteTrace desde que se pide hasta que termina,
+ *   y una sección síncrona con el mismo nombre en el hilo que la ejecuta. La diferencia entre ambas
+ *   es el tiempo que la operación esperó en la cola.
+ */
+public class NoteRepository {
+
+    private static final String TAG = "NoteRepository";
+
+    // Cantidad máxima de escrituras pendientes antes de rechazar nuevas solicitudes
+    private static final int WRITE_QUEUE_CAPACITY = 128;
+    // Cantidad de hilos dedicados a lecturas
+    private static final int READ_THREADS = 2;
+    // Cantidad máxima de caracteres (título más contenido) de las notas guardadas en la caché
+    private static final int NOTE_CACHE_MAX_CHARS = 4 * 1024 * 1024;
+    // Cantidad de filas que procesa cada lote del trabajo pendiente de las migraciones
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    // Espera entre un cambio por rango y la compactación de las notas con cambios pendientes
+    private static final long COMPACTION_DELAY_MS = 30_000;
+    // Cantidad de notas que se compactan en cada transacción; cada una puede ocupar varios MB
+    private static final int COMPACTION_BATCH_SIZE = 4;
+
+    // Preferencias donde se guarda el avance de la última importación incompleta
+    private static final String BACKUP_PREFS = "backup";
+    private static final String KEY_IMPORT_SOURCE = "import_source";
+    private static final String KEY_IMPORT_RECORDS = "import_records";
+
+    private static volatile NoteRepository instance;
+
+    private final Context appContext;
+    private final NoteDataSource noteDataSource;
+    private final ExecutorService writeExecutor;
+    private final ExecutorService readExecutor;
+    // Las exportaciones e importaciones pueden tardar minutos; leen y escriben los archivos en su
+    // propio hilo para no ocupar los hilos de lectura que necesita la lista. Los bloques importados
+    // se guardan en el hilo de escritura (ver writeAndWait)
+    private final ExecutorService backupExecutor;
+    // La base de datos se abre en el primer hilo de trabajo que la necesita, nunca en el hilo principal
+    private volatile boolean opened;
+    // Programa la compactación con retraso; la tarea siempre se ejecuta en el hilo de escritura
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    // Notas completas leídas recientemente, por ID
+    private final LruCache<Long, Note> noteCache = new LruCache<Long, Note>(NOTE_CACHE_MAX_CHARS) {
+        @Override
+        protected int sizeOf(Long id, Note note) {
+            return length(note.getTitle()) + length(note.getContent());
+        }
+    };
+    // Aumenta con cada cambio publicado; una lectura solo se guarda en la caché si no hubo cambios
+    // mientras se ejecutaba, para no guardar una versión vieja de la nota
+    private final AtomicLong changeCount = new AtomicLong();
+
+    /**
+     * Obtiene la instancia única del repositorio para todo el proceso.
+     *
+     * @param context Cualquier contexto; se utiliza el contexto de la aplicación.
+     * @return Instancia compartida del repositorio.
+     */
+    public static NoteRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (NoteRepository.class) {
+                if (instance == null) {
+                    instance = new NoteRepository(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private NoteRepository(Context appContext) {
+        this.appContext = appContext;
+        noteDataSource = new NoteDataSource(appContext);
+        writeExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(WRITE_QUEUE_CAPACITY), new NamedThreadFactory("notes-write"));
+        readExecutor = Executors.newFixedThreadPool(READ_THREADS, new NamedThreadFactory("notes-read"));
+        backupExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("notes-backup"));
+        // Mantiene la caché coherente con cualquier escritura, incluso las que no pasan por el repositorio
+        NoteChangeNotifier.getInstance().addListener(this::onNotesChanged);
+    }
+
+    /**
+     * Carga una página de resúmenes de notas en segundo plano.
+     *
+     * @param order    Orden de la lista.
+     * @param after    Última fila de la página anterior, o null para la primera.
+     * @param pageSize Cantidad máxima de resúmenes.
+     * @return LiveData que recibe la página cuando la consulta termina, o null si falló.
+     */
+    public LiveData<NotePage<NoteSummary>> loadSummaryPage(NoteSortOrder order, NoteSummary after, int pageSize) {
+        MutableLiveData<NotePage<NoteSummary>> result = new MutableLiveData<>();
+        submit(readExecutor, result, "NoteRepository.loadSummaryPage", () -> result.postValue(
+                dataSource().getNoteSummariesPage(order, after, pageSize, false)));
+        return result;
+    }
+
+    /**
+     * Busca notas por título y contenido en segundo plano.
+     *
+     * @param query    Texto escrito por el usuario.
+     * @param cursor   Cursor de la página de resultados a cargar.
+     * @param pageSize Cantidad máxima de resultados.
+     * @param signal   Señal para cancelar la búsqueda si el usuario sigue escribiendo, o null.
+     * @return LiveData que recibe la página de resultados, o null si la búsqueda falló o se canceló.
+     */
+    public LiveData<NotePage<NoteSummary>> searchNotes(String query, long cursor, int pageSize,
+                                                       CancellationSignal signal) {
+        MutableLiveData<NotePage<NoteSummary>> result = new MutableLiveData<>();
+        submit(readExecutor, result, "NoteRepository.searchNotes", () -> result.postValue(
+                dataSource().searchNotes(query, cursor, pageSize, signal)));
+        return result;
+    }
+
+    /**
+     * Carga una nota completa. Si está en la caché se entrega de inmediato; si no, se lee en segundo
+     * plano y se guarda en la caché. La nota entregada es compartida y no debe modificarse.
+     *
+     * @param id ID de la nota.
+     * @return LiveData que recibe la nota, o null si no existe.
+     */
+    public LiveData<Note> loadNote(long id) {
+        Note cached = noteCache.get(id);
+        if (cached != null) {
+            return new MutableLiveData<>(cached);
+        }
+        MutableLiveData<Note> result = new MutableLiveData<>();
+        submit(readExecutor, result, "NoteRepository.loadNote", () -> {
+            long stamp = changeCount.get();
+            Note note = dataSource().getNoteById(id);
+            if (note != null) {
+                synchronized (noteCache) {
+                    if (changeCount.get() == stamp) {
+                        noteCache.put(id, note);
+                    }
+                }
+            }
+            result.postValue(note);
+        });
+        return result;
+    }
+
+    /**
+     * Carga en segundo plano el título y la cantidad de bloques de una nota, sin leer su contenido.
+     *
+     * @param id ID de la nota.
+     * @return LiveData que recibe la descripción, o null si la nota no existe.
+     */
+    public LiveData<NoteOutline> loadNoteOutline(long id) {
+        MutableLiveData<NoteOutline> result = new MutableLiveData<>();
+        submit(readExecutor, result, "NoteRepository.loadNoteOutline",
+                () -> result.postValue(dataSource().getNoteOutline(id)));
+        return result;
+    }
+
+    /**
+     * Carga en segundo plano un bloque del contenido de una nota. Los bloques no se guardan en la
+     * caché de notas; quien los muestra conserva solo los que están cerca de la pantalla.
+     *
+     * @param id    ID de la nota.
+     * @param index Número del bloque.
+     * @return LiveData que recibe el texto del bloque, o null si no existe.
+     */
+    public LiveData<String> loadNoteChunk(long id, int index) {
+        MutableLiveData<String> result = new MutableLiveData<>();
+        submit(readExecutor, result, "NoteRepository.loadNoteChunk",
+                () -> result.postValue(dataSource().getNoteChunk(id, index)));
+        return result;
+    }
+
+    /**
+     * Inserta una nota en segundo plano.
+     *
+     * @param note Nota a insertar.
+     * @return LiveData que recibe el ID de la nota insertada, o -1 si falló.
+     */
+    public LiveData<Long> insertNote(Note note) {
+        MutableLiveData<Long> result = new MutableLiveData<>();
+        if (!submit(writeExecutor, result, "NoteRepository.insertNote", () -> {
+            long id = dataSource().insertNote(note);
+            if (id != -1) {
+                cacheCopy(id, note);
+            }
+            result.postValue(id);
+        })) {
+            result.setValue(-1L);
+        }
+        return result;
+    }
+
+    /**
+     * Actualiza una nota en segundo plano.
+     *
+     * @param note Nota con la información actualizada.
+     * @return LiveData que recibe true si la actualización fue exitosa.
+     */
+    public LiveData<Boolean> updateNote(Note note) {
+        MutableLiveData<Boolean> result = new MutableLiveData<>();
+        if (!submit(writeExecutor, result, "NoteRepository.updateNote", () -> {
+            boolean updated = dataSource().updateNote(note);
+            if (updated) {
+                cacheCopy(note.getId(), note);
+            }
+            result.postValue(updated);
+        })) {
+            result.setValue(false);
+        }
+        return result;
+    }
+
+    /**
+     * Crea un autoguardado para un editor de notas. Sus escrituras se ejecutan en el hilo de
+     * escritura, como las demás.
+     *
+     * @return Autoguardado nuevo, sin editor registrado.
+     */
+    public NoteAutosaver newAutosaver() {
+        return new NoteAutosaver(this, mainHandler, NoteAutosaver.DEFAULT_INTERVAL_MS);
+    }
+
+    /**
+     * Envía una tarea al hilo de escritura. La usa NoteAutosaver para ordenar sus escrituras con las
+     * demás.
+     *
+     * @param section Nombre de la tarea en las trazas.
+     * @return False si la cola de escrituras está llena.
+     */
+    boolean executeWrite(String section, Runnable task) {
+        int cookie = NoteTrace.beginAsync(section);
+        try {
+            writeExecutor.execute(() -> {
+                NoteTrace.begin(section);
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Error al guardar la nota", e);
+                } finally {
+                    NoteTrace.end();
+                    NoteTrace.endAsync(section, cookie);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            NoteTrace.endAsync(section, cookie);
+            Log.e(TAG, "Cola de escrituras llena", e);
+            return false;
+        }
+    }
+
+    /**
+     * Ejecuta una tarea en el hilo de escritura y espera su resultado. La usan las importaciones,
+     * que leen el archivo en su propio hilo pero guardan cada bloque en orden con las demás
+     * escrituras. No debe llamarse desde el hilo de escritura ni desde el hilo principal.
+     *
+     * @param section Nombre de la tarea en las trazas.
+     * @param task    Tarea a ejecutar.
+     * @return Resultado de la tarea.
+     * @throws RejectedExecutionException Si la cola de escrituras está llena.
+     * @throws OperationCanceledException Si el hilo que espera se interrumpió.
+     */
+    private <T> T writeAndWait(String section, Callable<T> task) {
+        int cookie = NoteTrace.beginAsync(section);
+        Future<T> future;
+        try {
+            future = writeExecutor.submit(() -> {
+                NoteTrace.begin(section);
+                try {
+                    return task.call();
+                } finally {
+                    NoteTrace.end();
+                    NoteTrace.endAsync(section, cookie);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            NoteTrace.endAsync(section, cookie);
+            throw e;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Inserta una nota. Solo debe llamarse desde el hilo de escritura.
+     *
+     * @return ID de la nota insertada, o -1 si falló.
+     */
+    long writeInsert(Note note) {
+        long id = dataSource().insertNote(note);
+        if (id != -1) {
+            cacheCopy(id, note);
+        }
+        return id;
+    }
+
+    /**
+     * Guarda solo el rango modificado de una nota, o la nota completa si no hay rango o el cambio
+     * por rango no se puede aplicar. Solo debe llamarse desde el hilo de escritura.
+     *
+     * @param edit Rango modificado desde la última versión guardada, o null.
+     * @param note Nota con la información actualizada. Si su contenido es null, solo se puede
+     *             guardar el rango.
+     * @return Nueva fecha de modificación, o 0 si no se pudo guardar.
+     */
+    long writeUpdate(NoteEdit edit, Note note) {
+        if (edit != null) {
+            long updatedAt = dataSource().applyNoteEdit(edit);
+            if (updatedAt != 0) {
+                scheduleCompaction(COMPACTION_DELAY_MS);
+                return updatedAt;
+            }
+        }
+        if (note.getContent() == null) {
+            return 0;
+        }
+        // La nota del editor no tiene fecha de creación, por lo que no se guarda en la caché
+        return dataSource().updateNote(note) ? note.getUpdatedAt() : 0;
+    }
+
+    /**
+     * Elimina una nota en segundo plano.
+     *
+     * @param id ID de la nota a eliminar.
+     * @return LiveData que recibe true cuando la nota fue eliminada.
+     */
+    public LiveData<Boolean> deleteNote(long id) {
+        MutableLiveData<Boolean> result = new MutableLiveData<>();
+        if (!submit(writeExecutor, result, "NoteRepository.deleteNote", () -> {
+            dataSource().deleteNote(id);
+            result.postValue(true);
+        })) {
+            result.setValue(false);
+        }
+        return result;
+    }
+
+    /**
+     * Inserta varias notas en una sola transacción en segundo plano.
+     *
+     * @param notes Notas a insertar; no deben modificarse mientras la operación está pendiente.
+     * @return LiveData que recibe el resumen del lote, o null si falló.
+     */
+    public LiveData<BatchResult> insertNotes(Collection<Note> notes) {
+        MutableLiveData<BatchResult> result = new MutableLiveData<>();
+        if (!submit(writeExecutor, result, "NoteRepository.insertNotes",
+                () -> result.postValue(dataSource().insertNotes(notes)))) {
+            result.setValue(null);
+        }
+        return result;
+    }
+
+    /**
+     * Actualiza varias notas en una sola transacción en segundo plano.
+     *
+     * @param notes Notas con la información actualizada; no deben modificarse mientras la operación
+     *              está pendiente.
+     * @return LiveData que recibe el resumen del lote, o null si falló.
+     */
+    public LiveData<BatchResult> updateNotes(Collection<Note> notes) {
+        MutableLiveData<BatchResult> result = new MutableLiveData<>();
+        if (!submit(writeExecutor, result, "NoteRepository.updateNotes",
+                () -> result.postValue(dataSource().updateNotes(notes)))) {
+            result.setValue(null);
+        }
+        return result;
+    }
+
+    /**
+     * Elimina varias notas en una sola transacción en segundo plano.
+     *
+     * @param ids IDs de las notas a eliminar.
+     * @return LiveData que recibe el resumen del lote, o null si falló.
+     */
+    public LiveData<BatchResult> deleteNotes(long[] ids) {
+        MutableLiveData<BatchResult> result = new MutableLiveData<>();
+        long[] copy = ids.clone();
+        if (!submit(writeExecutor, result, "NoteRepository.deleteNotes",
+                () -> result.postValue(dataSource().deleteNotes(copy)))) {
+            result.setValue(null);
+        }
+        return result;
+    }
+
+    /**
+     * Exporta todas las notas en segundo plano a un documento, por ejemplo uno elegido por el usuario
+     * con el selector de archivos del sistema.
+     *
+     * @param destination URI del documento de destino.
+     * @param format      Formato de salida.
+     * @param signal      Señal para cancelar la exportación.
+     * @return LiveData que recibe el avance y el estado final de la exportación.
+     */
+    public LiveData<BackupProgress> exportNotes(Uri destination, NoteExporter.Format format,
+                                                CancellationSignal signal) {
+        BackupProgress.Operation operation = BackupProgress.Operation.EXPORT;
+        MutableLiveData<BackupProgress> progress = new MutableLiveData<>(new BackupProgress(
+                operation, BackupProgress.State.RUNNING, 0, 0, BackupProgress.UNKNOWN_TOTAL));
+        backupExecutor.execute(() -> {
+            NoteTrace.begin("NoteRepository.exportNotes");
+            long[] done = {0, BackupProgress.UNKNOWN_TOTAL};
+            try (OutputStream out = appContext.getContentResolver().openOutputStream(destination)) {
+                if (out == null) {
+                    throw new IOException("No se pudo abrir " + destination);
+                }
+                new NoteExporter(dataSource()).export(out, format, (exported, total) -> {
+                    done[0] = exported;
+                    done[1] = total;
+                    progress.postValue(new BackupProgress(operation, BackupProgress.State.RUNNING,
+                            exported, 0, total));
+                }, signal);
+                progress.postValue(new BackupProgress(operation, BackupProgress.State.FINISHED,
+                        done[0], 0, done[1]));
+            } catch (OperationCanceledException e) {
+                progress.postValue(new BackupProgress(operation, BackupProgress.State.CANCELED,
+                        done[0], 0, done[1]));
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error al exportar las notas", e);
+                progress.postValue(new BackupProgress(operation, BackupProgress.State.FAILED,
+                        done[0], 0, done[1]));
+            } finally {
+                NoteTrace.end();
+            }
+        });
+        return progress;
+    }
+
+    /**
+     * Importa notas en segundo plano desde un documento NDJSON o ZIP. Las notas cuyo contenido ya
+     * existe se omiten. Si una importación anterior del mismo documento se interrumpió, se continúa
+     * desde el último bloque guardado.
+     *
+     * @param source URI del documento de origen.
+     * @param signal Señal para cancelar la importación.
+     * @return LiveData que recibe el avance y el estado final de la importación.
+     */
+    public LiveData<BackupProgress> importNotes(Uri source, CancellationSignal signal) {
+        BackupProgress.Operation operation = BackupProgress.Operation.IMPORT;
+        MutableLiveData<BackupProgress> progress = new MutableLiveData<>(new BackupProgress(
+                operation, BackupProgress.State.RUNNING, 0, 0, BackupProgress.UNKNOWN_TOTAL));
+        backupExecutor.execute(() -> {
+            NoteTrace.begin("NoteRepository.importNotes");
+            SharedPreferences prefs = appContext.getSharedPreferences(BACKUP_PREFS, Context.MODE_PRIVATE);
+            String sourceKey = source.toString();
+            long resumeFrom = sourceKey.equals(prefs.getString(KEY_IMPORT_SOURCE, null))
+                    ? prefs.getLong(KEY_IMPORT_RECORDS, 0) : 0;
+            long[] done = {0, 0};
+            try (InputStream in = appContext.getContentResolver().openInputStream(source)) {
+                if (in == null) {
+                    throw new IOException("No se pudo abrir " + source);
+                }
+                // Las notas creadas antes de la versión 3 de la base de datos podrían no tener hash
+                // todavía; se completa primero para que también se detecten como duplicadas. Los
+                // lotes se ejecutan en el hilo de escritura, como los de scheduleBackfill
+                while (writeAndWait("NoteRepository.backfill",
+                        () -> dataSource().runBackfillBatch(BACKFILL_BATCH_SIZE)) > 0) {
+                    if (signal != null) {
+                        signal.throwIfCanceled();
+                    }
+                }
+                // El archivo se lee en este hilo y cada bloque se guarda en el hilo de escritura
+                NoteImporter importer = new NoteImporter(notes -> writeAndWait("NoteRepository.importChunk",
+                        () -> dataSource().insertNotes(notes, true)));
+                importer.importNotes(in, resumeFrom, (records, imported, skipped) -> {
+                    done[0] = imported;
+                    done[1] = skipped;
+                    // commit() es síncrono; el avance queda guardado antes de leer el siguiente bloque
+                    prefs.edit()
+                            .putString(KEY_IMPORT_SOURCE, sourceKey)
+                            .putLong(KEY_IMPORT_RECORDS, records)
+                            .commit();
+                    progress.postValue(new BackupProgress(operation, BackupProgress.State.RUNNING,
+                            imported, skipped, BackupProgress.UNKNOWN_TOTAL));
+                }, signal);
+                prefs.edit().remove(KEY_IMPORT_SOURCE).remove(KEY_IMPORT_RECORDS).apply();
+                progress.postValue(new BackupProgress(operation, BackupProgress.State.FINISHED,
+                        done[0], done[1], BackupProgress.UNKNOWN_TOTAL));
+            } catch (OperationCanceledException e) {
+                progress.postValue(new BackupProgress(operation, BackupProgress.State.CANCELED,
+                        done[0], done[1], BackupProgress.UNKNOWN_TOTAL));
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error al importar las notas", e);
+                progress.postValue(new BackupProgress(operation, BackupProgress.State.FAILED,
+                        done[0], done[1], BackupProgress.UNKNOWN_TOTAL));
+            } finally {
+                NoteTrace.end();
+            }
+        });
+        return progress;
+    }
+
+    /**
+     * Guarda en la caché una copia de una nota recién escrita. Se copia porque quien la escribió
+     * puede seguir modificando su instancia. Las actualizaciones hechas con una nota sin fecha de
+     * creación no se guardan, para que la siguiente lectura la obtenga completa de la base de datos.
+     *
+     * @param id   ID de la nota.
+     * @param note Nota escrita.
+     */
+    private void cacheCopy(long id, Note note) {
+        if (note.getCreatedAt() == 0) {
+            return;
+        }
+        Note copy = new Note(note.getTitle(), note.getContent());
+        copy.setId(id);
+        copy.setCreatedAt(note.getCreatedAt());
+        copy.setUpdatedAt(note.getUpdatedAt());
+        synchronized (noteCache) {
+            noteCache.put(id, copy);
+        }
+    }
+
+    /**
+     * Invalida las notas afectadas por cambios publicados en NoteChangeNotifier. Se ejecuta en el hilo
+     * que hizo la escritura, antes de que el repositorio guarde la nueva versión en la caché.
+     *
+     * @param changes Cambios aplicados.
+     */
+    private void onNotesChanged(List<NoteChange> changes) {
+        synchronized (noteCache) {
+            changeCount.incrementAndGet();
+            for (NoteChange change : changes) {
+                noteCache.remove(change.getId());
+            }
+        }
+    }
+
+    private static int length(String text) {
+        return text != null ? text.length() : 0;
+    }
+
+    /**
+     * Devuelve la fuente de datos, abriendo la base de datos la primera vez. Solo debe llamarse
+     * desde los hilos de los executors.
+     */
+    private NoteDataSource dataSource() {
+        if (!opened) {
+            synchronized (this) {
+                if (!opened) {
+                    NoteTrace.begin("NoteRepository.openDatabase");
+                    try {
+                        noteDataSource.open();
+                    } finally {
+                        NoteTrace.end();
+                    }
+                    opened = true;
+                    scheduleBackfill();
+                    // Cambios por rango que quedaron sin compactar en la ejecución anterior
+                    scheduleCompaction(0);
+                }
+            }
+        }
+        return noteDataSource;
+    }
+
+    /**
+     * Procesa en el hilo de escritura un lote del trabajo que dejaron las migraciones y se vuelve a
+     * programar mientras quede trabajo. Entre lotes se ejecutan las escrituras del usuario, así que
+     * la aplicación sigue respondiendo aunque haya miles de notas por completar.
+     */
+    private void scheduleBackfill() {
+        try {
+            writeExecutor.execute(() -> {
+                NoteTrace.begin("NoteRepository.backfill");
+                try {
+                    if (noteDataSource.runBackfillBatch(BACKFILL_BATCH_SIZE) > 0) {
+                        scheduleBackfill();
+                    }
+                } catch (RuntimeException e) {
+                    // Se vuelve a intentar la próxima vez que se abra la base de datos
+                    Log.e(TAG, "Error al completar las migraciones", e);
+                } finally {
+                    NoteTrace.end();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Cola de escrituras llena; las migraciones pendientes se completarán después");
+        }
+    }
+
+    /**
+     * Programa la compactación de los cambios por rango pendientes. Si ya hay una programada, no hace
+     * nada, por lo que varios cambios seguidos producen una sola compactación.
+     *
+     * @param delayMillis Espera antes de enviar la tarea al hilo de escritura.
+     */
+    private void scheduleCompaction(long delayMillis) {
+        if (!compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        mainHandler.postDelayed(() -> {
+            try {
+                writeExecutor.execute(this::compactEdits);
+            } catch (RejectedExecutionException e) {
+                compactionScheduled.set(false);
+                scheduleCompaction(COMPACTION_DELAY_MS);
+            }
+        }, delayMillis);
+    }
+
+    /**
+     * Compacta un lote de notas en el hilo de escritura y programa el siguiente mientras quede trabajo.
+     * Entre lotes se ejecutan las escrituras del usuario.
+     */
+    private void compactEdits() {
+        compactionScheduled.set(false);
+        NoteTrace.begin("NoteRepository.compactEdits");
+        try {
+            if (noteDataSource.compactNoteEdits(COMPACTION_BATCH_SIZE) > 0) {
+                scheduleCompaction(0);
+            }
+        } catch (RuntimeException e) {
+            // Los cambios siguen en el registro; se vuelve a intentar con el siguiente cambio por rango
+            Log.e(TAG, "Error al compactar los cambios de las notas", e);
+        } finally {
+            NoteTrace.end();
+        }
+    }
+
+    /**
+     * Envía una tarea a un executor. Si la tarea lanza una excepción, se registra y el LiveData
+     * recibe null para que la interfaz no quede esperando indefinidamente. Las consultas canceladas
+     * también entregan null, pero no se registran como errores.
+     *
+     * @param section Nombre de la operación en las trazas.
+     * @return False si el executor rechazó la tarea porque su cola está llena.
+     */
+    private boolean submit(ExecutorService executor, MutableLiveData<?> result, String section, Runnable task) {
+        int cookie = NoteTrace.beginAsync(section);
+        try {
+            executor.execute(() -> {
+                NoteTrace.begin(section);
+                try {
+                    task.run();
+                } catch (OperationCanceledException e) {
+                    result.postValue(null);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Error al acceder a la base de datos", e);
+                    result.postValue(null);
+                } finally {
+                    NoteTrace.end();
+                    NoteTrace.endAsync(section, cookie);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            NoteTrace.endAsync(section, cookie);
+            Log.e(TAG, "Cola de operaciones llena", e);
+            return false;
+        }
+    }
+
+    /**
+     * Fábrica de hilos con nombres descriptivos y prioridad de segundo plano.
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
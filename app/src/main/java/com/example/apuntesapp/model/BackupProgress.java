@@ -0,0 +1,91 @@
+package com.example.apuntesapp.model;
+
+/**
+ * Clase que representa el avance de una exportación o importación de notas.
+ *
+ * Conceptos:
+ * - Model-View-ViewModel (MVVM): La interfaz observa instancias de esta clase mediante LiveData para
+ *   mostrar el progreso sin conocer cómo se leen o escriben las notas.
+ *
+ * - Clean Architecture: Es un objeto de datos inmutable que no expone detalles de archivos ni de SQLite.
+ */
+public class BackupProgress {
+
+    /**
+     * Operaciones cuyo avance se informa.
+     */
+    public enum Operation {
+        EXPORT,
+        IMPORT
+    }
+
+    /**
+     * Estados posibles de la operación.
+     */
+    public enum State {
+        RUNNING,
+        FINISHED,
+        CANCELED,
+        FAILED
+    }
+
+    /**
+     * Valor de total cuando la cantidad de notas no se conoce de antemano.
+     */
+    public static final long UNKNOWN_TOTAL = -1;
+
+    private final Operation operation;
+    private final State state;
+    private final long processed;
+    private final long skipped;
+    private final long total;
+
+    /**
+     * Constructor del progreso.
+     *
+     * @param operation Operación en curso.
+     * @param state     Estado de la operación.
+     * @param processed Cantidad de notas procesadas hasta ahora.
+     * @param skipped   Cantidad de notas omitidas, por ejemplo por estar duplicadas.
+     * @param total     Cantidad total de notas, o UNKNOWN_TOTAL si no se conoce.
+     */
+    public BackupProgress(Operation operation, State state, long processed, long skipped, long total) {
+        this.operation = operation;
+        this.state = state;
+        this.processed = processed;
+        this.skipped = skipped;
+        this.total = total;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Calcula el porcentaje completado.
+     *
+     * @return Porcentaje entre 0 y 100, o -1 si el total no se conoce.
+     */
+    public int getPercent() {
+        if (total == UNKNOWN_TOTAL) {
+            return -1;
+        }
+        return total == 0 ? 100 : (int) Math.min(100, processed * 100 / total);
+    }
+}
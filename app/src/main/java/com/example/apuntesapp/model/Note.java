@@ -22,6 +22,9 @@ public class Note {
     private long id;
     private String title;
     private String content;
+    // Fechas de creación y última modificación en milisegundos; 0 si no se conocen
+    private long createdAt;
+    private long updatedAt;
 
     /**
      * Constructor por defecto requerido para SQLite.
@@ -67,5 +70,21 @@ public class Note {
     public void setContent(String content) {
         this.content = content;
     }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
 
@@ -0,0 +1,59 @@
+package com.example.apuntesapp.model;
+
+/**
+ * Clase que describe un cambio aplicado a una nota en la base de datos.
+ *
+ * Conceptos:
+ * - Model-View-ViewModel (MVVM): Los ViewModel reciben estos cambios y actualizan sus listas en memoria
+ *   sin volver a consultar la tabla de notas.
+ *
+ * - Clean Architecture: Es un objeto de datos inmutable; no expone detalles de SQLite.
+ */
+public class NoteChange {
+
+    /**
+     * Tipos de cambio que se pueden aplicar a una nota.
+     */
+    public enum Type {
+        INSERTED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final long id;
+    private final String title;
+    private final long updatedAt;
+
+    /**
+     * Constructor del cambio.
+     *
+     * @param type      Tipo de cambio.
+     * @param id        ID de la nota afectada.
+     * @param title     Título de la nota después del cambio, o null si la nota fue eliminada.
+     * @param updatedAt Fecha de modificación guardada con el cambio en milisegundos, o 0 si la nota
+     *                  fue eliminada.
+     */
+    public NoteChange(Type type, long id, String title, long updatedAt) {
+        this.type = type;
+        this.id = id;
+        this.title = title;
+        this.updatedAt = updatedAt;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+}
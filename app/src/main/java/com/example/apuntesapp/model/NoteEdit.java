@@ -0,0 +1,64 @@
+package com.example.apuntesapp.model;
+
+/**
+ * Clase que describe un cambio en una nota como el reemplazo de un único rango de su contenido.
+ *
+ * Conceptos:
+ * - Model-View-ViewModel (MVVM): El editor construye este objeto con la región que el usuario
+ *   modificó desde el último guardado, en lugar de enviar la nota completa.
+ *
+ * - Concurrencia optimista: baseUpdatedAt es la fecha de modificación de la versión sobre la que se
+ *   calcularon las posiciones. Si la nota cambió por otro camino, el cambio no se aplica y se debe
+ *   guardar la nota completa.
+ */
+public class NoteEdit {
+    private final long noteId;
+    private final long baseUpdatedAt;
+    private final String title;
+    private final int start;
+    private final int end;
+    private final String replacement;
+
+    /**
+     * Constructor del cambio.
+     *
+     * @param noteId        ID de la nota.
+     * @param baseUpdatedAt Fecha de modificación de la versión editada, en milisegundos.
+     * @param title         Título completo de la nota después del cambio.
+     * @param start         Inicio del rango reemplazado en el contenido de la versión editada.
+     * @param end           Fin del rango reemplazado, exclusivo.
+     * @param replacement   Texto nuevo del rango.
+     */
+    public NoteEdit(long noteId, long baseUpdatedAt, String title, int start, int end, String replacement) {
+        this.noteId = noteId;
+        this.baseUpdatedAt = baseUpdatedAt;
+        this.title = title;
+        this.start = start;
+        this.end = end;
+        this.replacement = replacement;
+    }
+
+    public long getNoteId() {
+        return noteId;
+    }
+
+    public long getBaseUpdatedAt() {
+        return baseUpdatedAt;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public String getReplacement() {
+        return replacement;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.apuntesapp.model;
+
+/**
+ * Clase que describe una nota para mostrarla por bloques, sin su contenido.
+ *
+ * Conceptos:
+ * - Model-View-ViewModel (MVVM): Es el modelo que consume la pantalla de detalle. Con la cantidad de
+ *   bloques la lista de párrafos conoce su tamaño de inmediato y pide cada bloque solo cuando está
+ *   por mostrarse.
+ *
+ * - Clean Architecture: La interfaz no sabe si la nota está dividida en la base de datos; una nota
+ *   que no lo está se describe con un solo bloque.
+ */
+public class NoteOutline {
+    private final long id;
+    private final String title;
+    private final int chunkCount;
+
+    /**
+     * Constructor de la descripción de una nota.
+     *
+     * @param id         ID de la nota.
+     * @param title      Título de la nota.
+     * @param chunkCount Cantidad de bloques del contenido.
+     */
+    public NoteOutline(long id, String title, int chunkCount) {
+        this.id = id;
+        this.title = title;
+        this.chunkCount = chunkCount;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+}
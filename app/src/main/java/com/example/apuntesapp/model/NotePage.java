@@ -0,0 +1,56 @@
+package com.example.apuntesapp.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Clase que representa una página de resultados obtenida con paginación por llave (keyset).
+ *
+ * Conceptos:
+ * - Clean Architecture: Es un objeto de datos inmutable que viaja desde la capa de datos hasta la
+ *   interfaz de usuario sin exponer detalles de SQLite.
+ *
+ * - Paginación por llave: En lugar de usar OFFSET, cada página guarda un cursor (la llave de la
+ *   última fila leída) que se utiliza para pedir la siguiente página. Así el costo de cada consulta
+ *   no crece con el número de notas ya cargadas.
+ *
+ * @param <T> Tipo de los elementos de la página.
+ */
+public class NotePage<T> {
+
+    /**
+     * Valor del cursor que indica que no existen más páginas por cargar.
+     */
+    public static final long END_OF_LIST = -1;
+
+    private final List<T> items;
+    private final long nextCursor;
+
+    /**
+     * Constructor de la página.
+     *
+     * @param items      Elementos contenidos en la página.
+     * @param nextCursor Cursor para pedir la siguiente página, o END_OF_LIST si es la última.
+     */
+    public NotePage(List<T> items, long nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public long getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Indica si existen más páginas después de esta.
+     *
+     * @return True si se puede pedir otra página con getNextCursor().
+     */
+    public boolean hasMore() {
+        return nextCursor != END_OF_LIST;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.apuntesapp.model;
+
+import java.util.Comparator;
+
+/**
+ * Criterios de orden disponibles para la lista de notas.
+ *
+ * Conceptos:
+ * - Clean Architecture: La interfaz elige un criterio sin conocer las columnas ni los índices que
+ *   NoteDataSource utiliza para resolverlo.
+ *
+ * - Paginación por llave: Cada criterio corresponde a un índice de la base de datos, por lo que cada
+ *   página se lee en orden directamente del índice, a partir de la llave de la última fila cargada.
+ *
+ * - Comparador: compare() reproduce en memoria el ORDER BY de cada criterio. El ViewModel lo usa para
+ *   ubicar las notas nuevas o editadas sin volver a consultar la lista.
+ */
+public enum NoteSortOrder implements Comparator<NoteSummary> {
+
+    // Orden de creación, de la más antigua a la más reciente (_id ASC)
+    CREATED {
+        @Override
+        public int compare(NoteSummary a, NoteSummary b) {
+            return Long.compare(a.getId(), b.getId());
+        }
+    },
+
+    // Modificadas más recientemente primero (updated_at DESC, _id ASC)
+    UPDATED {
+        @Override
+        public int compare(NoteSummary a, NoteSummary b) {
+            int result = Long.compare(b.getUpdatedAt(), a.getUpdatedAt());
+            return result != 0 ? result : Long.compare(a.getId(), b.getId());
+        }
+    },
+
+    // Alfabético sin distinguir mayúsculas (title COLLATE NOCASE ASC, _id ASC)
+    TITLE {
+        @Override
+        public int compare(NoteSummary a, NoteSummary b) {
+            int result = compareNoCase(a.getTitle(), b.getTitle());
+            return result != 0 ? result : Long.compare(a.getId(), b.getId());
+        }
+    };
+
+    /**
+     * Compara dos textos igual que la intercalación NOCASE de SQLite: los valores null van primero y
+     * solo las letras ASCII se comparan sin distinguir mayúsculas. SQLite compara los bytes UTF-8,
+     * cuyo orden es el de los puntos de código; por eso se recorren puntos de código y no unidades
+     * UTF-16, que ordenan distinto los caracteres fuera del plano básico, como los emojis.
+     */
+    private static int compareNoCase(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                int result = Integer.compare(toLowerAscii(ca), toLowerAscii(cb));
+                if (result != 0) {
+                    return result;
+                }
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Boolean.compare(i < a.length(), j < b.length());
+    }
+
+    private static int toLowerAscii(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+}
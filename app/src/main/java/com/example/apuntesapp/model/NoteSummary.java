@@ -0,0 +1,61 @@
+package com.example.apuntesapp.model;
+
+/**
+ * Clase que representa una versión ligera de una nota para mostrarla en listas.
+ *
+ * Conceptos:
+ * - Model-View-ViewModel (MVVM): Es el modelo que consume la pantalla de lista. Solo contiene los
+ *   datos que la lista necesita, de modo que el contenido completo de la nota nunca se lee de la
+ *   base de datos ni se copia en memoria mientras el usuario recorre la lista.
+ *
+ * - Clean Architecture: La nota completa (Note) se obtiene por su ID únicamente cuando una pantalla
+ *   de detalle o edición la necesita.
+ */
+public class NoteSummary {
+    private final long id;
+    private final String title;
+    private final String snippet;
+    private final long updatedAt;
+
+    /**
+     * Constructor del resumen de una nota sin fecha de modificación.
+     *
+     * @param id      ID de la nota.
+     * @param title   Título de la nota.
+     * @param snippet Fragmento corto del contenido, o null si no se solicitó.
+     */
+    public NoteSummary(long id, String title, String snippet) {
+        this(id, title, snippet, 0);
+    }
+
+    /**
+     * Constructor del resumen de una nota.
+     *
+     * @param id        ID de la nota.
+     * @param title     Título de la nota.
+     * @param snippet   Fragmento corto del contenido, o null si no se solicitó.
+     * @param updatedAt Fecha de la última modificación en milisegundos, o 0 si no se leyó.
+     */
+    public NoteSummary(long id, String title, String snippet, long updatedAt) {
+        this.id = id;
+        this.title = title;
+        this.snippet = snippet;
+        this.updatedAt = updatedAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+}
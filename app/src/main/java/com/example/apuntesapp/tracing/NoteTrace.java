@@ -0,0 +1,90 @@
+package com.example.apuntesapp.tracing;
+
+import androidx.tracing.Trace;
+
+import com.example.apuntesapp.BuildConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Secciones de traza (systrace/Perfetto) alrededor del ciclo de vida de las notas: creación de la
+ * lista, inflado y enlace de filas, guardado y acceso a la base de datos.
+ *
+ * Conceptos:
+ * - Interruptor de compilación: ENABLED es una constante tomada de BuildConfig.TRACING, así que
+ *   cuando es false el compilador elimina el cuerpo de cada método y las llamadas quedan vacías.
+ *   Está activo en debug y benchmark y apagado en release; la propiedad de Gradle apuntes.tracing
+ *   lo cambia en cualquier variante (por ejemplo "-Papuntes.tracing=true").
+ *
+ * - Secciones síncronas: begin() y end() marcan un tramo del hilo actual y deben llamarse en el
+ *   mismo hilo, siempre en pares (normalmente con try/finally). Aparecen anidadas dentro de las
+ *   secciones del sistema, como "inflate" o "RV OnBindView".
+ *
+ * - Secciones asíncronas: beginAsync() y endAsync() marcan una operación que empieza en un hilo y
+ *   termina en otro, por ejemplo desde que una consulta se pide en el hilo principal hasta que
+ *   termina en el hilo de lectura. El tiempo en cola se ve como la diferencia entre la sección
+ *   asíncrona y la síncrona del hilo de trabajo.
+ *
+ * - Captura: Las secciones solo se registran mientras hay una traza activa para la aplicación, por
+ *   ejemplo con "record_android_trace -a com.example.apuntesapp -t 10s view am dalvik" o con las
+ *   trazas que guarda Macrobenchmark en cada iteración.
+ */
+public final class NoteTrace {
+
+    // Constante de compilación; con false el compilador descarta todo el trazado
+    public static final boolean ENABLED = BuildConfig.TRACING;
+
+    // Identificadores de las secciones asíncronas; dos operaciones con el mismo nombre pueden
+    // estar en curso al mismo tiempo
+    private static final AtomicInteger nextCookie = new AtomicInteger();
+
+    private NoteTrace() {
+    }
+
+    /**
+     * Empieza una sección en el hilo actual.
+     *
+     * @param section Nombre de la sección, de como máximo 127 caracteres.
+     */
+    public static void begin(String section) {
+        if (ENABLED) {
+            Trace.beginSection(section);
+        }
+    }
+
+    /**
+     * Termina la última sección empezada en el hilo actual.
+     */
+    public static void end() {
+        if (ENABLED) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Empieza una sección asíncrona.
+     *
+     * @param section Nombre de la sección.
+     * @return Identificador que debe entregarse a endAsync con el mismo nombre.
+     */
+    public static int beginAsync(String section) {
+        if (ENABLED) {
+            int cookie = nextCookie.incrementAndGet();
+            Trace.beginAsyncSection(section, cookie);
+            return cookie;
+        }
+        return 0;
+    }
+
+    /**
+     * Termina una sección asíncrona. Puede llamarse desde cualquier hilo.
+     *
+     * @param section Nombre usado en beginAsync.
+     * @param cookie  Identificador devuelto por beginAsync.
+     */
+    public static void endAsync(String section, int cookie) {
+        if (ENABLED) {
+            Trace.endAsyncSection(section, cookie);
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package com.example.apuntesapp.ui.addnote;
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import com.example.apuntesapp.R;
-import com.example.apuntesapp.data.database.NoteDataSource;
+import com.example.apuntesapp.data.repository.NoteAutosaver;
 import com.example.apuntesapp.model.Note;
+import com.example.apuntesapp.tracing.NoteTrace;
+import com.example.apuntesapp.viewmodel.NoteViewModel;
 
 /**
  * Actividad para agregar nuevas notas.
@@ -31,15 +36,44 @@ import com.example.apuntesapp.model.Note;
  *
  * - Custom Views: La actividad no utiliza vistas personalizadas, pero hace uso de componentes
  *   de la interfaz de usuario de Android (EditText, Button) para la entrada y la interacción del usuario.
+ *
+ * - Autoguardado: La nota se inserta con NoteAutosaver en cuanto tiene título y contenido, la misma
+ *   regla que aplica el botón de agregar, y después se actualiza como máximo una vez por intervalo, y
+ *   siempre al pasar a segundo plano (onPause). Una nota incompleta no se guarda, así que salir con
+ *   el botón atrás antes de completarla la descarta. El ID de la nota insertada se guarda en el
+ *   estado de la actividad para no insertarla otra vez si el proceso se recrea.
+ *
+ * - Trazas: El guardado con el botón es la sección asíncrona "AddNoteActivity.save" de NoteTrace,
+ *   desde el clic hasta que la escritura termina, y contiene las secciones del autoguardado y del
+ *   hilo de escritura.
  */
 
 public class AddNoteActivity extends AppCompatActivity {
 
+    private static final String STATE_NOTE_ID = "state_note_id";
+
     private EditText editTextTitle;
     private EditText editTextContent;
-    private NoteDataSource noteDataSource;
+    private NoteViewModel noteViewModel;
     private ImageButton btnAtras;
     private Button btnSubmit;
+    private NoteAutosaver autosaver;
+
+    // Avisa al autoguardado de cada cambio en el título o el contenido
+    private final TextWatcher autosaveWatcher = new TextWatcher() {
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            autosaver.onEdited();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -51,8 +85,21 @@ public class AddNoteActivity extends AppCompatActivity {
         btnSubmit = findViewById(R.id.btnSubmit);
         btnAtras = findViewById(R.id.imagebuttonAddAtras);
 
-        noteDataSource = new NoteDataSource(this);
-        noteDataSource.open();
+        // La inserción se delega al ViewModel, que la ejecuta fuera del hilo principal
+        noteViewModel = new ViewModelProvider(this).get(NoteViewModel.class);
+
+        // El autoguardado pertenece al ViewModel; si el proceso se recreó, continúa con la nota que
+        // ya se había insertado
+        autosaver = noteViewModel.getAutosaver();
+        long savedNoteId = savedInstanceState != null ? savedInstanceState.getLong(STATE_NOTE_ID, -1) : -1;
+        if (savedNoteId != -1 && autosaver.getNoteId() == -1) {
+            Note saved = new Note();
+            saved.setId(savedNoteId);
+            autosaver.start(saved);
+        }
+        autosaver.attach(this::takeDraft);
+        editTextTitle.addTextChangedListener(autosaveWatcher);
+        editTextContent.addTextChangedListener(autosaveWatcher);
 
         btnAtras.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -70,23 +117,23 @@ public class AddNoteActivity extends AppCompatActivity {
 
                 // Revisa si el tituto y contenido no estan vacios
                 if (!title.isEmpty() && !content.isEmpty()) {
-                    // Crea una nueva nota con el contenido
-                    Note newNote = new Note();
-                    newNote.setTitle(title);
-                    newNote.setContent(content);
-
-                    // Inserta la nota en la base de datos
-                    long insertedId = noteDataSource.insertNote(newNote);
-
-                    if (insertedId != -1) {
-                        //Nota se ingreso
-                        Toast.makeText(AddNoteActivity.this, "¡Nota Agregada!", Toast.LENGTH_SHORT).show();
-                        finish();
-                    } else {
-                        // Fallo
-                        Toast.makeText(AddNoteActivity.this, "No se pudo agregar la nota.", Toast.LENGTH_SHORT).show();
-                        finish();
-                    }
+                    // Evita insertar la nota dos veces mientras la escritura está en curso
+                    btnSubmit.setEnabled(false);
+
+                    // Guarda lo pendiente; si el autoguardado ya insertó la nota, solo se actualiza
+                    int saveTraceCookie = NoteTrace.beginAsync("AddNoteActivity.save");
+                    autosaver.flush().observe(AddNoteActivity.this, saved -> {
+                        NoteTrace.endAsync("AddNoteActivity.save", saveTraceCookie);
+                        if (Boolean.TRUE.equals(saved) && autosaver.getNoteId() != -1) {
+                            //Nota se ingreso
+                            Toast.makeText(AddNoteActivity.this, "¡Nota Agregada!", Toast.LENGTH_SHORT).show();
+                            finish();
+                        } else {
+                            // Fallo
+                            Toast.makeText(AddNoteActivity.this, "No se pudo agregar la nota.", Toast.LENGTH_SHORT).show();
+                            finish();
+                        }
+                    });
                 } else {
                     Toast.makeText(AddNoteActivity.this, "Porfavor ingrese un titulo y contenido.", Toast.LENGTH_SHORT).show();
                 }
@@ -94,10 +141,43 @@ public class AddNoteActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Guarda lo que quede pendiente al pasar a segundo plano, por si el proceso termina.
+     */
+    @Override
+    protected void onPause() {
+        super.onPause();
+        autosaver.flush();
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putLong(STATE_NOTE_ID, autosaver.getNoteId());
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        //Cierra sql lite cuando la actividad es destruida
-        noteDataSource.close();
+        autosaver.detach();
+    }
+
+    /**
+     * Toma el título y el contenido actuales para el autoguardado. Una nota nueva siempre se guarda
+     * completa.
+     *
+     * @param fullContent No se usa; el borrador siempre incluye el contenido.
+     * @return Borrador a guardar, o null si falta el título o el contenido.
+     */
+    private NoteAutosaver.Draft takeDraft(boolean fullContent) {
+        String title = editTextTitle.getText().toString().trim();
+        String content = editTextContent.getText().toString().trim();
+        if (title.isEmpty() || content.isEmpty()) {
+            return null;
+        }
+        Note note = new Note();
+        note.setTitle(title);
+        note.setContent(content);
+        return new NoteAutosaver.Draft(note, null);
     }
 }
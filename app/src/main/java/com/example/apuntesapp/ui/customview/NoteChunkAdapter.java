@@ -0,0 +1,127 @@
+package com.example.apuntesapp.ui.customview;
+
+import android.util.LruCache;
+import android.util.SparseBooleanArray;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import com.example.apuntesapp.R;
+
+/**
+ * Adaptador que muestra el contenido de una nota como una lista de bloques de párrafos.
+ *
+ * Conceptos:
+ * - Carga diferida: El adaptador solo conoce la cantidad de bloques. Cuando RecyclerView enlaza una
+ *   fila cuyo bloque no está cargado, se muestra un marcador y se pide el bloque con ChunkLoader; al
+ *   llegar el texto, setChunk actualiza solo esa fila.
+ *
+ * - Marcador de altura completa: Mientras un bloque no está cargado, su fila ocupa la altura de la
+ *   lista. Así al abrir una nota larga solo se enlaza, y por lo tanto solo se lee, el primer bloque.
+ *
+ * - Memoria acotada: Los bloques cargados se guardan en un LruCache de MAX_LOADED_CHUNKS elementos.
+ *   Un bloque que salió de la caché se vuelve a pedir si la fila vuelve a mostrarse.
+ */
+public class NoteChunkAdapter extends RecyclerView.Adapter<NoteChunkAdapter.ChunkViewHolder> {
+
+    // Cantidad de bloques que se conservan en memoria
+    private static final int MAX_LOADED_CHUNKS = 16;
+
+    /**
+     * Interfaz para pedir un bloque del contenido. La respuesta se entrega con setChunk.
+     */
+    public interface ChunkLoader {
+        void loadChunk(int index);
+    }
+
+    private final int chunkCount;
+    private final ChunkLoader loader;
+    private final LruCache<Integer, String> loadedChunks = new LruCache<>(MAX_LOADED_CHUNKS);
+    // Bloques pedidos cuya respuesta todavía no llega; el valor no se usa
+    private final SparseBooleanArray pendingChunks = new SparseBooleanArray();
+    private RecyclerView recyclerView;
+
+    /**
+     * Constructor del adaptador.
+     *
+     * @param chunkCount Cantidad de bloques del contenido.
+     * @param loader     Objeto que lee los bloques en segundo plano.
+     */
+    public NoteChunkAdapter(int chunkCount, ChunkLoader loader) {
+        this.chunkCount = chunkCount;
+        this.loader = loader;
+    }
+
+    /**
+     * Guarda el texto de un bloque y actualiza su fila.
+     *
+     * @param index Número del bloque.
+     * @param text  Texto del bloque, o null si no se pudo leer.
+     */
+    public void setChunk(int index, String text) {
+        pendingChunks.delete(index);
+        if (text == null) {
+            return;
+        }
+        loadedChunks.put(index, text);
+        notifyItemChanged(index);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        this.recyclerView = null;
+    }
+
+    @Override
+    public int getItemCount() {
+        return chunkCount;
+    }
+
+    @NonNull
+    @Override
+    public ChunkViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        TextView chunkView = (TextView) LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_note_chunk, parent, false);
+        return new ChunkViewHolder(chunkView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ChunkViewHolder holder, int position) {
+        String text = loadedChunks.get(position);
+        if (text != null) {
+            holder.textViewChunk.setMinHeight(0);
+            holder.textViewChunk.setText(withoutTrailingLineBreak(text));
+            return;
+        }
+
+        holder.textViewChunk.setMinHeight(recyclerView != null ? recyclerView.getHeight() : 0);
+        holder.textViewChunk.setText(R.string.CargandoNota);
+        if (!pendingChunks.get(position)) {
+            pendingChunks.put(position, true);
+            loader.loadChunk(position);
+        }
+    }
+
+    // Cada fila ya se muestra en su propia línea, por lo que el salto final del bloque sobra
+    private static String withoutTrailingLineBreak(String text) {
+        return text.endsWith("\n") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    /**
+     * Clase interna que representa la vista de un bloque.
+     */
+    static class ChunkViewHolder extends RecyclerView.ViewHolder {
+        private final TextView textViewChunk;
+
+        ChunkViewHolder(@NonNull TextView itemView) {
+            super(itemView);
+            textViewChunk = itemView;
+        }
+    }
+}
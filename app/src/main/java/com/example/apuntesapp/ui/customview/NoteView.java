@@ -6,8 +6,13 @@ import android.view.LayoutInflater;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
 import com.example.apuntesapp.R;
 import com.example.apuntesapp.model.Note;
+import com.example.apuntesapp.model.NoteOutline;
+import com.example.apuntesapp.tracing.NoteTrace;
 
 /**
  * Vista personalizada utilizada para mostrar los detalles de una nota en la interfaz de usuario.
@@ -25,11 +30,16 @@ import com.example.apuntesapp.model.Note;
  * - Model-View-ViewModel (MVVM): Aunque la clase se centra en la visualización (View) de detalles
  *   de una nota y no implementa directamente el patrón MVVM, puede ser utilizada en conjunto con
  *   ViewModel para actualizar la interfaz de usuario en respuesta a cambios en los datos.
+ *
+ * - Contenido por bloques: El contenido se muestra en un RecyclerView con un elemento por bloque
+ *   (ver NoteChunkAdapter), por lo que en una nota muy larga solo se leen y dibujan los bloques
+ *   visibles.
  */
 public class NoteView extends LinearLayout {
 
     private TextView titleTextView;
-    private TextView contentTextView;
+    private RecyclerView chunksRecyclerView;
+    private NoteChunkAdapter chunkAdapter;
 
     /**
      * Constructores de la clase.
@@ -54,11 +64,19 @@ public class NoteView extends LinearLayout {
      */
     private void init() {
         // Infla el diseño de la vista personalizada desde el archivo XML
-        LayoutInflater.from(getContext()).inflate(R.layout.custom_note_view, this, true);
+        NoteTrace.begin("NoteView.inflate");
+        try {
+            LayoutInflater.from(getContext()).inflate(R.layout.custom_note_view, this, true);
+        } finally {
+            NoteTrace.end();
+        }
 
         // Obtiene referencias a los elementos de la vista
         titleTextView = findViewById(R.id.customNoteTitle);
-        contentTextView = findViewById(R.id.customNoteContent);
+        chunksRecyclerView = findViewById(R.id.customNoteChunks);
+        chunksRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        // Al llegar un bloque su fila cambia de altura; sin animación el texto aparece de inmediato
+        chunksRecyclerView.setItemAnimator(null);
     }
 
     /**
@@ -67,10 +85,41 @@ public class NoteView extends LinearLayout {
      * @param note Objeto Note que contiene los detalles de la nota.
      */
     public void setNoteData(Note note) {
-        // Establece el texto del título y contenido de la nota en los TextView correspondientes
-        titleTextView.setText(note.getTitle());
-        contentTextView.setText(note.getContent());
+        // El contenido completo ya está en memoria, por lo que se muestra como un solo bloque. La
+        // medición y el dibujo del texto ocurren después, en el cuadro siguiente
+        NoteTrace.begin("NoteView.setNoteData");
+        try {
+            titleTextView.setText(note.getTitle());
+            chunkAdapter = new NoteChunkAdapter(1, index -> { });
+            chunkAdapter.setChunk(0, note.getContent() != null ? note.getContent() : "");
+            chunksRecyclerView.setAdapter(chunkAdapter);
+        } finally {
+            NoteTrace.end();
+        }
     }
-}
 
+    /**
+     * Muestra el título de una nota y prepara la lista de bloques de su contenido. Cada bloque se
+     * pide a loader cuando está por mostrarse y se entrega con setChunk.
+     *
+     * @param outline Descripción de la nota.
+     * @param loader  Objeto que lee los bloques en segundo plano.
+     */
+    public void setNoteOutline(NoteOutline outline, NoteChunkAdapter.ChunkLoader loader) {
+        titleTextView.setText(outline.getTitle());
+        chunkAdapter = new NoteChunkAdapter(outline.getChunkCount(), loader);
+        chunksRecyclerView.setAdapter(chunkAdapter);
+    }
 
+    /**
+     * Entrega el texto de un bloque pedido por el ChunkLoader.
+     *
+     * @param index Número del bloque.
+     * @param text  Texto del bloque, o null si no se pudo leer.
+     */
+    public void setChunk(int index, String text) {
+        if (chunkAdapter != null) {
+            chunkAdapter.setChunk(index, text);
+        }
+    }
+}
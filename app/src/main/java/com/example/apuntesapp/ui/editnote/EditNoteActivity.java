@@ -6,6 +6,8 @@ import androidx.lifecycle.ViewModelProvider;
 
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -13,9 +15,10 @@ import android.widget.ImageButton;
 import android.widget.Toast;
 
 import com.example.apuntesapp.R;
-import com.example.apuntesapp.data.database.NoteDataSource;
+import com.example.apuntesapp.data.repository.NoteAutosaver;
 import com.example.apuntesapp.model.Note;
-import com.example.apuntesapp.ui.addnote.AddNoteActivity;
+import com.example.apuntesapp.model.NoteEdit;
+import com.example.apuntesapp.tracing.NoteTrace;
 import com.example.apuntesapp.viewmodel.NoteViewModel;
 
 /**
@@ -37,19 +40,50 @@ import com.example.apuntesapp.viewmodel.NoteViewModel;
  *
  * - Custom Views: La actividad no utiliza vistas personalizadas, pero hace uso de componentes
  *   de la interfaz de usuario de Android (EditText, Button) para la entrada y la interacción del usuario.
+ *
+ * - Guardado por rango: EditRegionTracker registra la región del contenido modificada desde el
+ *   último guardado. En una nota dividida en bloques solo se envía esa región, y corregir una letra
+ *   no reescribe la nota completa; las notas cortas se envían completas.
+ *
+ * - Autoguardado: Los cambios se guardan con NoteAutosaver mientras el usuario escribe, como máximo
+ *   una vez por intervalo, y siempre al pasar a segundo plano (onPause). El botón de guardar solo
+ *   fuerza el guardado pendiente antes de cerrar la pantalla.
+ *
+ * - Trazas: La carga de la nota y el guardado con el botón son secciones asíncronas de NoteTrace
+ *   ("EditNoteActivity.load" y "EditNoteActivity.save"). Al terminar la carga, la sección
+ *   "EditNoteActivity.bindNote" mide la asignación del texto a los EditText, que en una nota larga
+ *   ocupa el hilo principal.
  */
 public class EditNoteActivity extends AppCompatActivity {
 
     public static final String EXTRA_NOTE_ID = "com.example.apuntesapp.EXTRA_NOTE_ID";
-    public static final String EXTRA_NOTE_TITLE = "com.example.apuntesapp.EXTRA_NOTE_TITLE";
-    public static final String EXTRA_NOTE_CONTENT = "com.example.apuntesapp.EXTRA_NOTE_CONTENT";
 
     private EditText editTextTitle;
     private EditText editTextContent;
     private Button buttonSave;
-    private NoteDataSource noteDataSource;
     private NoteViewModel noteViewModel;
     private ImageButton btnAtras;
+    private final EditRegionTracker editRegion = new EditRegionTracker();
+    private NoteAutosaver autosaver;
+    private long noteId;
+    // Hasta que se carga la nota no hay nada que autoguardar
+    private boolean noteLoaded;
+
+    // Avisa al autoguardado de cada cambio en el título o el contenido
+    private final TextWatcher autosaveWatcher = new TextWatcher() {
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            autosaver.onEdited();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -62,24 +96,46 @@ public class EditNoteActivity extends AppCompatActivity {
         buttonSave = findViewById(R.id.buttonSave);
         btnAtras = findViewById(R.id.imagebuttonActAtras);
 
-        // Inicializa el origen de datos de la nota (NoteDataSource)
-        noteDataSource = new NoteDataSource(this);
-        noteDataSource.open();
-
         // Inicializa el ViewModel para la lógica de presentación
         noteViewModel = new ViewModelProvider(this).get(NoteViewModel.class);
 
-        // Obtiene la información del intent
-        long noteId = getIntent().getLongExtra(EXTRA_NOTE_ID, -1);
-        String noteTitle = getIntent().getStringExtra(EXTRA_NOTE_TITLE);
-        String noteContent = getIntent().getStringExtra(EXTRA_NOTE_CONTENT);
-
-        // Coloca la información original en los EditText
-        editTextTitle.setText(noteTitle);
-        editTextContent.setText(noteContent);
+        // Obtiene el ID del intent y lee la nota completa en segundo plano
+        noteId = getIntent().getLongExtra(EXTRA_NOTE_ID, -1);
+        buttonSave.setEnabled(false);
+        autosaver = noteViewModel.getAutosaver();
+        autosaver.attach(this::takeDraft);
+        editTextContent.addTextChangedListener(editRegion);
+        int loadTraceCookie = NoteTrace.beginAsync("EditNoteActivity.load");
+        noteViewModel.loadNote(noteId).observe(this, note -> {
+            NoteTrace.endAsync("EditNoteActivity.load", loadTraceCookie);
+            if (note == null) {
+                Toast.makeText(EditNoteActivity.this, "No se encontró la nota.", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
+            }
+            // Coloca la información original en los EditText solo la primera vez, para no
+            // sobrescribir lo que el usuario ya escribió si la actividad se recrea
+            if (savedInstanceState == null) {
+                NoteTrace.begin("EditNoteActivity.bindNote");
+                try {
+                    editTextTitle.setText(note.getTitle());
+                    editTextContent.setText(note.getContent());
+                } finally {
+                    NoteTrace.end();
+                }
+                // Si la actividad se recreó no se sabe qué cambió, y se guardará la nota completa
+                editRegion.reset(editTextContent.length());
+            }
+            // Si el ViewModel sobrevivió a la recreación, conserva la versión que ya guardó
+            autosaver.start(note);
+            noteLoaded = true;
+            editTextTitle.addTextChangedListener(autosaveWatcher);
+            editTextContent.addTextChangedListener(autosaveWatcher);
+            buttonSave.setEnabled(true);
+        });
 
         // Configura un listener para el botón de guardar
-        buttonSave.setOnClickListener(view -> saveNoteChanges(noteId));
+        buttonSave.setOnClickListener(view -> saveNoteChanges());
 
         btnAtras.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -89,31 +145,79 @@ public class EditNoteActivity extends AppCompatActivity {
         });
     }
 
-    private void saveNoteChanges(long noteId) {
-        String newTitle = editTextTitle.getText().toString();
-        String newContent = editTextContent.getText().toString();
-
-        if (!newTitle.isEmpty() && !newContent.isEmpty()) {
-            // Crea una nueva nota con la información actualizada
-            Note newNote = new Note();
-            newNote.setTitle(newTitle);
-            newNote.setContent(newContent);
-            newNote.setId(noteId);
-
-            // Actualiza la nota en la base de datos
-            if (noteDataSource.updateNote(newNote)) {
-                // Nota actualizada exitosamente
-                Toast.makeText(EditNoteActivity.this, "¡Nota Actualizada!", Toast.LENGTH_SHORT).show();
-                // Actualiza la información en el ViewModel
-                noteViewModel.updateNote();
-                finish();
-            } else {
-                // Fallo en la actualización de la nota
-                Toast.makeText(EditNoteActivity.this, "No se pudo actualizar la nota", Toast.LENGTH_SHORT).show();
-                finish();
-            }
+    /**
+     * Guarda lo que quede pendiente al pasar a segundo plano, por si el proceso termina.
+     */
+    @Override
+    protected void onPause() {
+        super.onPause();
+        autosaver.flush();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        autosaver.detach();
+    }
+
+    private void saveNoteChanges() {
+        // Solo se revisa el largo del contenido; copiarlo costaría tanto como la nota completa
+        if (editTextTitle.length() > 0 && editTextContent.length() > 0) {
+            // Evita guardar dos veces mientras la escritura está en curso
+            buttonSave.setEnabled(false);
+
+            // Guarda a través del autoguardado, que en una nota dividida envía solo la región
+            // modificada y espera a que terminen las escrituras anteriores
+            int saveTraceCookie = NoteTrace.beginAsync("EditNoteActivity.save");
+            autosaver.flush().observe(this, saved -> {
+                NoteTrace.endAsync("EditNoteActivity.save", saveTraceCookie);
+                onSaveFinished(Boolean.TRUE.equals(saved));
+            });
         }else {
             Toast.makeText(EditNoteActivity.this, "Porfavor ingrese un titulo y contenido.", Toast.LENGTH_SHORT).show();
         }
     }
+
+    /**
+     * Toma el título y el cambio actual para el autoguardado. En una nota dividida en bloques, mientras
+     * se conoce la región modificada solo se copia esa región, de modo que el costo no crece con el
+     * largo de la nota; el contenido completo se copia si la nota es corta, si no se conoce la región
+     * o si el autoguardado lo pide. El texto tomado pasa a ser la base de los siguientes rangos.
+     *
+     * @param fullContent True si el borrador debe incluir el contenido completo.
+     * @return Borrador a guardar, o null si la nota no se ha cargado o está vacía.
+     */
+    private NoteAutosaver.Draft takeDraft(boolean fullContent) {
+        if (!noteLoaded) {
+            return null;
+        }
+        String title = editTextTitle.getText().toString();
+        Editable content = editTextContent.getText();
+        if (title.isEmpty() && content.length() == 0) {
+            return null;
+        }
+        Note note = new Note();
+        note.setTitle(title);
+        note.setId(noteId);
+        NoteEdit edit = null;
+        if (editRegion.canSaveRange() && !fullContent) {
+            // La fecha base la completa el autoguardado con la de su última escritura
+            edit = editRegion.toEdit(noteId, 0, title, content);
+        } else {
+            note.setContent(content.toString());
+        }
+        editRegion.reset(content.length());
+        return new NoteAutosaver.Draft(note, edit);
+    }
+
+    private void onSaveFinished(boolean updated) {
+        if (updated) {
+            // Nota actualizada exitosamente
+            Toast.makeText(EditNoteActivity.this, "¡Nota Actualizada!", Toast.LENGTH_SHORT).show();
+        } else {
+            // Fallo en la actualización de la nota
+            Toast.makeText(EditNoteActivity.this, "No se pudo actualizar la nota", Toast.LENGTH_SHORT).show();
+        }
+        finish();
+    }
 }
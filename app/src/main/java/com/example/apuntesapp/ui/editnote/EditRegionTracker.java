@@ -0,0 +1,85 @@
+package com.example.apuntesapp.ui.editnote;
+
+import android.text.Editable;
+import android.text.TextWatcher;
+
+import com.example.apuntesapp.data.database.NoteDataSource;
+import com.example.apuntesapp.model.NoteEdit;
+
+/**
+ * Clase que registra qué parte del contenido de un EditText cambió desde el último guardado.
+ *
+ * Conceptos:
+ * - Región modificada: Se cuenta cuántos caracteres del inicio y del final del texto siguen iguales
+ *   a la versión guardada. Lo que queda entre ambos es la región modificada, que se guarda como un
+ *   único reemplazo de rango. Varias ediciones separadas producen una sola región que las cubre.
+ *
+ * - Costo constante: Cada pulsación solo actualiza dos enteros; el texto no se copia ni se compara
+ *   hasta que se guarda, y entonces solo se copia la región modificada.
+ *
+ * - Solo notas divididas: La base de datos solo acepta rangos en las notas que guarda divididas en
+ *   bloques. Una nota más corta se guarda completa, lo que en ese tamaño cuesta poco.
+ */
+final class EditRegionTracker implements TextWatcher {
+
+    // False hasta que se conoce la versión guardada, por ejemplo si la actividad se recreó
+    private boolean tracking;
+    private int savedLength;
+    // Caracteres del inicio que no cambiaron
+    private int unchangedPrefix;
+    // Caracteres del final que no cambiaron
+    private int unchangedSuffix;
+
+    /**
+     * Marca el texto actual como la versión guardada.
+     *
+     * @param length Longitud del texto guardado.
+     */
+    void reset(int length) {
+        tracking = true;
+        savedLength = length;
+        unchangedPrefix = length;
+        unchangedSuffix = length;
+    }
+
+    /**
+     * Indica si el cambio se puede guardar como un rango: se conoce la región modificada y la versión
+     * guardada es lo bastante larga para estar dividida en bloques.
+     */
+    boolean canSaveRange() {
+        return tracking && NoteDataSource.acceptsNoteEdits(savedLength);
+    }
+
+    /**
+     * Construye el cambio que lleva la versión guardada al texto actual.
+     *
+     * @param noteId        ID de la nota.
+     * @param baseUpdatedAt Fecha de modificación de la versión guardada.
+     * @param title         Título actual de la nota.
+     * @param text          Texto actual del contenido.
+     * @return Cambio con la región modificada.
+     */
+    NoteEdit toEdit(long noteId, long baseUpdatedAt, String title, CharSequence text) {
+        int length = text.length();
+        int prefix = Math.min(unchangedPrefix, Math.min(savedLength, length));
+        // El inicio y el final sin cambios nunca se superponen
+        int suffix = Math.min(unchangedSuffix, Math.min(savedLength, length) - prefix);
+        return new NoteEdit(noteId, baseUpdatedAt, title, prefix, savedLength - suffix,
+                text.subSequence(prefix, length - suffix).toString());
+    }
+
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        // Se reemplazan count caracteres desde start; lo que sigue al rango no cambia
+        unchangedPrefix = Math.min(unchangedPrefix, start);
+        unchangedSuffix = Math.min(unchangedSuffix, s.length() - (start + count));
+    }
+
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {
+    }
+
+    @Override
+    public void afterTextChanged(Editable s) {
+    }
+}
@@ -1,13 +1,14 @@
 package com.example.apuntesapp.ui.notedetail;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ImageButton;
-import android.widget.TextView;
+import android.widget.Toast;
 import com.example.apuntesapp.R;
-import com.example.apuntesapp.model.Note;
 import com.example.apuntesapp.ui.customview.NoteView;
+import com.example.apuntesapp.viewmodel.NoteViewModel;
 
 /**
  * Actividad que muestra detalles de una nota específica.
@@ -28,9 +29,9 @@ import com.example.apuntesapp.ui.customview.NoteView;
  */
 public class NoteDetailActivity extends AppCompatActivity {
 
-    public static final String EXTRA_NOTE_TITLE = "extra_note_title";
-    public static final String EXTRA_NOTE_CONTENT = "extra_note_content";
+    public static final String EXTRA_NOTE_ID = "extra_note_id";
     private ImageButton btnAtras;
+    private NoteViewModel noteViewModel;
 
     /**
      * Método llamado al crear la actividad.
@@ -46,15 +47,20 @@ public class NoteDetailActivity extends AppCompatActivity {
         NoteView noteView = findViewById(R.id.customNoteView);
         btnAtras = findViewById(R.id.imagebuttonListaAtrasDetail);
 
-        // Obtiene los detalles de la nota desde el intent
-        String title = getIntent().getStringExtra(EXTRA_NOTE_TITLE);
-        String content = getIntent().getStringExtra(EXTRA_NOTE_CONTENT);
-
-        // Crea un objeto Note con los detalles de la nota
-        Note note = new Note(title, content); // Suponiendo que tienes un constructor en la clase Note
-
-        // Configura la vista personalizada NoteView con los datos de la nota
-        noteView.setNoteData(note);
+        // Obtiene el ID de la nota desde el intent y lee en segundo plano solo su título y la
+        // cantidad de bloques; cada bloque se lee cuando su párrafo está por mostrarse
+        long noteId = getIntent().getLongExtra(EXTRA_NOTE_ID, -1);
+        noteViewModel = new ViewModelProvider(this).get(NoteViewModel.class);
+        noteViewModel.loadNoteOutline(noteId).observe(this, outline -> {
+            if (outline != null) {
+                // Configura la vista personalizada NoteView con los datos de la nota
+                noteView.setNoteOutline(outline, index -> noteViewModel.loadNoteChunk(noteId, index)
+                        .observe(this, text -> noteView.setChunk(index, text)));
+            } else {
+                Toast.makeText(this, "No se encontró la nota.", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        });
 
         btnAtras.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -1,17 +1,27 @@
 package com.example.apuntesapp.ui.notelist;
 
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+import android.util.LongSparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageButton;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
-import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.apuntesapp.R;
-import com.example.apuntesapp.model.Note;
+import com.example.apuntesapp.data.database.NoteDataSource;
+import com.example.apuntesapp.model.NoteSummary;
+import com.example.apuntesapp.tracing.NoteTrace;
 
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Adaptador para la visualización de notas en un RecyclerView.
@@ -29,19 +39,74 @@ import java.util.List;
  * - Model-View-ViewModel (MVVM): Aunque la clase se centra en la visualización (View) de datos y no implementa
  *   directamente el patrón MVVM, es parte de la capa de vista y se puede utilizar en conjunción con ViewModel
  *   para actualizar la interfaz de usuario en respuesta a cambios en los datos.
+ *
+ * - Actualizaciones incrementales: Extiende ListAdapter, que calcula con DiffUtil en un hilo de segundo
+ *   plano las diferencias entre la lista anterior y la nueva. Solo se vuelven a enlazar las filas que
+ *   cambiaron y las inserciones y eliminaciones se muestran con animaciones.
+ *
+ * - Selección múltiple: Un clic largo inicia el modo de selección. Los IDs seleccionados se guardan en
+ *   un LongSparseArray, cuyas llaves son long primitivos, por lo que no se crea un objeto Long por nota.
+ *
+ * - Trazas: El inflado y el enlace de cada fila son secciones de NoteTrace, dentro de las secciones
+ *   "RV CreateView" y "RV OnBindView" que ya emite RecyclerView.
+ *
+ * - Filas infladas de antemano: NoteRowPreinflater infla filas en segundo plano y las entrega con
+ *   addPreinflatedRow; onCreateViewHolder usa esas vistas antes de inflar una en el hilo principal.
  */
-public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.NoteViewHolder> {
+public class NoteAdapter extends ListAdapter<NoteSummary, NoteAdapter.NoteViewHolder> {
+
+    /**
+     * Compara resúmenes de notas: dos elementos son la misma nota si tienen el mismo ID, y su contenido
+     * es el mismo si el título y el fragmento no cambiaron.
+     */
+    private static final DiffUtil.ItemCallback<NoteSummary> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<NoteSummary>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull NoteSummary oldItem, @NonNull NoteSummary newItem) {
+                    return oldItem.getId() == newItem.getId();
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull NoteSummary oldItem, @NonNull NoteSummary newItem) {
+                    return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                            && Objects.equals(oldItem.getSnippet(), newItem.getSnippet());
+                }
+            };
+
+    // Indica a onBindViewHolder que solo cambió el estado de selección de la fila
+    private static final Object PAYLOAD_SELECTION = new Object();
+    // Transparencia de las filas seleccionadas
+    private static final float SELECTED_ALPHA = 0.5f;
+
+    // Único tipo de fila del adaptador; es el valor por defecto de getItemViewType
+    static final int VIEW_TYPE_NOTE = 0;
 
-    private List<Note> notes;
     private OnItemClickListener onItemClickListener;
+    // IDs de las notas seleccionadas; el valor no se usa
+    private final LongSparseArray<Boolean> selectedIds = new LongSparseArray<>();
+    // Filas infladas en segundo plano que todavía no tienen ViewHolder
+    private final ArrayDeque<View> preinflatedRows = new ArrayDeque<>();
+    // Cantidad de ViewHolders creados, con o sin fila inflada de antemano
+    private int createdRowCount;
 
     /**
-     * Constructor del adaptador.
+     * Constructor del adaptador. La lista inicial está vacía; las notas se entregan con setNotes.
+     */
+    public NoteAdapter() {
+        super(DIFF_CALLBACK);
+        // Los IDs de las notas permiten a RecyclerView reutilizar y animar las filas correctamente
+        setHasStableIds(true);
+    }
+
+    /**
+     * Devuelve el ID estable del elemento en una posición, que es el ID de la nota.
      *
-     * @param notes Lista de objetos Note que se mostrarán en el RecyclerView.
+     * @param position Posición del elemento.
+     * @return ID de la nota.
      */
-    public NoteAdapter(List<Note> notes) {
-        this.notes = notes;
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
     }
 
     /**
@@ -54,9 +119,35 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.NoteViewHolder
     @NonNull
     @Override
     public NoteViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        ConstraintLayout noteView = (ConstraintLayout) LayoutInflater.from(parent.getContext())
-                .inflate(R.layout.item_note, parent, false);
-        return new NoteViewHolder(noteView);
+        NoteTrace.begin("NoteAdapter.onCreateViewHolder");
+        try {
+            View noteView = preinflatedRows.poll();
+            if (noteView == null) {
+                noteView = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_note, parent, false);
+            }
+            createdRowCount++;
+            return new NoteViewHolder(noteView);
+        } finally {
+            NoteTrace.end();
+        }
+    }
+
+    /**
+     * Entrega una fila inflada fuera del hilo principal para el siguiente ViewHolder que se cree.
+     *
+     * @param noteView Vista inflada de item_note.xml, sin padre.
+     */
+    void addPreinflatedRow(View noteView) {
+        preinflatedRows.add(noteView);
+    }
+
+    /**
+     * Obtiene la cantidad de ViewHolders creados hasta ahora.
+     *
+     * @return Filas creadas, incluidas las que están en el RecycledViewPool.
+     */
+    int getCreatedRowCount() {
+        return createdRowCount;
     }
 
     /**
@@ -67,32 +158,188 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.NoteViewHolder
      */
     @Override
     public void onBindViewHolder(@NonNull NoteViewHolder holder, int position) {
-        Note note = notes.get(position);
-        holder.textViewNoteTitle.setText(note.getTitle());
+        NoteTrace.begin("NoteAdapter.onBindViewHolder");
+        try {
+            NoteSummary note = getItem(position);
+            holder.textViewNoteTitle.setText(note.getTitle());
 
-        // Listener para el botón editar
-        holder.btnEditar.setOnClickListener(view -> {
-            if (onItemClickListener != null) {
-                onItemClickListener.onEditClick(view, position);
+            // El fragmento solo existe en los resultados de búsqueda
+            String snippet = note.getSnippet();
+            if (snippet != null) {
+                holder.textViewNoteSnippet.setText(highlight(snippet));
+                holder.textViewNoteSnippet.setVisibility(View.VISIBLE);
+            } else {
+                holder.textViewNoteSnippet.setVisibility(View.GONE);
             }
-        });
+            bindSelection(holder, note.getId());
+        } finally {
+            NoteTrace.end();
+        }
+    }
+
+    /**
+     * Actualiza una fila existente. Si solo cambió su estado de selección, no se vuelve a asignar el texto.
+     *
+     * @param holder   La vista de ViewHolder que debe actualizarse.
+     * @param position La posición del elemento en el conjunto de datos.
+     * @param payloads Cambios parciales indicados al notificar la fila.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull NoteViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && allSelectionPayloads(payloads)) {
+            bindSelection(holder, getItemId(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
 
-        // Listener para el botón eliminar
-        holder.btnEliminar.setOnClickListener(view -> {
-            if (onItemClickListener != null) {
-                onItemClickListener.onDeleteClick(view, position);
+    private static boolean allSelectionPayloads(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_SELECTION) {
+                return false;
             }
-        });
+        }
+        return true;
+    }
+
+    private void bindSelection(NoteViewHolder holder, long noteId) {
+        boolean selected = selectedIds.indexOfKey(noteId) >= 0;
+        holder.itemView.setActivated(selected);
+        holder.itemView.setAlpha(selected ? SELECTED_ALPHA : 1f);
     }
 
     /**
-     * Devuelve la cantidad de elementos en el conjunto de datos.
+     * Quita de la selección las notas que ya no están en la lista, por ejemplo porque se eliminaron.
      *
-     * @return El número total de elementos.
+     * @param previousList Lista mostrada anteriormente.
+     * @param currentList  Lista mostrada ahora.
      */
     @Override
-    public int getItemCount() {
-        return notes.size();
+    public void onCurrentListChanged(@NonNull List<NoteSummary> previousList,
+                                     @NonNull List<NoteSummary> currentList) {
+        if (selectedIds.size() == 0) {
+            return;
+        }
+        LongSparseArray<Boolean> remaining = new LongSparseArray<>(selectedIds.size());
+        for (NoteSummary note : currentList) {
+            if (selectedIds.indexOfKey(note.getId()) >= 0) {
+                remaining.put(note.getId(), Boolean.TRUE);
+            }
+        }
+        if (remaining.size() != selectedIds.size()) {
+            selectedIds.clear();
+            for (int i = 0; i < remaining.size(); i++) {
+                selectedIds.put(remaining.keyAt(i), Boolean.TRUE);
+            }
+            dispatchSelectionChanged();
+        }
+    }
+
+    /**
+     * Indica si hay notas seleccionadas.
+     *
+     * @return True mientras el modo de selección está activo.
+     */
+    public boolean isSelectionMode() {
+        return selectedIds.size() > 0;
+    }
+
+    /**
+     * Obtiene los IDs de las notas seleccionadas.
+     *
+     * @return Arreglo nuevo con los IDs seleccionados.
+     */
+    public long[] getSelectedIds() {
+        long[] ids = new long[selectedIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = selectedIds.keyAt(i);
+        }
+        return ids;
+    }
+
+    /**
+     * Reemplaza la selección, por ejemplo al restaurar el estado de la actividad.
+     *
+     * @param ids IDs de las notas seleccionadas.
+     */
+    public void setSelectedIds(long[] ids) {
+        selectedIds.clear();
+        for (long id : ids) {
+            selectedIds.put(id, Boolean.TRUE);
+        }
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+        dispatchSelectionChanged();
+    }
+
+    /**
+     * Quita todas las notas de la selección y termina el modo de selección.
+     */
+    public void clearSelection() {
+        if (selectedIds.size() == 0) {
+            return;
+        }
+        selectedIds.clear();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+        dispatchSelectionChanged();
+    }
+
+    /**
+     * Agrega o quita una fila de la selección.
+     *
+     * @param position Posición de la fila.
+     */
+    private void toggleSelection(int position) {
+        long noteId = getItemId(position);
+        if (selectedIds.indexOfKey(noteId) >= 0) {
+            selectedIds.remove(noteId);
+        } else {
+            selectedIds.put(noteId, Boolean.TRUE);
+        }
+        notifyItemChanged(position, PAYLOAD_SELECTION);
+        dispatchSelectionChanged();
+    }
+
+    private void dispatchSelectionChanged() {
+        if (onItemClickListener != null) {
+            onItemClickListener.onSelectionChanged(selectedIds.size());
+        }
+    }
+
+    /**
+     * Convierte las marcas de resaltado de un fragmento de búsqueda en texto en negrita.
+     *
+     * @param snippet Fragmento con los términos encontrados entre HIGHLIGHT_START y HIGHLIGHT_END.
+     * @return Texto sin las marcas, con los términos encontrados en negrita.
+     */
+    static CharSequence highlight(String snippet) {
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        int start = -1;
+        for (int i = 0; i < snippet.length(); i++) {
+            char ch = snippet.charAt(i);
+            if (ch == NoteDataSource.HIGHLIGHT_START) {
+                start = text.length();
+            } else if (ch == NoteDataSource.HIGHLIGHT_END) {
+                if (start >= 0) {
+                    text.setSpan(new StyleSpan(Typeface.BOLD), start, text.length(),
+                            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                    start = -1;
+                }
+            } else {
+                text.append(ch);
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Reemplaza el conjunto de notas mostrado por el adaptador. Las diferencias con la lista anterior
+     * se calculan en segundo plano y se aplican como cambios individuales. La lista no debe
+     * modificarse después de entregarla.
+     *
+     * @param notes Nueva lista de notas.
+     */
+    public void setNotes(List<NoteSummary> notes) {
+        submitList(notes);
     }
 
     /**
@@ -106,11 +353,14 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.NoteViewHolder
 
     /**
      * Interfaz que define los métodos para manejar eventos de clic en los elementos del RecyclerView.
+     * Los métodos reciben el ID de la nota y no su posición, que puede cambiar mientras la lista se
+     * actualiza.
      */
     public interface OnItemClickListener {
-        void onItemClick(View view, int position);
-        void onEditClick(View view, int position);
-        void onDeleteClick(View view, int position);
+        void onItemClick(View view, long noteId);
+        void onEditClick(View view, long noteId);
+        void onDeleteClick(View view, long noteId);
+        void onSelectionChanged(int selectedCount);
     }
 
     /**
@@ -118,6 +368,7 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.NoteViewHolder
      */
     public class NoteViewHolder extends RecyclerView.ViewHolder {
         TextView textViewNoteTitle;
+        TextView textViewNoteSnippet;
         ImageButton btnEditar, btnEliminar;
 
         /**
@@ -128,15 +379,48 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.NoteViewHolder
         public NoteViewHolder(@NonNull View itemView) {
             super(itemView);
             textViewNoteTitle = itemView.findViewById(R.id.textViewNoteTitle);
+            textViewNoteSnippet = itemView.findViewById(R.id.textViewNoteSnippet);
             btnEditar = itemView.findViewById(R.id.imageButtonEditar);
             btnEliminar = itemView.findViewById(R.id.imageButtonEliminar);
 
-            // Listener para el clic en el elemento
-            itemView.setOnClickListener(view -> {
-                if (onItemClickListener != null) {
-                    onItemClickListener.onItemClick(view, getAdapterPosition());
-                }
-            });
+            // Los listeners se crean una sola vez por fila y leen la nota actual al recibir el clic
+            itemView.setOnClickListener(this::onItemClick);
+            itemView.setOnLongClickListener(this::onItemLongClick);
+            btnEditar.setOnClickListener(this::onEditClick);
+            btnEliminar.setOnClickListener(this::onDeleteClick);
+        }
+
+        private void onItemClick(View view) {
+            int position = getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            if (isSelectionMode()) {
+                toggleSelection(position);
+            } else if (onItemClickListener != null) {
+                onItemClickListener.onItemClick(view, getItemId());
+            }
+        }
+
+        private boolean onItemLongClick(View view) {
+            int position = getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return false;
+            }
+            toggleSelection(position);
+            return true;
+        }
+
+        private void onEditClick(View view) {
+            if (onItemClickListener != null && getBindingAdapterPosition() != RecyclerView.NO_POSITION) {
+                onItemClickListener.onEditClick(view, getItemId());
+            }
+        }
+
+        private void onDeleteClick(View view) {
+            if (onItemClickListener != null && getBindingAdapterPosition() != RecyclerView.NO_POSITION) {
+                onItemClickListener.onDeleteClick(view, getItemId());
+            }
         }
     }
 }
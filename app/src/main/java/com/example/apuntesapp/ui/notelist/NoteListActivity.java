@@ -1,5 +1,6 @@
 package com.example.apuntesapp.ui.notelist;
 
+import androidx.activity.OnBackPressedCallback;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -8,12 +9,20 @@ import androidx.recyclerview.widget.RecyclerView;
 import android.app.AlertDialog;
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ImageButton;
+import android.widget.Spinner;
+import android.widget.Toast;
 
 import com.example.apuntesapp.R;
-import com.example.apuntesapp.data.database.NoteDataSource;
-import com.example.apuntesapp.model.Note;
+import com.example.apuntesapp.model.NoteSortOrder;
+import com.example.apuntesapp.model.NoteSummary;
+import com.example.apuntesapp.tracing.NoteTrace;
 import com.example.apuntesapp.ui.editnote.EditNoteActivity;
 import com.example.apuntesapp.ui.notedetail.NoteDetailActivity;
 import com.example.apuntesapp.viewmodel.NoteViewModel;
@@ -35,39 +44,150 @@ import java.util.List;
  *   en capas: UI (Vista), Casos de Uso (Lógica de Negocio), y Datos (Acceso a la base de datos).
  *
  * - Custom Views: La actividad utiliza un RecyclerView personalizado (NoteAdapter) para mostrar la lista de notas.
+ *
+ * - Trazas: onCreate se divide en secciones de NoteTrace (inflado del diseño y configuración de la lista
+ *   y sus observadores), y la sección asíncrona "NoteListActivity.firstPage" va desde onCreate hasta que
+ *   se muestra la primera página. Así el arranque se puede separar en inflado, espera de la base de
+ *   datos y enlace de filas.
+ *
+ * - Filas preparadas: Las filas de la lista se inflan en segundo plano con NoteRowPreinflater y se
+ *   guardan en el RecycledViewPool del RecyclerView, tantas como la lista usa a la vez (las visibles,
+ *   las de la caché de filas y la que se prepara durante el desplazamiento). Así ni el primer dibujo
+ *   ni el desplazamiento inflan filas en el hilo principal.
  */
 
 public class NoteListActivity extends AppCompatActivity {
 
+    // Cantidad de filas antes del final de la lista a la que se pide la siguiente página
+    private static final int PREFETCH_DISTANCE = 10;
+    // Llave con la que se guardan las notas seleccionadas al recrear la actividad
+    private static final String STATE_SELECTED_IDS = "selected_ids";
+    // Filas que RecyclerView conserva enlazadas tras salir de la pantalla (2 por defecto); al
+    // invertir el desplazamiento se muestran sin volver a enlazarlas
+    private static final int ITEM_VIEW_CACHE_SIZE = 4;
+    // Filas que GapWorker prepara por adelantado durante el desplazamiento
+    private static final int PREFETCH_ROWS = 1;
+    // Alto de cada fila, igual al de item_note.xml
+    private static final int ROW_HEIGHT_DP = 150;
+
     private NoteViewModel noteViewModel;
-    private NoteDataSource noteDataSource;
-    private List<Note> notes;
+    private List<NoteSummary> allNotes;
+    private List<NoteSummary> searchResults;
     private RecyclerView recyclerView;
+    private NoteAdapter noteAdapter;
     private ImageButton btnAtras;
+    private EditText editTextBuscar;
+    private Spinner spinnerOrden;
+    private Button btnEliminarSeleccion;
+    // True después de avisar que se mostró la primera página de la lista
+    private boolean fullyDrawnReported;
+    private NoteRowPreinflater rowPreinflater;
+    // Identificador de la sección asíncrona que termina al mostrar la primera página
+    private int firstPageTraceCookie;
+    // Mientras hay notas seleccionadas, el botón atrás termina el modo de selección
+    private final OnBackPressedCallback clearSelectionCallback = new OnBackPressedCallback(false) {
+        @Override
+        public void handleOnBackPressed() {
+            noteAdapter.clearSelection();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_note_list);
+        NoteTrace.begin("NoteListActivity.onCreate");
+        try {
+            firstPageTraceCookie = NoteTrace.beginAsync("NoteListActivity.firstPage");
+            super.onCreate(savedInstanceState);
+            NoteTrace.begin("NoteListActivity.setContentView");
+            try {
+                setContentView(R.layout.activity_note_list);
+            } finally {
+                NoteTrace.end();
+            }
+            NoteTrace.begin("NoteListActivity.setUpViews");
+            try {
+                setUpViews(savedInstanceState);
+            } finally {
+                NoteTrace.end();
+            }
+        } finally {
+            NoteTrace.end();
+        }
+    }
 
+    /**
+     * Obtiene las vistas, configura la lista y empieza a observar las notas.
+     *
+     * @param savedInstanceState Estado guardado de la actividad, o null.
+     */
+    private void setUpViews(Bundle savedInstanceState) {
         btnAtras = findViewById(R.id.imagebuttonListaAtras);
+        editTextBuscar = findViewById(R.id.editTextBuscar);
+        spinnerOrden = findViewById(R.id.spinnerOrden);
+        btnEliminarSeleccion = findViewById(R.id.btnEliminarSeleccion);
 
         // Inicializa ViewModel
         noteViewModel = new ViewModelProvider(this).get(NoteViewModel.class);
 
-        // Abre SQLite database
-        noteDataSource = new NoteDataSource(this);
-        noteDataSource.open();
-
-        // Configura el RecyclerView
+        // Configura el RecyclerView con un único adaptador que se llena página por página
         recyclerView = findViewById(R.id.recyclerViewNotes);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
+        noteAdapter = new NoteAdapter();
+        recyclerView.setAdapter(noteAdapter);
+        recyclerView.setItemViewCacheSize(ITEM_VIEW_CACHE_SIZE);
 
-        // Obtiene las notas de SQLite database
-        List<Note> initialNotes = noteDataSource.getAllNotes();
+        // Infla en segundo plano las filas que la lista necesitará, mientras se lee la primera página
+        rowPreinflater = new NoteRowPreinflater(this, recyclerView, noteAdapter, rowsInUse());
+        rowPreinflater.start();
 
-        // Actualiza el ViewModel con las notas iniciales
-        noteViewModel.updateNotes(initialNotes);
+        // Carga la siguiente página cuando el usuario se acerca al final de la lista
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (dy > 0 && lastVisible >= noteAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                    // El ViewModel ignora la solicitud si ya hay una página en curso
+                    noteViewModel.loadNextPage();
+                }
+            }
+        });
+
+        // Pide la primera página en segundo plano; tras una rotación se reutiliza la lista ya cargada
+        noteViewModel.loadFirstPageIfNeeded();
+
+        // Cada tecla se envía al ViewModel, que decide cuándo consultar la base de datos
+        editTextBuscar.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                noteViewModel.setSearchQuery(s.toString());
+            }
+        });
+
+        // Cambia el orden de la lista; la base de datos entrega cada página ya ordenada por su índice
+        spinnerOrden.setSelection(noteViewModel.getSortOrder().ordinal(), false);
+        spinnerOrden.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                NoteSortOrder order = NoteSortOrder.values()[position];
+                if (order != noteViewModel.getSortOrder()) {
+                    noteViewModel.setSortOrder(order);
+                    recyclerView.scrollToPosition(0);
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
 
         //Listener boton atras
         btnAtras.setOnClickListener(new View.OnClickListener() {
@@ -77,65 +197,157 @@ public class NoteListActivity extends AppCompatActivity {
             }
         });
 
+        noteAdapter.setOnItemClickListener(new NoteAdapter.OnItemClickListener() {
+            @Override
+            public void onItemClick(View view, long noteId) {
+                // Maneja el clic para ver detalles de una nota; el contenido se carga en el detalle
+                Intent intent = new Intent(NoteListActivity.this, NoteDetailActivity.class);
+                intent.putExtra(NoteDetailActivity.EXTRA_NOTE_ID, noteId);
+                startActivity(intent);
+            }
+
+            @Override
+            public void onEditClick(View view, long noteId) {
+                // Inicia la actividad para editar la nota
+                Intent intent = new Intent(NoteListActivity.this, EditNoteActivity.class);
+                intent.putExtra(EditNoteActivity.EXTRA_NOTE_ID, noteId);
+                startActivity(intent);
+            }
+
+            @Override
+            public void onDeleteClick(View view, long noteId) {
+                // Muestra un diálogo de confirmación antes de eliminar la nota
+                showDeleteConfirmationDialog(noteId);
+            }
+
+            @Override
+            public void onSelectionChanged(int selectedCount) {
+                // Muestra el botón de eliminación masiva solo mientras hay notas seleccionadas
+                clearSelectionCallback.setEnabled(selectedCount > 0);
+                btnEliminarSeleccion.setVisibility(selectedCount > 0 ? View.VISIBLE : View.GONE);
+                btnEliminarSeleccion.setText(getString(R.string.EliminarSeleccion, selectedCount));
+            }
+        });
+        getOnBackPressedDispatcher().addCallback(this, clearSelectionCallback);
+        btnEliminarSeleccion.setOnClickListener(v -> showBulkDeleteConfirmationDialog(noteAdapter.getSelectedIds()));
+
+        // Restaura la selección si la actividad se recreó, por ejemplo al rotar la pantalla
+        if (savedInstanceState != null) {
+            long[] selectedIds = savedInstanceState.getLongArray(STATE_SELECTED_IDS);
+            if (selectedIds != null && selectedIds.length > 0) {
+                noteAdapter.setSelectedIds(selectedIds);
+            }
+        }
+
         // Observa cambios en notesLiveData
         noteViewModel.getNotesLiveData().observe(this, newNotes -> {
-            // Actualiza el UI con una nueva lista de notas
-            notes = newNotes;
-            NoteAdapter noteAdapter = new NoteAdapter(notes);
-            recyclerView.setAdapter(noteAdapter);
-
-            noteAdapter.setOnItemClickListener(new NoteAdapter.OnItemClickListener() {
-                @Override
-                public void onItemClick(View view, int position) {
-                    // Maneja el clic para ver detalles de una nota
-                    Note clickedNote = notes.get(position);
-                    Intent intent = new Intent(NoteListActivity.this, NoteDetailActivity.class);
-                    intent.putExtra(NoteDetailActivity.EXTRA_NOTE_TITLE, clickedNote.getTitle());
-                    intent.putExtra(NoteDetailActivity.EXTRA_NOTE_CONTENT, clickedNote.getContent());
-                    startActivity(intent);
-                }
-
-                @Override
-                public void onEditClick(View view, int position) {
-                    // Maneja el clic en el botón de editar
-                    Note clickedNote = notes.get(position);
-
-                    // Inicia la actividad para editar la nota
-                    Intent intent = new Intent(NoteListActivity.this, EditNoteActivity.class);
-                    intent.putExtra(EditNoteActivity.EXTRA_NOTE_ID, clickedNote.getId());
-                    intent.putExtra(EditNoteActivity.EXTRA_NOTE_TITLE, clickedNote.getTitle());
-                    intent.putExtra(EditNoteActivity.EXTRA_NOTE_CONTENT, clickedNote.getContent());
-                    startActivity(intent);
-                }
+            allNotes = newNotes;
+            showCurrentList();
+            // La primera página es el contenido útil de la pantalla; el sistema y Macrobenchmark
+            // miden el tiempo de arranque completo hasta el siguiente cuadro
+            if (!fullyDrawnReported) {
+                fullyDrawnReported = true;
+                NoteTrace.endAsync("NoteListActivity.firstPage", firstPageTraceCookie);
+                reportFullyDrawn();
+            }
+        });
 
-                @Override
-                public void onDeleteClick(View view, int position) {
-                    // Muestra un diálogo de confirmación antes de eliminar la nota
-                    showDeleteConfirmationDialog(position);
-                }
-            });
+        // Observa los resultados de la búsqueda; null significa que no hay búsqueda activa
+        noteViewModel.getSearchResultsLiveData().observe(this, results -> {
+            searchResults = results;
+            showCurrentList();
         });
     }
 
+    /**
+     * Actualiza el UI con los resultados de la búsqueda si hay una activa, o con todas las notas.
+     */
+    private void showCurrentList() {
+        List<NoteSummary> current = searchResults != null ? searchResults : allNotes;
+        if (current == null) {
+            return;
+        }
+        NoteTrace.begin("NoteListActivity.showCurrentList");
+        try {
+            noteAdapter.setNotes(current);
+        } finally {
+            NoteTrace.end();
+        }
+    }
+
+    /**
+     * Calcula cuántas filas puede usar la lista a la vez: las que caben en la pantalla más una
+     * parcialmente visible, las de la caché de filas y las que se preparan por adelantado.
+     */
+    private int rowsInUse() {
+        float rowHeightPx = ROW_HEIGHT_DP * getResources().getDisplayMetrics().density;
+        int visibleRows = (int) Math.ceil(getResources().getDisplayMetrics().heightPixels / rowHeightPx) + 1;
+        return visibleRows + ITEM_VIEW_CACHE_SIZE + PREFETCH_ROWS;
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // Cierra SQLite database cuando la actividad es destruida
-        noteDataSource.close();
+        rowPreinflater.stop();
+        // Cierra la sección si la actividad se destruye antes de mostrar la primera página
+        if (!fullyDrawnReported) {
+            NoteTrace.endAsync("NoteListActivity.firstPage", firstPageTraceCookie);
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putLongArray(STATE_SELECTED_IDS, noteAdapter.getSelectedIds());
+    }
+
+    /**
+     * Muestra un único diálogo de confirmación para eliminar todas las notas seleccionadas.
+     *
+     * @param noteIds IDs de las notas seleccionadas.
+     */
+    private void showBulkDeleteConfirmationDialog(final long[] noteIds) {
+        if (noteIds.length == 0) {
+            return;
+        }
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Confirmar Eliminar Notas");
+        builder.setMessage("¿Está seguro de que desea eliminar " + noteIds.length + " notas?");
+        builder.setPositiveButton("Sí", (dialog, which) -> deleteNotes(noteIds));
+        builder.setNegativeButton("No", (dialog, which) -> dialog.dismiss());
+        builder.create().show();
+    }
+
+    /**
+     * Elimina varias notas en una sola transacción en segundo plano. La lista se actualiza una sola vez
+     * cuando la transacción termina.
+     *
+     * @param noteIds IDs de las notas a eliminar.
+     */
+    private void deleteNotes(long[] noteIds) {
+        noteViewModel.deleteNotes(noteIds).observe(this, result -> {
+            if (result == null) {
+                Toast.makeText(NoteListActivity.this, "No se pudieron eliminar las notas.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            noteAdapter.clearSelection();
+            Toast.makeText(NoteListActivity.this, result.getAffectedRows() + " notas eliminadas",
+                    Toast.LENGTH_SHORT).show();
+        });
     }
 
     /**
      * Muestra un diálogo de confirmación para eliminar una nota.
      *
-     * @param position Posición de la nota en la lista.
+     * @param noteId ID de la nota.
      */
-    private void showDeleteConfirmationDialog(final int position) {
+    private void showDeleteConfirmationDialog(final long noteId) {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Confirmar Eliminar Nota");
         builder.setMessage("¿Está seguro de que desea eliminar la nota?");
         builder.setPositiveButton("Sí", (dialog, which) -> {
             // Borra la nota si se confirma la eliminación
-            deleteNoteAtPosition(position);
+            deleteNote(noteId);
         });
         builder.setNegativeButton("No", (dialog, which) -> {
             // Cancela el diálogo si se elige no eliminar
@@ -145,17 +357,17 @@ public class NoteListActivity extends AppCompatActivity {
     }
 
     /**
-     * Elimina una nota en la posición dada.
+     * Elimina una nota.
      *
-     * @param position Posición de la nota en la lista.
+     * @param noteId ID de la nota.
      */
-    private void deleteNoteAtPosition(int position) {
-        Note noteToDelete = notes.get(position);
-        noteDataSource.deleteNote(noteToDelete);
-
-        // Actualiza el UI
-        notes.remove(position);
-        recreate();
+    private void deleteNote(long noteId) {
+        // La eliminación se ejecuta en segundo plano; el ViewModel quita la nota de la lista al terminar
+        noteViewModel.deleteNote(noteId).observe(this, deleted -> {
+            if (!Boolean.TRUE.equals(deleted)) {
+                Toast.makeText(NoteListActivity.this, "No se pudo eliminar la nota.", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 }
 
@@ -0,0 +1,90 @@
+package com.example.apuntesapp.ui.notelist;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.apuntesapp.R;
+
+/**
+ * Infla en un hilo de segundo plano las filas de la lista de notas antes de que RecyclerView las
+ * necesite, y las deja en su RecycledViewPool.
+ *
+ * Conceptos:
+ * - Inflado asíncrono: AsyncLayoutInflater lee item_note.xml y crea las vistas en su propio hilo;
+ *   solo la entrega de cada fila ocurre en el hilo principal. Se pide una fila a la vez, porque la
+ *   cola de AsyncLayoutInflater es pequeña y, si se llena, inflate() bloquea el hilo principal.
+ *
+ * - ViewHolders del pool: Cada vista inflada se entrega al adaptador y se crea su ViewHolder con
+ *   createViewHolder, que le asigna el tipo de vista; así RecyclerView la toma del pool en lugar de
+ *   inflar una nueva durante el primer dibujo o el desplazamiento.
+ *
+ * - Cantidad justa: Se detiene cuando el adaptador ya creó todas las filas que la lista puede usar a
+ *   la vez (ver NoteAdapter.getCreatedRowCount), incluidas las que se inflaron en el hilo principal
+ *   porque se necesitaron antes de que llegara la fila asíncrona.
+ *
+ * - Sin AppCompat: AsyncLayoutInflater no usa la fábrica de vistas de AppCompat, que ignoraría
+ *   app:srcCompat; por eso los iconos de item_note.xml usan android:src, que se ve igual en las filas
+ *   infladas de las dos formas.
+ *
+ * Los métodos deben llamarse desde el hilo principal.
+ */
+final class NoteRowPreinflater implements AsyncLayoutInflater.OnInflateFinishedListener {
+
+    private final RecyclerView recyclerView;
+    private final NoteAdapter adapter;
+    private final AsyncLayoutInflater inflater;
+    private final int targetRows;
+    private boolean stopped;
+
+    /**
+     * @param context      Contexto de la actividad, cuyo tema se usa para inflar las filas.
+     * @param recyclerView Lista que recibe las filas en su RecycledViewPool.
+     * @param adapter      Adaptador de la lista.
+     * @param targetRows   Cantidad de filas que la lista puede usar a la vez.
+     */
+    NoteRowPreinflater(Context context, RecyclerView recyclerView, NoteAdapter adapter, int targetRows) {
+        this.recyclerView = recyclerView;
+        this.adapter = adapter;
+        this.targetRows = targetRows;
+        inflater = new AsyncLayoutInflater(context);
+        // El pool guarda por defecto 5 filas por tipo; debe caber el total
+        recyclerView.getRecycledViewPool().setMaxRecycledViews(NoteAdapter.VIEW_TYPE_NOTE, targetRows);
+    }
+
+    /**
+     * Empieza a inflar filas en segundo plano.
+     */
+    void start() {
+        requestNext();
+    }
+
+    /**
+     * Descarta las filas que sigan en curso, por ejemplo al destruir la actividad.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup parent) {
+        if (stopped || adapter.getCreatedRowCount() >= targetRows) {
+            return;
+        }
+        adapter.addPreinflatedRow(view);
+        recyclerView.getRecycledViewPool().putRecycledView(
+                adapter.createViewHolder(recyclerView, NoteAdapter.VIEW_TYPE_NOTE));
+        requestNext();
+    }
+
+    private void requestNext() {
+        if (!stopped && adapter.getCreatedRowCount() < targetRows) {
+            inflater.inflate(R.layout.item_note, recyclerView, this);
+        }
+    }
+}
@@ -1,15 +1,38 @@
 package com.example.apuntesapp.viewmodel;
 
-import android.util.Log;
+import android.app.Application;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LongSparseArray;
+import android.util.LruCache;
 
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
-import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.Observer;
 
+import com.example.apuntesapp.data.backup.NoteExporter;
+import com.example.apuntesapp.data.database.BatchResult;
+import com.example.apuntesapp.data.database.NoteChangeNotifier;
 import com.example.apuntesapp.data.database.NoteDataSource;
+import com.example.apuntesapp.data.repository.NoteAutosaver;
+import com.example.apuntesapp.data.repository.NoteRepository;
+import com.example.apuntesapp.model.BackupProgress;
 import com.example.apuntesapp.model.Note;
+import com.example.apuntesapp.model.NoteChange;
+import com.example.apuntesapp.model.NoteOutline;
+import com.example.apuntesapp.model.NotePage;
+import com.example.apuntesapp.model.NoteSortOrder;
+import com.example.apuntesapp.model.NoteSummary;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * ViewModel para la gestión de datos de notas y comunicación con la interfaz de usuario.
@@ -23,39 +46,87 @@ import java.util.List;
  *   interfaz de usuario de manera reactiva cuando cambian los datos.
  *
  * - Clean Architecture: La clase sigue los principios de Clean Architecture al separar las responsabilidades y
- *   tener una capa de datos (NoteDataSource) que gestiona el acceso a la base de datos.
+ *   delegar el acceso a datos en NoteRepository, que ejecuta las consultas fuera del hilo principal.
  *
  * - Custom Views: Aunque esta clase en sí no utiliza Custom Views, interactúa con LiveData, que es una parte
  *   fundamental en la implementación de patrones de observación y actualización en Android.
  */
-public class NoteViewModel extends ViewModel {
+public class NoteViewModel extends AndroidViewModel {
+    // Tiempo que se espera sin nuevas teclas antes de consultar la base de datos
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+    // Cantidad de búsquedas recientes cuyos resultados se conservan en memoria
+    private static final int SEARCH_CACHE_SIZE = 32;
+
     // MutableLiveData para la comunicación con la vista
-    private MutableLiveData<List<Note>> notesLiveData = new MutableLiveData<>();
-    private NoteDataSource noteDataSource;
+    private final MutableLiveData<List<NoteSummary>> notesLiveData = new MutableLiveData<>();
+    // Resultados de la búsqueda actual, o null cuando no hay búsqueda activa
+    private final MutableLiveData<List<NoteSummary>> searchResultsLiveData = new MutableLiveData<>();
+    // Observa las páginas que entrega el repositorio sin depender del ciclo de vida de una actividad
+    private final MediatorLiveData<NotePage<NoteSummary>> pageLoader = new MediatorLiveData<>();
+    private final Observer<NotePage<NoteSummary>> pageLoaderObserver = page -> { };
+    private final NoteRepository noteRepository;
+    // Recibe los cambios en el hilo de escritura y los aplica en el hilo principal
+    private final NoteChangeNotifier.Listener changeListener =
+            changes -> mainHandler.post(() -> applyChanges(changes));
+
+    // Estado de la paginación de la lista
+    private NoteSortOrder sortOrder = NoteSortOrder.CREATED;
+    // Última fila leída tal como vino de la base de datos; es la llave de la siguiente página
+    private NoteSummary pageAfter;
+    private boolean hasMorePages = true;
+    private boolean loadingPage;
+    // Aumenta al cambiar el orden; las páginas pedidas con el orden anterior se descartan
+    private int pageGeneration;
+
+    // Estado de la búsqueda
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable pendingSearch = this::runSearch;
+    // Primera página de resultados de las búsquedas recientes, por consulta normalizada
+    private final LruCache<String, NotePage<NoteSummary>> searchCache = new LruCache<>(SEARCH_CACHE_SIZE);
+    private String searchQuery = "";
+    private CancellationSignal searchSignal;
+    // Aumenta con cada cambio de consulta; los resultados de una generación anterior se descartan
+    private int searchGeneration;
+    private long searchCursor = NotePage.END_OF_LIST;
+    private boolean loadingSearchPage;
+
+    // Avance de la exportación o importación en curso, o de la última que terminó
+    private final MediatorLiveData<BackupProgress> backupProgress = new MediatorLiveData<>();
+    private CancellationSignal backupSignal;
+
+    // Autoguardado del editor que usa este ViewModel; se crea al pedirlo por primera vez
+    private NoteAutosaver autosaver;
 
     /**
-     * Obtiene LiveData para observar cambios en la lista de notas.
+     * Constructor utilizado por ViewModelProvider.
      *
-     * @return LiveData que contiene la lista actual de notas.
+     * @param application Aplicación a la que pertenece el ViewModel.
      */
-    public LiveData<List<Note>> getNotesLiveData() {
-        return notesLiveData;
+    public NoteViewModel(@NonNull Application application) {
+        super(application);
+        noteRepository = NoteRepository.getInstance(application);
+        // El MediatorLiveData necesita un observador para reenviar los valores de sus fuentes
+        pageLoader.observeForever(pageLoaderObserver);
+        // Los cambios hechos desde cualquier pantalla se reflejan en las listas de este ViewModel
+        NoteChangeNotifier.getInstance().addListener(changeListener);
     }
 
     /**
-     * Inicializa el NoteDataSource en el ViewModel.
+     * Obtiene LiveData para observar cambios en la lista de notas.
      *
-     * @param dataSource Fuente de datos para acceder a la base de datos.
+     * @return LiveData que contiene la lista actual de resúmenes de notas.
      */
-    public NoteViewModel(NoteDataSource dataSource) {
-        Log.e("Lugar: ", "Aqui2");
-        this.noteDataSource = dataSource;
+    public LiveData<List<NoteSummary>> getNotesLiveData() {
+        return notesLiveData;
     }
 
     /**
-     * Constructor vacío requerido por ViewModel.
+     * Obtiene LiveData para observar los resultados de la búsqueda.
+     *
+     * @return LiveData con los resultados, o null cuando no hay una búsqueda activa.
      */
-    public NoteViewModel() {
+    public LiveData<List<NoteSummary>> getSearchResultsLiveData() {
+        return searchResultsLiveData;
     }
 
     /**
@@ -63,23 +134,595 @@ public class NoteViewModel extends ViewModel {
      *
      * @param notes Nueva lista de notas.
      */
-    public void updateNotes(List<Note> notes) {
+    public void updateNotes(List<NoteSummary> notes) {
         notesLiveData.setValue(notes);
     }
 
     /**
-     * Método para actualizar la lista de notas en LiveData después de actualizar una nota.
+     * Carga la primera página de la lista si todavía no se ha cargado.
      */
-    public void updateNote() {
-        // Actualiza LiveData después del update
-        List<Note> updatedNotes = noteDataSource.getAllNotes();
-        updateNotes(updatedNotes);
+    public void loadFirstPageIfNeeded() {
+        if (notesLiveData.getValue() == null && !loadingPage) {
+            pageAfter = null;
+            hasMorePages = true;
+            loadNextPage();
+        }
     }
 
-    public void deleteNote() {
-        // Actualiza LiveData después del update
-        List<Note> updatedNotes = noteDataSource.getAllNotes();
-        updateNotes(updatedNotes);
+    /**
+     * Obtiene el orden actual de la lista.
+     *
+     * @return Orden de la lista.
+     */
+    public NoteSortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    /**
+     * Cambia el orden de la lista y la vuelve a cargar desde la primera página. La lista anterior se
+     * sigue mostrando hasta que llega la nueva.
+     *
+     * @param order Nuevo orden.
+     */
+    public void setSortOrder(NoteSortOrder order) {
+        if (order == sortOrder) {
+            return;
+        }
+        sortOrder = order;
+        pageGeneration++;
+        pageAfter = null;
+        hasMorePages = true;
+        loadingPage = false;
+        loadNextPage();
+    }
+
+    /**
+     * Pide al repositorio la siguiente página de la lista. Solo existe una carga en curso a la vez,
+     * por lo que las páginas se agregan en orden.
+     */
+    public void loadNextPage() {
+        if (!searchQuery.isEmpty()) {
+            loadNextSearchPage();
+            return;
+        }
+        if (loadingPage || !hasMorePages) {
+            return;
+        }
+        loadingPage = true;
+        int generation = pageGeneration;
+        boolean firstPage = pageAfter == null;
+        LiveData<NotePage<NoteSummary>> source =
+                noteRepository.loadSummaryPage(sortOrder, pageAfter, NoteDataSource.DEFAULT_PAGE_SIZE);
+        pageLoader.addSource(source, page -> {
+            pageLoader.removeSource(source);
+            if (generation != pageGeneration) {
+                return;
+            }
+            loadingPage = false;
+            if (page == null) {
+                return;
+            }
+            List<NoteSummary> items = page.getItems();
+            hasMorePages = page.hasMore();
+            if (!items.isEmpty()) {
+                pageAfter = items.get(items.size() - 1);
+            }
+            List<NoteSummary> current = firstPage ? null : notesLiveData.getValue();
+            List<NoteSummary> updated = current != null ? new ArrayList<>(current) : new ArrayList<>();
+            updated.addAll(items);
+            notesLiveData.setValue(updated);
+        });
+    }
+
+    /**
+     * Cambia el texto de búsqueda. Se llama con cada tecla: la consulta a la base de datos espera a
+     * que el usuario deje de escribir y cualquier búsqueda anterior en curso se cancela.
+     *
+     * Si la consulta ya está en la caché, los resultados se entregan de inmediato. Si no, mientras
+     * llega la respuesta exacta se muestran los resultados de una consulta más corta de la caché (o,
+     * si no hay ninguna, los que ya estaban a la vista) filtrados con la nueva consulta: solo quedan
+     * las notas cuyo título o fragmento contiene todas las palabras. La lista provisional no tiene
+     * más páginas; la siguiente página se pide sobre la respuesta exacta.
+     *
+     * @param text Texto escrito por el usuario.
+     */
+    public void setSearchQuery(String text) {
+        String query = normalizeQuery(text);
+        if (query.equals(searchQuery)) {
+            return;
+        }
+        searchQuery = query;
+        cancelSearch();
+
+        if (query.isEmpty()) {
+            searchResultsLiveData.setValue(null);
+            return;
+        }
+
+        NotePage<NoteSummary> cached = searchCache.get(query);
+        if (cached != null) {
+            showSearchPage(cached);
+            return;
+        }
+
+        // cancelSearch ya dejó searchCursor en END_OF_LIST, así que no se agregan páginas de la nueva
+        // consulta a la lista provisional
+        NotePage<NoteSummary> shorter = findCachedPrefix(query);
+        List<NoteSummary> previous = shorter != null ? shorter.getItems() : searchResultsLiveData.getValue();
+        if (previous != null) {
+            searchResultsLiveData.setValue(filterByTerms(previous, query));
+        }
+        mainHandler.postDelayed(pendingSearch, SEARCH_DEBOUNCE_MS);
+    }
+
+    /**
+     * Ejecuta la búsqueda pendiente cuando termina el tiempo de espera.
+     */
+    private void runSearch() {
+        String query = searchQuery;
+        int generation = searchGeneration;
+        searchSignal = new CancellationSignal();
+        LiveData<NotePage<NoteSummary>> source = noteRepository.searchNotes(
+                query, NoteDataSource.FIRST_PAGE_CURSOR, NoteDataSource.DEFAULT_PAGE_SIZE, searchSignal);
+        pageLoader.addSource(source, page -> {
+            pageLoader.removeSource(source);
+            if (generation != searchGeneration) {
+                return;
+            }
+            searchSignal = null;
+            if (page == null) {
+                // La búsqueda falló; no se deja a la vista la lista provisional
+                searchResultsLiveData.setValue(Collections.emptyList());
+                return;
+            }
+            searchCache.put(query, page);
+            showSearchPage(page);
+        });
+    }
+
+    /**
+     * Pide la siguiente página de resultados de la búsqueda actual.
+     */
+    private void loadNextSearchPage() {
+        if (loadingSearchPage || searchCursor == NotePage.END_OF_LIST) {
+            return;
+        }
+        loadingSearchPage = true;
+        int generation = searchGeneration;
+        searchSignal = new CancellationSignal();
+        LiveData<NotePage<NoteSummary>> source = noteRepository.searchNotes(
+                searchQuery, searchCursor, NoteDataSource.DEFAULT_PAGE_SIZE, searchSignal);
+        pageLoader.addSource(source, page -> {
+            pageLoader.removeSource(source);
+            if (generation != searchGeneration) {
+                return;
+            }
+            loadingSearchPage = false;
+            searchSignal = null;
+            if (page == null) {
+                return;
+            }
+            searchCursor = page.getNextCursor();
+            List<NoteSummary> current = searchResultsLiveData.getValue();
+            List<NoteSummary> updated = current != null ? new ArrayList<>(current) : new ArrayList<>();
+            updated.addAll(page.getItems());
+            searchResultsLiveData.setValue(updated);
+        });
+    }
+
+    /**
+     * Muestra la primera página de resultados de una búsqueda.
+     *
+     * @param page Página de resultados.
+     */
+    private void showSearchPage(NotePage<NoteSummary> page) {
+        searchCursor = page.getNextCursor();
+        searchResultsLiveData.setValue(new ArrayList<>(page.getItems()));
+    }
+
+    /**
+     * Descarta la búsqueda pendiente y cancela la que esté en curso.
+     */
+    private void cancelSearch() {
+        mainHandler.removeCallbacks(pendingSearch);
+        searchGeneration++;
+        loadingSearchPage = false;
+        searchCursor = NotePage.END_OF_LIST;
+        if (searchSignal != null) {
+            searchSignal.cancel();
+            searchSignal = null;
+        }
+    }
+
+    /**
+     * Busca en la caché la consulta más larga de la que la consulta dada es un refinamiento.
+     *
+     * @param query Consulta normalizada.
+     * @return Primera página de resultados de esa consulta, o null si no hay ninguna en la caché.
+     */
+    private NotePage<NoteSummary> findCachedPrefix(String query) {
+        for (int end = query.length() - 1; end > 0; end--) {
+            NotePage<NoteSummary> page = searchCache.get(query.substring(0, end).trim());
+            if (page != null) {
+                return page;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Filtra resultados de otra búsqueda con los términos de la consulta actual. Una nota se conserva
+     * si cada término es el prefijo de alguna palabra de su título o de su fragmento, igual que la
+     * búsqueda de FTS4 con prefijos. Las notas que solo coinciden fuera del fragmento no se muestran
+     * hasta que llega la respuesta exacta.
+     *
+     * @param items Resultados a filtrar.
+     * @param query Consulta normalizada.
+     * @return Lista nueva con los resultados que coinciden.
+     */
+    static List<NoteSummary> filterByTerms(List<NoteSummary> items, String query) {
+        List<String> terms = words(query);
+        List<NoteSummary> filtered = new ArrayList<>();
+        for (NoteSummary item : items) {
+            List<String> words = words(item.getTitle());
+            words.addAll(words(item.getSnippet()));
+            if (containsAllPrefixes(words, terms)) {
+                filtered.add(item);
+            }
+        }
+        return filtered;
+    }
+
+    private static boolean containsAllPrefixes(List<String> words, List<String> terms) {
+        for (String term : terms) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Separa un texto en palabras en minúsculas, con el mismo criterio que toMatchExpression. Las
+     * marcas de resaltado del fragmento no son letras, por lo que también separan palabras.
+     */
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char ch = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(ch)) {
+                word.append(Character.toLowerCase(ch));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
     }
-}
 
+    /**
+     * Normaliza el texto de búsqueda para que consultas equivalentes compartan la misma entrada
+     * de la caché.
+     *
+     * @param text Texto escrito por el usuario.
+     * @return Texto en minúsculas, sin espacios repetidos ni en los extremos.
+     */
+    private static String normalizeQuery(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Carga una nota completa por su ID.
+     *
+     * @param id ID de la nota.
+     * @return LiveData que recibe la nota, o null si no existe.
+     */
+    public LiveData<Note> loadNote(long id) {
+        return noteRepository.loadNote(id);
+    }
+
+    /**
+     * Carga el título y la cantidad de bloques de una nota, para mostrarla por partes.
+     *
+     * @param id ID de la nota.
+     * @return LiveData que recibe la descripción, o null si la nota no existe.
+     */
+    public LiveData<NoteOutline> loadNoteOutline(long id) {
+        return noteRepository.loadNoteOutline(id);
+    }
+
+    /**
+     * Carga un bloque del contenido de una nota.
+     *
+     * @param id    ID de la nota.
+     * @param index Número del bloque.
+     * @return LiveData que recibe el texto del bloque, o null si no existe.
+     */
+    public LiveData<String> loadNoteChunk(long id, int index) {
+        return noteRepository.loadNoteChunk(id, index);
+    }
+
+    /**
+     * Inserta una nueva nota.
+     *
+     * @param note Nota a insertar.
+     * @return LiveData que recibe el ID de la nota insertada, o -1 si falló.
+     */
+    public LiveData<Long> insertNote(Note note) {
+        return noteRepository.insertNote(note);
+    }
+
+    /**
+     * Actualiza una nota existente.
+     *
+     * @param note Nota con la información actualizada.
+     * @return LiveData que recibe true si la actualización fue exitosa.
+     */
+    public LiveData<Boolean> updateNote(Note note) {
+        return noteRepository.updateNote(note);
+    }
+
+    /**
+     * Obtiene el autoguardado de la pantalla. Como pertenece al ViewModel, conserva la nota guardada
+     * y la última escritura aunque la actividad se recree.
+     *
+     * @return Autoguardado compartido por las instancias de la misma pantalla.
+     */
+    public NoteAutosaver getAutosaver() {
+        if (autosaver == null) {
+            autosaver = noteRepository.newAutosaver();
+        }
+        return autosaver;
+    }
+
+    /**
+     * Elimina una nota. La lista en memoria se actualiza cuando llega el cambio desde NoteChangeNotifier.
+     *
+     * @param id ID de la nota a eliminar.
+     * @return LiveData que recibe true cuando la nota fue eliminada.
+     */
+    public LiveData<Boolean> deleteNote(long id) {
+        return noteRepository.deleteNote(id);
+    }
+
+    /**
+     * Elimina varias notas en una sola transacción. Las listas en memoria se actualizan una sola vez
+     * cuando llegan los cambios desde NoteChangeNotifier.
+     *
+     * @param ids IDs de las notas a eliminar.
+     * @return LiveData que recibe el resumen del lote, o null si falló.
+     */
+    public LiveData<BatchResult> deleteNotes(long[] ids) {
+        return noteRepository.deleteNotes(ids);
+    }
+
+    /**
+     * Obtiene LiveData para observar el avance de las exportaciones e importaciones.
+     *
+     * @return LiveData con el avance, o null si no se ha iniciado ninguna.
+     */
+    public LiveData<BackupProgress> getBackupProgress() {
+        return backupProgress;
+    }
+
+    /**
+     * Indica si hay una exportación o importación en curso.
+     *
+     * @return True si la operación todavía no termina.
+     */
+    public boolean isBackupRunning() {
+        return backupSignal != null;
+    }
+
+    /**
+     * Exporta todas las notas a un documento NDJSON. Solo puede haber una exportación o importación
+     * a la vez.
+     *
+     * @param destination URI del documento elegido por el usuario.
+     */
+    public void exportNotes(Uri destination) {
+        if (backupSignal != null) {
+            return;
+        }
+        CancellationSignal signal = new CancellationSignal();
+        observeBackup(signal, noteRepository.exportNotes(destination, NoteExporter.Format.NDJSON, signal));
+    }
+
+    /**
+     * Importa notas desde un documento NDJSON o ZIP, omitiendo las que ya existen. Solo puede haber
+     * una exportación o importación a la vez.
+     *
+     * @param source URI del documento elegido por el usuario.
+     */
+    public void importNotes(Uri source) {
+        if (backupSignal != null) {
+            return;
+        }
+        CancellationSignal signal = new CancellationSignal();
+        observeBackup(signal, noteRepository.importNotes(source, signal));
+    }
+
+    /**
+     * Publica el avance de una exportación o importación hasta que termina.
+     */
+    private void observeBackup(CancellationSignal signal, LiveData<BackupProgress> source) {
+        backupSignal = signal;
+        backupProgress.addSource(source, progress -> {
+            if (progress.getState() != BackupProgress.State.RUNNING) {
+                backupProgress.removeSource(source);
+                backupSignal = null;
+            }
+            backupProgress.setValue(progress);
+        });
+    }
+
+    /**
+     * Descarta el resultado de la última exportación o importación después de mostrarlo, para que no se muestre
+     * de nuevo si la actividad se recrea.
+     */
+    public void clearBackupProgress() {
+        if (backupSignal == null) {
+            backupProgress.setValue(null);
+        }
+    }
+
+    /**
+     * Cancela la exportación o importación en curso, si existe.
+     */
+    public void cancelBackup() {
+        if (backupSignal != null) {
+            backupSignal.cancel();
+        }
+    }
+
+    /**
+     * Aplica a las listas en memoria los cambios de una transacción, sin volver a consultar la tabla
+     * de notas. Cada lista se recorre y se publica una sola vez, sin importar cuántos cambios haya.
+     *
+     * @param changes Cambios publicados por NoteDataSource.
+     */
+    private void applyChanges(List<NoteChange> changes) {
+        // Los resultados guardados podrían incluir las notas modificadas
+        searchCache.evictAll();
+
+        applySortedChanges(changes);
+
+        // Las notas nuevas o modificadas pueden entrar o salir de los resultados, así que la búsqueda
+        // se repite; si solo hubo eliminaciones, basta con quitarlas de los resultados
+        LongSparseArray<NoteChange> deletions = new LongSparseArray<>(changes.size());
+        boolean searchAffected = false;
+        for (NoteChange change : changes) {
+            if (change.getType() == NoteChange.Type.DELETED) {
+                deletions.put(change.getId(), change);
+            } else {
+                searchAffected = true;
+            }
+        }
+        if (searchAffected) {
+            refreshSearch();
+        } else {
+            applyEdits(searchResultsLiveData, deletions);
+        }
+    }
+
+    /**
+     * Aplica los cambios a la lista de notas respetando su orden. Cada nota modificada se quita de
+     * su posición y se vuelve a ubicar con el comparador del orden actual. Solo se agrega si queda
+     * antes de la llave de la última página cargada; si queda después, llegará con una página
+     * siguiente y agregarla ahora la duplicaría.
+     *
+     * @param changes Cambios publicados por NoteDataSource.
+     */
+    private void applySortedChanges(List<NoteChange> changes) {
+        List<NoteSummary> current = notesLiveData.getValue();
+        if (current == null) {
+            return;
+        }
+        // Último cambio de cada nota, en el orden en que se aplicaron
+        LongSparseArray<NoteChange> latest = new LongSparseArray<>(changes.size());
+        for (NoteChange change : changes) {
+            latest.put(change.getId(), change);
+        }
+
+        List<NoteSummary> updated = new ArrayList<>(current.size() + changes.size());
+        LongSparseArray<String> snippets = new LongSparseArray<>();
+        boolean changed = false;
+        for (NoteSummary summary : current) {
+            if (latest.indexOfKey(summary.getId()) < 0) {
+                updated.add(summary);
+            } else {
+                changed = true;
+                snippets.put(summary.getId(), summary.getSnippet());
+            }
+        }
+
+        boolean fullyLoaded = !hasMorePages && !loadingPage;
+        for (int i = 0; i < latest.size(); i++) {
+            NoteChange change = latest.valueAt(i);
+            if (change.getType() == NoteChange.Type.DELETED) {
+                continue;
+            }
+            NoteSummary summary = new NoteSummary(change.getId(), change.getTitle(),
+                    snippets.get(change.getId()), change.getUpdatedAt());
+            if (!fullyLoaded && (pageAfter == null || sortOrder.compare(summary, pageAfter) > 0)) {
+                continue;
+            }
+            int position = Collections.binarySearch(updated, summary, sortOrder);
+            updated.add(position < 0 ? -position - 1 : position, summary);
+            changed = true;
+        }
+        if (changed) {
+            notesLiveData.setValue(updated);
+        }
+    }
+
+    /**
+     * Vuelve a ejecutar la búsqueda activa, ya que un cambio puede agregar o quitar resultados.
+     */
+    private void refreshSearch() {
+        if (!searchQuery.isEmpty()) {
+            cancelSearch();
+            runSearch();
+        }
+    }
+
+    /**
+     * Aplica modificaciones en su lugar a una de las listas publicadas y la publica una sola vez si
+     * cambió.
+     *
+     * @param liveData Lista que se modifica.
+     * @param edits    Cambio de actualización o eliminación por ID.
+     */
+    private static void applyEdits(MutableLiveData<List<NoteSummary>> liveData, LongSparseArray<NoteChange> edits) {
+        List<NoteSummary> current = liveData.getValue();
+        if (current == null) {
+            return;
+        }
+        List<NoteSummary> updated = new ArrayList<>(current.size());
+        boolean changed = false;
+        for (NoteSummary summary : current) {
+            int index = edits.indexOfKey(summary.getId());
+            if (index < 0) {
+                updated.add(summary);
+                continue;
+            }
+            changed = true;
+            NoteChange change = edits.valueAt(index);
+            if (change.getType() != NoteChange.Type.DELETED) {
+                updated.add(new NoteSummary(summary.getId(), change.getTitle(), summary.getSnippet(),
+                        change.getUpdatedAt()));
+            }
+        }
+        if (changed) {
+            liveData.setValue(updated);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        NoteChangeNotifier.getInstance().removeListener(changeListener);
+        mainHandler.removeCallbacksAndMessages(null);
+        cancelBackup();
+        cancelSearch();
+        pageLoader.removeObserver(pageLoaderObserver);
+        if (autosaver != null) {
+            // El editor ya guardó en onPause; solo se descarta la espera programada
+            autosaver.cancel();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.apuntesapp.benchmarks;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.apuntesapp.data.database.NoteDataSource;
+import com.example.apuntesapp.data.database.NoteDatabaseHelper;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Pruebas que comprueban que la copia del esquema y de las instrucciones SQL que usan los benchmarks
+ * sigue igual a la de la aplicación. Si fallan, se debe actualizar NoteSchema y su SCHEMA_VERSION.
+ */
+public class NoteSchemaTest {
+
+    private static final String DATABASE_PACKAGE = "com.example.apuntesapp.data.database.";
+
+    @Test
+    public void schemaMatchesOnCreate() {
+        // Se ejecuta solo onCreate, sin el constructor de SQLiteOpenHelper
+        NoteDatabaseHelper helper = mock(NoteDatabaseHelper.class, CALLS_REAL_METHODS);
+        SQLiteDatabase db = mock(SQLiteDatabase.class);
+
+        helper.onCreate(db);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(db, atLeastOnce()).execSQL(sql.capture());
+        assertEquals(Arrays.asList(NoteSchema.CREATE_SCHEMA), sql.getAllValues());
+    }
+
+    @Test
+    public void versionAndSnippetLengthMatch() throws Exception {
+        assertEquals(constant(NoteDatabaseHelper.class, "DATABASE_VERSION"), NoteSchema.SCHEMA_VERSION);
+        assertEquals(NoteDataSource.SNIPPET_LENGTH, NoteSchema.SNIPPET_LENGTH);
+    }
+
+    @Test
+    public void statementsMatch() throws Exception {
+        assertEquals(constant(NoteDataSource.class, "SQL_INSERT"), NoteSchema.INSERT);
+        assertEquals(constant(NoteDataSource.class, "SQL_UPDATE"), NoteSchema.UPDATE);
+        assertEquals(constant(NoteDataSource.class, "SQL_SEARCH"), NoteSchema.SEARCH);
+        assertEquals(constant(DATABASE_PACKAGE + "CompressedSearchIndex", "SQL_SELECT_FORMAT"),
+                NoteSchema.SELECT_FORMAT);
+        assertEquals(constant(DATABASE_PACKAGE + "NoteChunkStore", "SQL_DELETE_CHUNKS"), NoteSchema.DELETE_CHUNKS);
+        assertEquals(constant(DATABASE_PACKAGE + "NoteChunkStore", "SQL_DELETE_EDITS"), NoteSchema.DELETE_EDITS);
+    }
+
+    @Test
+    public void matchExpressionsMatch() throws Exception {
+        Method toMatchExpression = NoteDataSource.class.getDeclaredMethod(
+                "toMatchExpression", String.class, String.class);
+        toMatchExpression.setAccessible(true);
+        String[] queries = {"", "Hola mundo", "CAFÉ Ñandú", "\"pan\" AND (NOT -leche) caf*", "  \"*()- ", "a1 b_2"};
+        for (String query : queries) {
+            for (String column : new String[]{null, "title"}) {
+                assertEquals(query, toMatchExpression.invoke(null, query, column),
+                        NoteSchema.toMatchExpression(query, column));
+            }
+        }
+    }
+
+    private static Object constant(String className, String name) throws Exception {
+        return constant(Class.forName(className), name);
+    }
+
+    // Las constantes de la aplicación son privadas; se leen por reflexión en lugar de ampliar su acceso
+    private static Object constant(Class<?> type, String name) throws Exception {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(null);
+    }
+}
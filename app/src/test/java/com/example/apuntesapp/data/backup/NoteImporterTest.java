@@ -0,0 +1,186 @@
+package com.example.apuntesapp.data.backup;
+
+import com.example.apuntesapp.data.database.BatchResult;
+import com.example.apuntesapp.model.Note;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Pruebas del conteo de notas importadas, omitidas y ya procesadas de NoteImporter, incluida la
+ * reanudación de una importación interrumpida. Los bloques se guardan en memoria en lugar de en la
+ * base de datos.
+ */
+public class NoteImporterTest {
+
+    // Igual a NoteImporter.CHUNK_SIZE
+    private static final int CHUNK_SIZE = 500;
+    private static final int RECORD_COUNT = 1200;
+
+    private FakeWriter writer;
+    private List<long[]> progress;
+
+    @Before
+    public void setUp() {
+        writer = new FakeWriter();
+        progress = new ArrayList<>();
+    }
+
+    @Test
+    public void importReportsProgressAfterEveryChunk() throws IOException {
+        long imported = importNotes(ndjson(RECORD_COUNT), 0);
+
+        assertEquals(RECORD_COUNT, imported);
+        assertEquals(3, writer.chunks.size());
+        assertEquals(CHUNK_SIZE, writer.chunks.get(0).size());
+        assertEquals(RECORD_COUNT - 2 * CHUNK_SIZE, writer.chunks.get(2).size());
+        assertProgress(new long[]{500, 500, 0}, new long[]{1000, 1000, 0}, new long[]{1200, 1200, 0});
+    }
+
+    @Test
+    public void resumeSkipsRecordsAlreadyConsumed() throws IOException {
+        long imported = importNotes(ndjson(RECORD_COUNT), CHUNK_SIZE);
+
+        assertEquals(RECORD_COUNT - CHUNK_SIZE, imported);
+        assertEquals("Nota " + (CHUNK_SIZE + 1), writer.chunks.get(0).get(0).getTitle());
+        // El avance cuenta los registros saltados para que se pueda volver a reanudar
+        assertProgress(new long[]{1000, 500, 0}, new long[]{1200, 700, 0});
+    }
+
+    @Test
+    public void resumeAfterTheLastRecordImportsNothing() throws IOException {
+        long imported = importNotes(ndjson(RECORD_COUNT), RECORD_COUNT);
+
+        assertEquals(0, imported);
+        assertEquals(0, writer.chunks.size());
+        assertProgress(new long[]{RECORD_COUNT, 0, 0});
+    }
+
+    @Test
+    public void duplicatesAreCountedAsSkipped() throws IOException {
+        StringBuilder text = new StringBuilder(ndjson(3));
+        // La misma nota de nuevo, dentro del archivo y contra lo ya guardado
+        text.append(line("Nota 2", "Contenido 2"));
+
+        assertEquals(3, importNotes(text.toString(), 0));
+        assertProgress(new long[]{4, 3, 1});
+
+        progress.clear();
+        assertEquals(0, importNotes(text.toString(), 0));
+        assertProgress(new long[]{4, 0, 4});
+    }
+
+    @Test
+    public void damagedLinesCountAsRecordsAndAsSkipped() throws IOException {
+        String text = line("Uno", "a") + "{no es JSON\n" + "\n   \n" + line("Dos", "b");
+
+        long imported = importNotes(text, 0);
+
+        assertEquals(2, imported);
+        // Las líneas vacías no son registros; la línea dañada sí, para que la reanudación no se desfase
+        assertProgress(new long[]{3, 2, 1});
+
+        // Otra base de datos, reanudando después de la línea dañada
+        setUp();
+        assertEquals(1, importNotes(text, 2));
+        // Los registros saltados al reanudar solo cuentan como procesados
+        assertProgress(new long[]{3, 1, 0});
+        assertEquals(1, writer.chunks.size());
+        assertEquals("Dos", writer.chunks.get(0).get(0).getTitle());
+    }
+
+    @Test
+    public void zipEntriesAreReadInOrder() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            putEntry(zip, "notas.ndjson", ndjson(2));
+            putEntry(zip, "carpeta/Compras.md", "leche y pan\n");
+            putEntry(zip, "Ideas.md", "# Título real\nPrimera línea\n");
+            putEntry(zip, "imagen.png", "no es una nota");
+        }
+
+        long imported = new NoteImporter(writer).importNotes(
+                new ByteArrayInputStream(bytes.toByteArray()), 1, this::onProgress, null);
+
+        assertEquals(3, imported);
+        List<Note> notes = writer.chunks.get(0);
+        assertEquals("Nota 2", notes.get(0).getTitle());
+        assertEquals("Compras", notes.get(1).getTitle());
+        assertEquals("leche y pan\n", notes.get(1).getContent());
+        assertEquals("Título real", notes.get(2).getTitle());
+        assertEquals("Primera línea\n", notes.get(2).getContent());
+        assertProgress(new long[]{4, 3, 0});
+    }
+
+    private long importNotes(String text, long recordsToSkip) throws IOException {
+        InputStream in = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+        return new NoteImporter(writer).importNotes(in, recordsToSkip, this::onProgress, null);
+    }
+
+    private void onProgress(long recordsConsumed, long imported, long skipped) {
+        progress.add(new long[]{recordsConsumed, imported, skipped});
+    }
+
+    private void assertProgress(long[]... expected) {
+        assertEquals(expected.length, progress.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], progress.get(i));
+        }
+    }
+
+    private static String ndjson(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            text.append(line("Nota " + i, "Contenido " + i));
+        }
+        return text.toString();
+    }
+
+    private static String line(String title, String content) {
+        return "{\"title\":" + JSONObject.quote(title) + ",\"content\":" + JSONObject.quote(content) + "}\n";
+    }
+
+    private static void putEntry(ZipOutputStream zip, String name, String text) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(text.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    /**
+     * Guarda los bloques en memoria y omite los duplicados por título y contenido, igual que
+     * NoteDataSource#insertNotes(Collection, boolean).
+     */
+    private static final class FakeWriter implements NoteImporter.ChunkWriter {
+        private final Set<String> stored = new HashSet<>();
+        final List<List<Note>> chunks = new ArrayList<>();
+
+        @Override
+        public BatchResult insertChunk(List<Note> notes) {
+            // El importador reutiliza la lista después de la llamada
+            chunks.add(new ArrayList<>(notes));
+            int inserted = 0;
+            for (Note note : notes) {
+                if (stored.add(note.getTitle() + '\0' + note.getContent())) {
+                    inserted++;
+                }
+            }
+            return new BatchResult(notes.size(), inserted, 0);
+        }
+    }
+}
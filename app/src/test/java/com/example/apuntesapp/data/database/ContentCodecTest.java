@@ -0,0 +1,125 @@
+package com.example.apuntesapp.data.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas de la elección de formato de ContentCodec y de la ida y vuelta entre el texto y lo que se
+ * guarda en la columna de contenido.
+ */
+public class ContentCodecTest {
+
+    @Test
+    public void shortAndNullContentStayPlain() {
+        assertEquals(ContentCodec.FORMAT_PLAIN, ContentCodec.encode(null).format);
+        assertEquals(ContentCodec.FORMAT_PLAIN, ContentCodec.encode("").format);
+        assertEquals(ContentCodec.FORMAT_PLAIN, ContentCodec.encode("leche, pan y café").format);
+    }
+
+    @Test
+    public void compressionThresholdCountsUtf8Bytes() {
+        String belowAscii = repeat("a", ContentCodec.COMPRESSION_THRESHOLD - 1);
+        String atAscii = repeat("a", ContentCodec.COMPRESSION_THRESHOLD);
+        // 2 bytes por carácter: menos caracteres que el umbral, pero no menos bytes
+        String atTwoByte = repeat("ñ", ContentCodec.COMPRESSION_THRESHOLD / 2);
+        String belowTwoByte = repeat("ñ", ContentCodec.COMPRESSION_THRESHOLD / 2 - 1);
+
+        assertEquals(ContentCodec.FORMAT_PLAIN, ContentCodec.encode(belowAscii).format);
+        assertEquals(ContentCodec.FORMAT_DEFLATE, ContentCodec.encode(atAscii).format);
+        assertEquals(ContentCodec.FORMAT_PLAIN, ContentCodec.encode(belowTwoByte).format);
+        assertEquals(ContentCodec.FORMAT_DEFLATE, ContentCodec.encode(atTwoByte).format);
+    }
+
+    @Test
+    public void contentLongerThanAChunkIsChunked() {
+        ContentCodec.Encoded atLimit = ContentCodec.encode(repeat("a", NoteChunkStore.CHUNK_SIZE));
+        ContentCodec.Encoded overLimit = ContentCodec.encode(repeat("a", NoteChunkStore.CHUNK_SIZE + 1));
+
+        assertEquals(ContentCodec.FORMAT_DEFLATE, atLimit.format);
+        assertTrue(overLimit.isChunked());
+        SQLiteStatement statement = mock(SQLiteStatement.class);
+        overLimit.bind(statement, 2);
+        verify(statement).bindNull(2);
+    }
+
+    @Test
+    public void plainContentIsBoundAsText() {
+        SQLiteStatement statement = mock(SQLiteStatement.class);
+        ContentCodec.encode("hola").bind(statement, 2);
+
+        verify(statement).bindString(2, "hola");
+        verify(statement, never()).bindBlob(anyInt(), any());
+    }
+
+    @Test
+    public void deflateRoundTripKeepsText() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 6000; i++) {
+            text.append("Párrafo ").append(i).append(": ñandú, café y \uD83D\uDE00\n");
+        }
+        String content = text.toString();
+
+        byte[] stored = encodeToBlob(content);
+
+        assertTrue(stored.length < content.getBytes(StandardCharsets.UTF_8).length);
+        assertEquals(content, ContentCodec.decode(ContentCodec.FORMAT_DEFLATE, cursorWithBlob(stored), 0));
+    }
+
+    @Test
+    public void corruptedDataThrows() {
+        byte[] stored = encodeToBlob(repeat("contenido repetido ", 200));
+        byte[] truncated = new byte[stored.length / 2];
+        System.arraycopy(stored, 0, truncated, 0, truncated.length);
+        try {
+            ContentCodec.decode(ContentCodec.FORMAT_DEFLATE, cursorWithBlob(truncated), 0);
+            fail("Se esperaba IllegalStateException por datos incompletos");
+        } catch (IllegalStateException expected) {
+            // Correcto: un BLOB dañado no debe devolver un texto parcial
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unknownFormatThrows() {
+        ContentCodec.decode(ContentCodec.FORMAT_CHUNKED, mock(Cursor.class), 0);
+    }
+
+    private static byte[] encodeToBlob(String content) {
+        ContentCodec.Encoded encoded = ContentCodec.encode(content);
+        assertEquals(ContentCodec.FORMAT_DEFLATE, encoded.format);
+        SQLiteStatement statement = mock(SQLiteStatement.class);
+        encoded.bind(statement, 2);
+        ArgumentCaptor<byte[]> blob = ArgumentCaptor.forClass(byte[].class);
+        verify(statement).bindBlob(eq(2), blob.capture());
+        return blob.getValue();
+    }
+
+    private static Cursor cursorWithBlob(byte[] blob) {
+        Cursor cursor = mock(Cursor.class);
+        when(cursor.getBlob(0)).thenReturn(blob);
+        return cursor;
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder(text.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
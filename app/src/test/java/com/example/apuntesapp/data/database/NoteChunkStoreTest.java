@@ -0,0 +1,127 @@
+package com.example.apuntesapp.data.database;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pruebas de la división del contenido de una nota en bloques.
+ */
+public class NoteChunkStoreTest {
+
+    private static final int CHUNK_SIZE = NoteChunkStore.CHUNK_SIZE;
+
+    @Test
+    public void emptyTextHasNoChunks() {
+        assertTrue(NoteChunkStore.split("").isEmpty());
+    }
+
+    @Test
+    public void textOfExactlyOneChunkIsNotSplit() {
+        String content = repeat('a', CHUNK_SIZE);
+
+        List<String> chunks = NoteChunkStore.split(content);
+
+        assertEquals(1, chunks.size());
+        assertEquals(content, chunks.get(0));
+    }
+
+    @Test
+    public void oneCharacterOverTheLimitStartsASecondChunk() {
+        List<String> chunks = NoteChunkStore.split(repeat('a', CHUNK_SIZE + 1));
+
+        assertEquals(2, chunks.size());
+        assertEquals(CHUNK_SIZE, chunks.get(0).length());
+        assertEquals("a", chunks.get(1));
+    }
+
+    @Test
+    public void chunksEndAfterALineBreakInTheSecondHalf() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() <= 3 * CHUNK_SIZE; i++) {
+            text.append("Párrafo ").append(i).append(" de una nota muy larga\n");
+        }
+        String content = text.toString();
+
+        List<String> chunks = NoteChunkStore.split(content);
+
+        assertEquals(content, join(chunks));
+        for (int i = 0; i < chunks.size(); i++) {
+            String chunk = chunks.get(i);
+            assertTrue(chunk.length() <= CHUNK_SIZE);
+            assertTrue(chunk.endsWith("\n"));
+            // Solo el último bloque puede quedar en la primera mitad
+            assertTrue(chunk.length() >= CHUNK_SIZE / 2 || i == chunks.size() - 1);
+        }
+    }
+
+    @Test
+    public void lineBreakAtHalfIsUsed() {
+        String content = repeat('a', CHUNK_SIZE / 2) + "\n" + repeat('b', CHUNK_SIZE);
+
+        List<String> chunks = NoteChunkStore.split(content);
+
+        assertEquals(CHUNK_SIZE / 2 + 1, chunks.get(0).length());
+        assertEquals(content, join(chunks));
+    }
+
+    @Test
+    public void lineBreakInTheFirstHalfIsIgnored() {
+        String content = repeat('a', CHUNK_SIZE / 2 - 2) + "\n" + repeat('b', CHUNK_SIZE);
+
+        List<String> chunks = NoteChunkStore.split(content);
+
+        assertEquals(CHUNK_SIZE, chunks.get(0).length());
+        assertEquals(content, join(chunks));
+    }
+
+    @Test
+    public void surrogatePairAtTheLimitIsNotSeparated() {
+        // El emoji ocupa las posiciones CHUNK_SIZE - 1 y CHUNK_SIZE
+        String content = repeat('a', CHUNK_SIZE - 1) + "\uD83D\uDE00" + "b";
+
+        List<String> chunks = NoteChunkStore.split(content);
+
+        assertEquals(2, chunks.size());
+        assertEquals(CHUNK_SIZE - 1, chunks.get(0).length());
+        assertEquals("\uD83D\uDE00b", chunks.get(1));
+    }
+
+    @Test
+    public void textMadeOfSurrogatePairsKeepsEveryPairWhole() {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 3 * CHUNK_SIZE) {
+            text.append("\uD83D\uDE00");
+        }
+        String content = text.toString();
+
+        List<String> chunks = NoteChunkStore.split(content);
+
+        assertEquals(content, join(chunks));
+        for (String chunk : chunks) {
+            assertTrue(chunk.length() <= CHUNK_SIZE);
+            assertFalse(Character.isLowSurrogate(chunk.charAt(0)));
+            assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)));
+        }
+    }
+
+    private static String join(List<String> chunks) {
+        StringBuilder content = new StringBuilder();
+        for (String chunk : chunks) {
+            content.append(chunk);
+        }
+        return content.toString();
+    }
+
+    private static String repeat(char c, int times) {
+        StringBuilder builder = new StringBuilder(times);
+        for (int i = 0; i < times; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
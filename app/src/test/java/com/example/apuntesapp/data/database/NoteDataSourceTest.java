@@ -0,0 +1,106 @@
+package com.example.apuntesapp.data.database;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Pruebas de la expresión MATCH que NoteDataSource arma con el texto de búsqueda. Las expresiones se
+ * ejecutan sobre una tabla FTS4 con el mismo tokenizador que la aplicación, usando sqlite-jdbc.
+ */
+public class NoteDataSourceTest {
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE VIRTUAL TABLE notes_fts USING fts4(title, content, tokenize=unicode61)");
+            statement.execute("INSERT INTO notes_fts (docid, title, content)"
+                    + " VALUES (1, 'Lista de compras', 'leche, pan y café')");
+            statement.execute("INSERT INTO notes_fts (docid, title, content)"
+                    + " VALUES (2, 'Ideas', 'comprar un libro; NOT urgente')");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void wordsBecomePrefixTerms() {
+        assertEquals("hola* mundo*", NoteDataSource.toMatchExpression("Hola mundo", null));
+        assertEquals("title:leche* title:pan*", NoteDataSource.toMatchExpression("leche-pan", "title"));
+    }
+
+    @Test
+    public void queriesWithoutWordsProduceNoExpression() {
+        assertNull(NoteDataSource.toMatchExpression(null, null));
+        assertNull(NoteDataSource.toMatchExpression("", null));
+        assertNull(NoteDataSource.toMatchExpression("  \"*()- ", "title"));
+    }
+
+    @Test
+    public void operatorsAndSyntaxAreDropped() {
+        assertEquals("pan* and* not* leche* caf*",
+                NoteDataSource.toMatchExpression("\"pan\" AND (NOT -leche) caf*", null));
+        assertEquals("café* ñandú*", NoteDataSource.toMatchExpression("CAFÉ Ñandú", null));
+    }
+
+    @Test
+    public void expressionsAreValidFts4Syntax() throws SQLException {
+        String[] queries = {"\"", "(", "a OR", "NEAR/2", "title:", "-pan", "^leche", "pan*  *", "'; DROP"};
+        for (String query : queries) {
+            String match = NoteDataSource.toMatchExpression(query, null);
+            if (match != null) {
+                // Falla con SQLException si la expresión no es válida
+                search(match);
+            }
+        }
+    }
+
+    @Test
+    public void expressionsFindNotesByPrefix() throws SQLException {
+        assertEquals(ids(1L), search(NoteDataSource.toMatchExpression("CAFÉ", null)));
+        assertEquals(ids(1L, 2L), search(NoteDataSource.toMatchExpression("compr", null)));
+        assertEquals(ids(1L), search(NoteDataSource.toMatchExpression("compr", "title")));
+        // "NOT" se busca como palabra, no como operador
+        assertEquals(ids(2L), search(NoteDataSource.toMatchExpression("not urg", null)));
+    }
+
+    private List<Long> search(String match) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT docid FROM notes_fts WHERE notes_fts MATCH ? ORDER BY docid")) {
+            select.setString(1, match);
+            try (ResultSet c = select.executeQuery()) {
+                while (c.next()) {
+                    ids.add(c.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static List<Long> ids(Long... ids) {
+        List<Long> list = new ArrayList<>();
+        for (Long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+}
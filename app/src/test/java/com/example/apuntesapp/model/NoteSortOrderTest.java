@@ -0,0 +1,122 @@
+package com.example.apuntesapp.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pruebas que comparan el orden en memoria de NoteSortOrder con el ORDER BY que SQLite aplica a las
+ * mismas filas, usando sqlite-jdbc.
+ */
+public class NoteSortOrderTest {
+
+    // Incluye títulos nulos, repetidos con otras mayúsculas, signos entre las mayúsculas y las
+    // minúsculas ASCII, letras no ASCII y caracteres a ambos lados de los pares sustitutos
+    private static final String[] TITLES = {
+            "Lista de compras", null, "lista de compras", "LISTA", "_borrador", "[archivo]", "Zeta", "zeta",
+            "Ábaco", "ábaco", "abaco", "", "a", "ab", "Ω", "ω", null, "\uFFFD",
+            "\uD83D\uDE00", "\uD83D\uDE00 Ideas", "\uE000 privado", "Ideas \uD83D\uDE00", "Ideas \uE000"
+    };
+
+    private Connection connection;
+    private List<NoteSummary> summaries;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE notes (_id INTEGER PRIMARY KEY, title TEXT, updated_at INTEGER)");
+        }
+        summaries = new ArrayList<>();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO notes (_id, title, updated_at) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < TITLES.length; i++) {
+                long id = i + 1;
+                // Varias notas comparten fecha para probar el desempate por ID
+                long updatedAt = 1000 + (i * 7) % 5;
+                insert.setLong(1, id);
+                insert.setString(2, TITLES[i]);
+                insert.setLong(3, updatedAt);
+                insert.executeUpdate();
+                summaries.add(new NoteSummary(id, TITLES[i], null, updatedAt));
+            }
+        }
+        // El orden de inserción no debe influir en el resultado
+        Collections.shuffle(summaries, new Random(42));
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void createdMatchesSql() throws SQLException {
+        assertEquals(sqlOrder("_id ASC"), memoryOrder(NoteSortOrder.CREATED));
+    }
+
+    @Test
+    public void updatedMatchesSql() throws SQLException {
+        assertEquals(sqlOrder("updated_at DESC, _id ASC"), memoryOrder(NoteSortOrder.UPDATED));
+    }
+
+    @Test
+    public void titleMatchesSqlNoCase() throws SQLException {
+        assertEquals(sqlOrder("title COLLATE NOCASE ASC, _id ASC"), memoryOrder(NoteSortOrder.TITLE));
+    }
+
+    @Test
+    public void titleComparesCodePointsNotUtf16Units() {
+        NoteSummary emoji = new NoteSummary(1, "\uD83D\uDE00", null);
+        NoteSummary privateUse = new NoteSummary(2, "\uE000", null);
+
+        // En UTF-16 el emoji empieza con 0xD83D, menor que 0xE000; por punto de código es mayor
+        assertTrue(NoteSortOrder.TITLE.compare(privateUse, emoji) < 0);
+        assertTrue(NoteSortOrder.TITLE.compare(emoji, privateUse) > 0);
+    }
+
+    @Test
+    public void titleIgnoresOnlyAsciiCase() {
+        assertEquals(0, Integer.signum(NoteSortOrder.TITLE.compare(
+                new NoteSummary(1, "Lista", null), new NoteSummary(1, "lISTA", null))));
+        // NOCASE no pliega las letras fuera de ASCII
+        assertTrue(NoteSortOrder.TITLE.compare(
+                new NoteSummary(1, "Ábaco", null), new NoteSummary(1, "ábaco", null)) < 0);
+    }
+
+    private List<Long> sqlOrder(String orderBy) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet c = statement.executeQuery("SELECT _id FROM notes ORDER BY " + orderBy)) {
+            while (c.next()) {
+                ids.add(c.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private List<Long> memoryOrder(NoteSortOrder order) {
+        NoteSummary[] sorted = summaries.toArray(new NoteSummary[0]);
+        Arrays.sort(sorted, order);
+        List<Long> ids = new ArrayList<>();
+        for (NoteSummary summary : sorted) {
+            ids.add(summary.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.apuntesapp.ui.editnote;
+
+import com.example.apuntesapp.model.NoteEdit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pruebas de la región modificada que EditRegionTracker calcula. Cada edición se simula como lo hace
+ * EditText: beforeTextChanged con el texto anterior y luego el reemplazo. El cambio resultante,
+ * aplicado sobre la versión guardada, debe dar el texto actual.
+ */
+public class EditRegionTrackerTest {
+
+    // Igual a NoteChunkStore.CHUNK_SIZE
+    private static final int CHUNK_SIZE = 8192;
+    private static final String SAVED = "Lista de compras:\nleche\npan\ncafé\n";
+
+    private EditRegionTracker tracker;
+    private String saved;
+    private StringBuilder text;
+
+    @Before
+    public void setUp() {
+        tracker = new EditRegionTracker();
+        save(SAVED);
+    }
+
+    @Test
+    public void noChangesProduceAnEmptyEdit() {
+        NoteEdit edit = toEdit();
+
+        assertEquals(SAVED.length(), edit.getStart());
+        assertEquals(SAVED.length(), edit.getEnd());
+        assertEquals("", edit.getReplacement());
+    }
+
+    @Test
+    public void insertionOnlyCopiesTheNewText() {
+        int start = SAVED.indexOf("pan");
+        replace(start, 0, "huevos\n");
+
+        NoteEdit edit = assertEditMatchesText();
+        assertEquals(start, edit.getStart());
+        assertEquals(start, edit.getEnd());
+        assertEquals("huevos\n", edit.getReplacement());
+    }
+
+    @Test
+    public void overlappingEditsProduceOneRegion() {
+        int start = SAVED.indexOf("leche");
+        replace(start, 5, "leche descremada");
+        // Borra desde dentro del texto nuevo hasta dentro del texto original
+        replace(start + 6, 15, "");
+        replace(start + 3, 4, "CHE");
+
+        NoteEdit edit = assertEditMatchesText();
+        assertEquals(start, edit.getStart());
+    }
+
+    @Test
+    public void separateEditsCoverTheTextBetweenThem() {
+        replace(0, 5, "LISTA");
+        replace(text.length() - 5, 4, "té");
+
+        NoteEdit edit = assertEditMatchesText();
+        assertEquals(0, edit.getStart());
+        assertEquals(SAVED.length() - 1, edit.getEnd());
+    }
+
+    @Test
+    public void deletionAtTheEnd() {
+        replace(text.length() - 5, 5, "");
+
+        NoteEdit edit = assertEditMatchesText();
+        assertEquals(SAVED.length() - 5, edit.getStart());
+        assertEquals(SAVED.length(), edit.getEnd());
+        assertEquals("", edit.getReplacement());
+    }
+
+    @Test
+    public void deletingEverything() {
+        replace(0, text.length(), "");
+
+        NoteEdit edit = assertEditMatchesText();
+        assertEquals(0, edit.getStart());
+        assertEquals(SAVED.length(), edit.getEnd());
+    }
+
+    @Test
+    public void repeatedCharactersDoNotOverlapPrefixAndSuffix() {
+        save("aaaa");
+        // Se podría atribuir la "a" borrada a cualquier posición; el inicio y el final no se pisan
+        replace(1, 1, "");
+        assertEditMatchesText();
+
+        save("aaaa");
+        replace(2, 0, "a");
+        assertEditMatchesText();
+    }
+
+    @Test
+    public void editsAfterSavingAreRelativeToTheNewVersion() {
+        replace(0, 0, "# ");
+        assertEditMatchesText();
+        save(text.toString());
+
+        replace(text.length(), 0, "té\n");
+
+        NoteEdit edit = assertEditMatchesText();
+        assertEquals(SAVED.length() + 2, edit.getStart());
+        assertEquals("té\n", edit.getReplacement());
+    }
+
+    @Test
+    public void shortNoteIsSavedWhole() {
+        // La base de datos rechaza los rangos en las notas que no están divididas en bloques
+        replace(0, 5, "LISTA");
+
+        assertFalse(tracker.canSaveRange());
+        assertEditMatchesText();
+    }
+
+    @Test
+    public void chunkedNoteIsSavedAsARange() {
+        save(repeat('a', 2 * CHUNK_SIZE));
+        replace(10, 1, "b");
+
+        assertTrue(tracker.canSaveRange());
+        NoteEdit edit = assertEditMatchesText();
+        assertEquals("b", edit.getReplacement());
+    }
+
+    @Test
+    public void noteShortenedBelowTheChunkLimitIsSavedWhole() {
+        String limit = repeat('a', CHUNK_SIZE);
+        save(limit + "b");
+        assertTrue(tracker.canSaveRange());
+
+        replace(limit.length(), 1, "");
+        assertTrue(tracker.canSaveRange());
+        // Después de guardar, la nota ya no está dividida
+        save(text.toString());
+        assertFalse(tracker.canSaveRange());
+    }
+
+    @Test
+    public void unknownRegionIsNeverARange() {
+        assertFalse(new EditRegionTracker().canSaveRange());
+    }
+
+    @Test
+    public void randomEditsAlwaysRebuildTheText() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            save(SAVED);
+            int edits = 1 + random.nextInt(5);
+            for (int i = 0; i < edits; i++) {
+                int start = random.nextInt(text.length() + 1);
+                int count = random.nextInt(text.length() - start + 1);
+                String replacement = SAVED.substring(0, random.nextInt(4));
+                replace(start, count, replacement);
+            }
+            assertEditMatchesText();
+        }
+    }
+
+    private void save(String content) {
+        saved = content;
+        text = new StringBuilder(content);
+        tracker.reset(content.length());
+    }
+
+    private void replace(int start, int count, String replacement) {
+        tracker.beforeTextChanged(text.toString(), start, count, replacement.length());
+        text.replace(start, start + count, replacement);
+    }
+
+    private NoteEdit toEdit() {
+        return tracker.toEdit(1, 1000, "Título", text);
+    }
+
+    private NoteEdit assertEditMatchesText() {
+        NoteEdit edit = toEdit();
+        String applied = saved.substring(0, edit.getStart()) + edit.getReplacement()
+                + saved.substring(edit.getEnd());
+        assertEquals(text.toString(), applied);
+        return edit;
+    }
+
+    private static String repeat(char c, int times) {
+        StringBuilder builder = new StringBuilder(times);
+        for (int i = 0; i < times; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.apuntesapp.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * Clase que prepara las bases de datos en disco usadas por los benchmarks.
+ *
+ * Conceptos:
+ * - Plantillas: Generar un millón de notas tarda minutos, por lo que cada tamaño se genera una sola
+ *   vez en el directorio indicado por la propiedad DATA_DIR_PROPERTY y se reutiliza en las siguientes
+ *   ejecuciones. El nombre del archivo incluye la versión del esquema.
+ *
+ * - Datos deterministas: Las notas se generan con una semilla fija, de modo que dos ejecuciones
+ *   comparan exactamente los mismos datos. Los textos usan un vocabulario pequeño, con palabras
+ *   comunes y otras que aparecen en pocas notas, para que las búsquedas tengan resultados de ambos
+ *   tipos.
+ *
+ * - Configuración de la aplicación: Las conexiones usan WAL y synchronous=NORMAL, la configuración
+ *   con la que Android abre la base de datos de la aplicación.
+ */
+final class BenchmarkDatabase {
+
+    // Directorio donde se guardan las plantillas; el build lo apunta a build/benchmark-data
+    static final String DATA_DIR_PROPERTY = "apuntes.benchmark.dataDir";
+
+    // Cantidad de notas que se insertan por transacción al generar una plantilla
+    private static final int SEED_BATCH_SIZE = 10_000;
+    // Fecha de la nota más antigua; cada nota siguiente es algunos segundos posterior
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    private static final String[] COMMON_WORDS = {
+            "nota", "reunion", "proyecto", "tarea", "lista", "compras", "idea", "pendiente", "revisar",
+            "llamar", "enviar", "correo", "informe", "semana", "lunes", "viernes", "cliente", "equipo",
+            "avance", "entrega", "fecha", "plan", "resumen", "documento", "presupuesto", "viaje", "libro",
+            "curso", "examen", "receta", "casa", "oficina"
+    };
+    // Las palabras raras son "tema" seguida de un número; cada una aparece en 1 de cada RARE_WORDS notas
+    private static final int RARE_WORDS = 5_000;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Obtiene la plantilla con la cantidad indicada de notas, generándola si todavía no existe.
+     *
+     * @param noteCount Cantidad de notas.
+     * @return Archivo de la plantilla.
+     */
+    static synchronized File template(int noteCount) throws IOException, SQLException {
+        File dir = new File(System.getProperty(DATA_DIR_PROPERTY, System.getProperty("java.io.tmpdir")));
+        File file = new File(dir, "notes-v" + NoteSchema.SCHEMA_VERSION + "-" + noteCount + ".db");
+        if (file.isFile()) {
+            return file;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("No se pudo crear " + dir);
+        }
+        // Se genera en un archivo temporal para que una ejecución interrumpida no deje una plantilla
+        // incompleta
+        File partial = new File(dir, file.getName() + ".tmp");
+        Files.deleteIfExists(partial.toPath());
+        try (Connection connection = open(partial)) {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : NoteSchema.CREATE_SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+            seed(connection, noteCount);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+                statement.execute("ANALYZE");
+            }
+        }
+        Files.move(partial.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    /**
+     * Copia la plantilla a un archivo temporal, para los benchmarks que modifican la base de datos.
+     *
+     * @param noteCount Cantidad de notas.
+     * @return Archivo de la copia; se borra al terminar la JVM.
+     */
+    static File copyOf(int noteCount) throws IOException, SQLException {
+        File copy = File.createTempFile("notes-" + noteCount + "-", ".db");
+        copy.deleteOnExit();
+        new File(copy.getPath() + "-wal").deleteOnExit();
+        new File(copy.getPath() + "-shm").deleteOnExit();
+        Files.copy(template(noteCount).toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    /**
+     * Abre una conexión con la configuración de la aplicación.
+     *
+     * @param file Archivo de la base de datos.
+     * @return Conexión en modo autocommit.
+     */
+    static Connection open(File file) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+        }
+        return connection;
+    }
+
+    /**
+     * Genera el título de la nota número index.
+     */
+    static String title(Random random, long index) {
+        return COMMON_WORDS[random.nextInt(COMMON_WORDS.length)] + " " + index;
+    }
+
+    /**
+     * Genera un contenido de entre 10 y 30 palabras. Nunca supera los 256 caracteres, por lo que
+     * ContentCodec lo guardaría en texto plano y lo indexarían los triggers.
+     */
+    static String content(Random random, long index) {
+        StringBuilder content = new StringBuilder();
+        int words = 10 + random.nextInt(21);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                content.append(' ');
+            }
+            content.append(COMMON_WORDS[random.nextInt(COMMON_WORDS.length)]);
+        }
+        content.append(" tema").append(index % RARE_WORDS);
+        return content.toString();
+    }
+
+    /**
+     * Calcula la huella igual que NoteDataSource.contentHash.
+     */
+    static String contentHash(String title, String content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        if (title != null) {
+            digest.update(title.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+        if (content != null) {
+            digest.update(content.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = Character.forDigit((hash[i] >> 4) & 0xF, 16);
+            hex[i * 2 + 1] = Character.forDigit(hash[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Fecha de modificación de la nota número index. Algunas notas comparten fecha, como las que se
+     * guardan en el mismo lote, para que el orden por fecha también dependa del ID.
+     */
+    static long updatedAt(long index) {
+        return BASE_TIME + (index / 4) * 7_000L;
+    }
+
+    private static void seed(Connection connection, int noteCount) throws SQLException {
+        Random random = new Random(42);
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(NoteSchema.INSERT)) {
+            for (int i = 0; i < noteCount; i++) {
+                String title = title(random, i);
+                String content = content(random, i);
+                long time = updatedAt(i);
+                insert.setString(1, title);
+                insert.setString(2, content);
+                insert.setInt(3, 0);
+                insert.setString(4, contentHash(title, content));
+                insert.setLong(5, time);
+                insert.setLong(6, time);
+                insert.executeUpdate();
+                if ((i + 1) % SEED_BATCH_SIZE == 0) {
+                    connection.commit();
+                }
+            }
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+}
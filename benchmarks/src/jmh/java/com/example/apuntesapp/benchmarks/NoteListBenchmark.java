@@ -0,0 +1,180 @@
+package com.example.apuntesapp.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de las lecturas de la lista de notas.
+ *
+ * Conceptos:
+ * - Carga completa contra paginación: loadAllNotes lee la tabla entera como getAllNotes, mientras
+ *   que los benchmarks de página leen PAGE_SIZE filas a partir de una posición aleatoria. Con
+ *   paginación por llave el tiempo de una página no debe crecer con la cantidad de notas.
+ *
+ * - Lectura completa de cada fila: Se leen todas las columnas proyectadas y se entregan al Blackhole,
+ *   igual que NoteDataSource crea un objeto por fila, para que la JVM no descarte el trabajo.
+ *
+ * - Solo lectura: Las consultas se ejecutan directamente sobre la plantilla, que no se modifica.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NoteListBenchmark {
+
+    // Igual a NoteDataSource.DEFAULT_PAGE_SIZE
+    private static final int PAGE_SIZE = 50;
+    // Cantidad de posiciones aleatorias que se recorren en los benchmarks de página
+    private static final int START_POSITIONS = 256;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int noteCount;
+
+    private Connection connection;
+    private long[] afterUpdatedAt;
+    private long[] afterIds;
+    private String[] afterTitles;
+    private int position;
+
+    @Setup
+    public void setUp() throws Exception {
+        connection = BenchmarkDatabase.open(BenchmarkDatabase.template(noteCount));
+
+        // La última fila de la página anterior se toma de notas elegidas al azar
+        Random random = new Random(7);
+        afterUpdatedAt = new long[START_POSITIONS];
+        afterIds = new long[START_POSITIONS];
+        afterTitles = new String[START_POSITIONS];
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT _id, title, updated_at FROM notes WHERE _id = ?")) {
+            for (int i = 0; i < START_POSITIONS; i++) {
+                select.setLong(1, 1 + random.nextInt(noteCount));
+                try (ResultSet rows = select.executeQuery()) {
+                    rows.next();
+                    afterIds[i] = rows.getLong(1);
+                    afterTitles[i] = rows.getString(2);
+                    afterUpdatedAt[i] = rows.getLong(3);
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * Lee todas las notas con su contenido, como NoteDataSource.getAllNotes.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int loadAllNotes(Blackhole blackhole) throws SQLException {
+        int rows = 0;
+        try (PreparedStatement select = connection.prepareStatement(NoteSchema.SELECT_ALL_NOTES);
+             ResultSet c = select.executeQuery()) {
+            while (c.next()) {
+                blackhole.consume(c.getLong("_id"));
+                blackhole.consume(c.getString("title"));
+                blackhole.consume(c.getInt("content_format"));
+                blackhole.consume(c.getString("content"));
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Lee una página de notas completas por ID, como NoteDataSource.getNotesPage.
+     */
+    @Benchmark
+    public int loadNotesPage(Blackhole blackhole) throws SQLException {
+        int i = nextPosition();
+        try (PreparedStatement select = connection.prepareStatement(NoteSchema.SELECT_NOTES_PAGE)) {
+            select.setLong(1, afterIds[i]);
+            select.setInt(2, PAGE_SIZE + 1);
+            return consumeNotes(select, blackhole);
+        }
+    }
+
+    /**
+     * Lee una página de resúmenes de la lista ordenada por fecha, con fragmento.
+     */
+    @Benchmark
+    public int loadSummariesPageByUpdated(Blackhole blackhole) throws SQLException {
+        int i = nextPosition();
+        try (PreparedStatement select = connection.prepareStatement(NoteSchema.SELECT_SUMMARIES_BY_UPDATED)) {
+            select.setLong(1, afterUpdatedAt[i]);
+            select.setLong(2, afterUpdatedAt[i]);
+            select.setLong(3, afterIds[i]);
+            select.setInt(4, PAGE_SIZE + 1);
+            int rows = 0;
+            try (ResultSet c = select.executeQuery()) {
+                while (c.next()) {
+                    blackhole.consume(c.getLong(1));
+                    blackhole.consume(c.getString(2));
+                    blackhole.consume(c.getLong(3));
+                    blackhole.consume(c.getString(4));
+                    rows++;
+                }
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Lee una página de resúmenes de la lista ordenada por título, sin fragmento.
+     */
+    @Benchmark
+    public int loadSummariesPageByTitle(Blackhole blackhole) throws SQLException {
+        int i = nextPosition();
+        try (PreparedStatement select = connection.prepareStatement(NoteSchema.SELECT_SUMMARIES_BY_TITLE)) {
+            select.setString(1, afterTitles[i]);
+            select.setString(2, afterTitles[i]);
+            select.setLong(3, afterIds[i]);
+            select.setInt(4, PAGE_SIZE + 1);
+            int rows = 0;
+            try (ResultSet c = select.executeQuery()) {
+                while (c.next()) {
+                    blackhole.consume(c.getLong(1));
+                    blackhole.consume(c.getString(2));
+                    rows++;
+                }
+            }
+            return rows;
+        }
+    }
+
+    private int nextPosition() {
+        position = (position + 1) % START_POSITIONS;
+        return position;
+    }
+
+    private static int consumeNotes(PreparedStatement select, Blackhole blackhole) throws SQLException {
+        int rows = 0;
+        try (ResultSet c = select.executeQuery()) {
+            while (c.next()) {
+                blackhole.consume(c.getLong("_id"));
+                blackhole.consume(c.getString("title"));
+                blackhole.consume(c.getInt("content_format"));
+                blackhole.consume(c.getString("content"));
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.apuntesapp.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de la búsqueda de texto completo.
+ *
+ * Conceptos:
+ * - Tipos de consulta: Una palabra que aparece en casi todas las notas, una que aparece en pocas y
+ *   dos prefijos a la vez. La primera mide el costo de ordenar muchos resultados por relevancia; la
+ *   segunda, el de recorrer el índice invertido.
+ *
+ * - Solo lectura: Las consultas se ejecutan directamente sobre la plantilla, que no se modifica.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NoteSearchBenchmark {
+
+    // Igual a NoteDataSource.DEFAULT_PAGE_SIZE
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int noteCount;
+
+    // Palabra común, palabra rara y dos prefijos, tal como los escribe el usuario
+    @Param({"nota", "tema42", "reun proy"})
+    public String query;
+
+    private Connection connection;
+    private String match;
+    private String titleMatch;
+
+    @Setup
+    public void setUp() throws Exception {
+        connection = BenchmarkDatabase.open(BenchmarkDatabase.template(noteCount));
+        match = NoteSchema.toMatchExpression(query, null);
+        titleMatch = NoteSchema.toMatchExpression(query, "title");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * Busca la primera página de resultados, como NoteDataSource.searchNotes.
+     */
+    @Benchmark
+    public int searchFirstPage(Blackhole blackhole) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(NoteSchema.SEARCH)) {
+            select.setString(1, titleMatch);
+            select.setString(2, match);
+            select.setString(3, titleMatch);
+            select.setString(4, match);
+            select.setInt(5, PAGE_SIZE + 1);
+            select.setInt(6, 0);
+            int rows = 0;
+            try (ResultSet c = select.executeQuery()) {
+                while (c.next()) {
+                    blackhole.consume(c.getLong(1));
+                    blackhole.consume(c.getString(2));
+                    blackhole.consume(c.getString(3));
+                    rows++;
+                }
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.apuntesapp.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de la inserción y la actualización de notas, una por transacción contra lotes.
+ *
+ * Conceptos:
+ * - Misma secuencia que la aplicación: Cada nota ejecuta las mismas instrucciones que
+ *   NoteDataSource.insertNotes y updateNotes para una nota en texto plano, incluyendo el cálculo de
+ *   la huella, la lectura previa del índice de búsqueda y el borrado de bloques y cambios pendientes.
+ *   Los triggers mantienen el índice FTS4 igual que en el dispositivo.
+ *
+ * - Una transacción por nota o por lote: Los benchmarks "Single" guardan BATCH_SIZE notas, cada una
+ *   en su propia transacción, como insertNote y updateNote; los "Batch" las guardan en una sola, como
+ *   los lotes del importador. El resultado se reporta por nota en ambos casos.
+ *
+ * - Tamaño constante: Cada ejecución trabaja sobre una copia de la plantilla, y las notas insertadas
+ *   se borran después de cada invocación para que la tabla no crezca durante la medición.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NoteWriteBenchmark {
+
+    // Notas guardadas en cada invocación
+    private static final int BATCH_SIZE = 100;
+    // Cantidad de textos distintos que se alternan al guardar
+    private static final int VARIANTS = 1024;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int noteCount;
+
+    private File file;
+    private Connection connection;
+    private String[] titles;
+    private String[] contents;
+    private long[] updateIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        file = BenchmarkDatabase.copyOf(noteCount);
+        connection = BenchmarkDatabase.open(file);
+        Random random = new Random(11);
+        titles = new String[VARIANTS];
+        contents = new String[VARIANTS];
+        updateIds = new long[VARIANTS];
+        for (int i = 0; i < VARIANTS; i++) {
+            long index = noteCount + i;
+            titles[i] = BenchmarkDatabase.title(random, index);
+            contents[i] = BenchmarkDatabase.content(random, index);
+            updateIds[i] = 1 + random.nextInt(noteCount);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteInsertedNotes() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM notes WHERE _id > " + noteCount);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        connection.close();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insertSingle() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insertNotes(1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insertBatch() throws SQLException {
+        insertNotes(BATCH_SIZE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void updateSingle() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            updateNotes(1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void updateBatch() throws SQLException {
+        updateNotes(BATCH_SIZE);
+    }
+
+    /**
+     * Inserta notas en una transacción con una instrucción compilada, como
+     * NoteDataSource.insertNotes.
+     */
+    private void insertNotes(int count) throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(NoteSchema.INSERT)) {
+            for (int i = 0; i < count; i++) {
+                int variant = nextVariant();
+                String hash = BenchmarkDatabase.contentHash(titles[variant], contents[variant]);
+                long now = System.currentTimeMillis();
+                insert.setString(1, titles[variant]);
+                insert.setString(2, contents[variant]);
+                insert.setInt(3, 0);
+                insert.setString(4, hash);
+                insert.setLong(5, now);
+                insert.setLong(6, now);
+                insert.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Actualiza notas en una transacción, como NoteDataSource.updateNotes.
+     */
+    private void updateNotes(int count) throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement stored = connection.prepareStatement(NoteSchema.SELECT_FORMAT);
+             PreparedStatement update = connection.prepareStatement(NoteSchema.UPDATE);
+             PreparedStatement deleteChunks = connection.prepareStatement(NoteSchema.DELETE_CHUNKS);
+             PreparedStatement deleteEdits = connection.prepareStatement(NoteSchema.DELETE_EDITS)) {
+            for (int i = 0; i < count; i++) {
+                int variant = nextVariant();
+                long id = updateIds[variant];
+                // CompressedSearchIndex.beforeUpdate lee el formato guardado
+                stored.setLong(1, id);
+                try (ResultSet c = stored.executeQuery()) {
+                    c.next();
+                }
+                update.setString(1, titles[variant]);
+                update.setString(2, contents[variant]);
+                update.setInt(3, 0);
+                update.setString(4, BenchmarkDatabase.contentHash(titles[variant], contents[variant]));
+                update.setLong(5, System.currentTimeMillis());
+                update.setLong(6, id);
+                if (update.executeUpdate() > 0) {
+                    // NoteChunkStore.write(id, null)
+                    deleteChunks.setLong(1, id);
+                    deleteChunks.executeUpdate();
+                    deleteEdits.setLong(1, id);
+                    deleteEdits.executeUpdate();
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private int nextVariant() {
+        next = (next + 1) % VARIANTS;
+        return next;
+    }
+}
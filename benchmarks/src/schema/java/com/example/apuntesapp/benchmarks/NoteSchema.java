@@ -0,0 +1,152 @@
+package com.example.apuntesapp.benchmarks;
+
+/**
+ * Esquema e instrucciones SQL de la capa de datos de la aplicación, copiados para ejecutarlos con un
+ * controlador JDBC.
+ *
+ * Conceptos:
+ * - Misma consulta, otro controlador: NoteDataSource y NoteDatabaseHelper usan las clases de
+ *   android.database, que fuera de un dispositivo solo existen como stubs. Los benchmarks ejecutan
+ *   exactamente el mismo SQL sobre SQLite con sqlite-jdbc, por lo que miden el plan de consulta, los
+ *   índices y los triggers de la aplicación, no el controlador.
+ *
+ * - Sincronización: Cada constante indica de dónde se copió. Al cambiar el esquema o una de esas
+ *   consultas en la aplicación se debe cambiar también aquí y aumentar SCHEMA_VERSION, para que se
+ *   vuelvan a generar las bases de datos de prueba. NoteSchemaTest, en las pruebas locales de :app,
+ *   falla si el esquema, la versión o las instrucciones copiadas de constantes dejan de coincidir.
+ *   Las consultas de listas que NoteDataSource arma con SQLiteDatabase#query no se comprueban.
+ */
+final class NoteSchema {
+
+    // Igual a NoteDatabaseHelper.DATABASE_VERSION
+    static final int SCHEMA_VERSION = 8;
+
+    // Igual a NoteDataSource.SNIPPET_LENGTH
+    static final int SNIPPET_LENGTH = 120;
+
+    // Esquema de NoteDatabaseHelper.onCreate, en el mismo orden
+    static final String[] CREATE_SCHEMA = {
+            "CREATE TABLE notes (" +
+                    "_id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "title TEXT," +
+                    "content TEXT," +
+                    "content_hash TEXT," +
+                    "created_at INTEGER NOT NULL DEFAULT 0," +
+                    "updated_at INTEGER NOT NULL DEFAULT 0," +
+                    "content_format INTEGER NOT NULL DEFAULT 0)",
+            "CREATE INDEX notes_content_hash ON notes (content_hash)",
+            "CREATE INDEX IF NOT EXISTS notes_updated_at ON notes (updated_at DESC, _id, title)",
+            "CREATE INDEX IF NOT EXISTS notes_title ON notes (title COLLATE NOCASE)",
+            "CREATE VIRTUAL TABLE notes_fts USING fts4(content=\"notes\", title, content, tokenize=unicode61)",
+            "CREATE TRIGGER notes_fts_bu BEFORE UPDATE OF title, content ON notes" +
+                    " WHEN old.content_format = 0 AND new.content_format = 0 BEGIN" +
+                    " DELETE FROM notes_fts WHERE docid = old._id; END",
+            "CREATE TRIGGER notes_fts_bd BEFORE DELETE ON notes" +
+                    " WHEN old.content_format = 0 BEGIN" +
+                    " DELETE FROM notes_fts WHERE docid = old._id; END",
+            "CREATE TRIGGER notes_fts_au AFTER UPDATE OF title, content ON notes" +
+                    " WHEN old.content_format = 0 AND new.content_format = 0 BEGIN" +
+                    " INSERT INTO notes_fts (docid, title, content) VALUES (new._id, new.title, new.content); END",
+            "CREATE TRIGGER notes_fts_ai AFTER INSERT ON notes" +
+                    " WHEN new.content_format = 0 BEGIN" +
+                    " INSERT INTO notes_fts (docid, title, content) VALUES (new._id, new.title, new.content); END",
+            "CREATE VIRTUAL TABLE notes_fts_stored USING fts4(title, content, tokenize=unicode61)",
+            "CREATE TABLE note_chunks (" +
+                    "_id INTEGER PRIMARY KEY," +
+                    "note_id INTEGER NOT NULL," +
+                    "seq INTEGER NOT NULL," +
+                    "content TEXT," +
+                    "content_format INTEGER NOT NULL DEFAULT 0)",
+            "CREATE UNIQUE INDEX note_chunks_note_id ON note_chunks (note_id, seq)",
+            "CREATE TABLE note_edits (" +
+                    "_id INTEGER PRIMARY KEY," +
+                    "note_id INTEGER NOT NULL," +
+                    "range_start INTEGER NOT NULL," +
+                    "range_end INTEGER NOT NULL," +
+                    "replacement TEXT," +
+                    "previous_title TEXT)",
+            "CREATE INDEX note_edits_note_id ON note_edits (note_id)"
+    };
+
+    // NoteDataSource.SQL_INSERT
+    static final String INSERT =
+            "INSERT INTO notes (title, content, content_format, content_hash, created_at, updated_at)" +
+                    " VALUES (?, ?, ?, ?, ?, ?)";
+
+    // NoteDataSource.SQL_UPDATE
+    static final String UPDATE =
+            "UPDATE notes SET title = ?, content = ?, content_format = ?, content_hash = ?, updated_at = ?" +
+                    " WHERE _id = ?";
+
+    // CompressedSearchIndex.SQL_SELECT_FORMAT, leída antes de cada actualización
+    static final String SELECT_FORMAT = "SELECT content_format FROM notes WHERE _id = ?";
+
+    // NoteChunkStore.SQL_DELETE_CHUNKS y SQL_DELETE_EDITS, ejecutadas al actualizar cualquier nota
+    static final String DELETE_CHUNKS = "DELETE FROM note_chunks WHERE note_id = ?";
+    static final String DELETE_EDITS = "DELETE FROM note_edits WHERE note_id = ?";
+
+    // NoteDataSource.getAllNotes
+    static final String SELECT_ALL_NOTES = "SELECT * FROM notes ORDER BY _id ASC";
+
+    // NoteDataSource.getNotesPage
+    static final String SELECT_NOTES_PAGE = "SELECT * FROM notes WHERE _id > ? ORDER BY _id ASC LIMIT ?";
+
+    // NoteDataSource.getNoteSummariesPage con NoteSortOrder.UPDATED y fragmento, después de una fila
+    static final String SELECT_SUMMARIES_BY_UPDATED =
+            "SELECT _id, title, updated_at," +
+                    " CASE WHEN content_format = 0 THEN substr(content, 1, " + SNIPPET_LENGTH + ") END AS snippet" +
+                    " FROM notes WHERE updated_at <= ? AND (updated_at < ? OR _id > ?)" +
+                    " ORDER BY updated_at DESC, _id ASC LIMIT ?";
+
+    // NoteDataSource.getNoteSummariesPage con NoteSortOrder.TITLE sin fragmento, después de una fila
+    static final String SELECT_SUMMARIES_BY_TITLE =
+            "SELECT _id, title FROM notes" +
+                    " WHERE title COLLATE NOCASE >= ? AND (title COLLATE NOCASE > ? OR _id > ?)" +
+                    " ORDER BY title COLLATE NOCASE ASC, _id ASC LIMIT ?";
+
+    // NoteDataSource.SQL_SEARCH
+    static final String SEARCH =
+            "SELECT _id, title, snippet FROM (" +
+                    "SELECT n._id, n.title, snippet(notes_fts, char(2), char(3), '…', 1, 12) AS snippet," +
+                    " notes_fts.docid IN (SELECT docid FROM notes_fts WHERE notes_fts MATCH ?) AS title_match" +
+                    " FROM notes_fts JOIN notes n ON n._id = notes_fts.docid" +
+                    " WHERE notes_fts MATCH ?" +
+                    " UNION ALL " +
+                    "SELECT n._id, n.title, NULL," +
+                    " notes_fts_stored.docid IN (SELECT docid FROM notes_fts_stored WHERE notes_fts_stored MATCH ?)" +
+                    " FROM notes_fts_stored JOIN notes n ON n._id = notes_fts_stored.docid" +
+                    " WHERE notes_fts_stored MATCH ?)" +
+                    " ORDER BY title_match DESC, _id DESC" +
+                    " LIMIT ? OFFSET ?";
+
+    private NoteSchema() {
+    }
+
+    /**
+     * Convierte un texto en una expresión MATCH igual que NoteDataSource.toMatchExpression.
+     *
+     * @param query  Texto de la búsqueda.
+     * @param column Columna a la que se limita la búsqueda, o null para buscar en todas.
+     * @return Expresión MATCH, o null si el texto no contiene palabras.
+     */
+    static String toMatchExpression(String query, String column) {
+        StringBuilder match = new StringBuilder();
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= query.length(); i++) {
+            char ch = i < query.length() ? query.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(ch)) {
+                term.append(Character.toLowerCase(ch));
+            } else if (term.length() > 0) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                if (column != null) {
+                    match.append(column).append(':');
+                }
+                match.append(term).append('*');
+                term.setLength(0);
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.apuntesapp.macrobenchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import kotlin.Unit;
+
+/**
+ * Genera el Baseline Profile de la aplicación recorriendo sus rutas más usadas.
+ *
+ * Conceptos:
+ * - Baseline Profile: Lista de clases y métodos que ART compila antes de la primera ejecución. El
+ *   recorrido cubre el arranque de MainActivity, la carga y el desplazamiento de la lista
+ *   (NoteListActivity, NoteAdapter, NoteDataSource) y la apertura de una nota (NoteDetailActivity).
+ *
+ * - Uso: Requiere un emulador con Android 13 o posterior, o uno con acceso root. El archivo generado
+ *   queda en build/outputs/connected_android_test_additional_output y su contenido reemplaza a
+ *   app/src/main/baseline-prof.txt.
+ */
+public class BaselineProfileGenerator {
+
+    private static final int NOTE_COUNT = 1_000;
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Rule
+    public BaselineProfileRule baselineProfileRule = new BaselineProfileRule();
+
+    @Test
+    public void generate() throws IOException {
+        NoteSeeder.seed(NOTE_COUNT);
+        baselineProfileRule.collect(NoteSeeder.PACKAGE_NAME, scope -> {
+            scope.pressHome();
+            scope.startActivityAndWait();
+            UiDevice device = scope.getDevice();
+
+            // Abre la lista desde la pantalla principal y la desliza para cargar más páginas
+            device.findObject(By.res(NoteSeeder.PACKAGE_NAME, "btnViewNotes")).click();
+            device.wait(Until.hasObject(By.res(NoteSeeder.PACKAGE_NAME, "textViewNoteTitle")), TIMEOUT_MS);
+            UiObject2 list = device.findObject(By.res(NoteSeeder.PACKAGE_NAME, "recyclerViewNotes"));
+            list.setGestureMargin(device.getDisplayWidth() / 5);
+            list.fling(Direction.DOWN);
+            list.fling(Direction.UP);
+            device.waitForIdle();
+
+            // Abre la primera nota y regresa a la lista
+            device.findObject(By.res(NoteSeeder.PACKAGE_NAME, "textViewNoteTitle")).click();
+            device.wait(Until.hasObject(By.res(NoteSeeder.PACKAGE_NAME, "customNoteTitle")), TIMEOUT_MS);
+            device.pressBack();
+            device.waitForIdle();
+            return Unit.INSTANCE;
+        });
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.apuntesapp.macrobenchmark;
+
+import android.content.ComponentName;
+import android.content.Intent;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Mide la apertura de NoteListActivity y el desplazamiento de la lista con distintas cantidades de
+ * notas.
+ *
+ * Conceptos:
+ * - Tiempo hasta la primera página: NoteListActivity llama a reportFullyDrawn cuando muestra la
+ *   primera página, por lo que StartupTimingMetric reporta, además del primer cuadro, el tiempo
+ *   hasta que la lista tiene filas (timeToFullDisplayMs).
+ *
+ * - Desplazamiento: FrameTimingMetric reporta la duración de cada cuadro mientras la lista se
+ *   desliza varias veces, lo que incluye la carga de las páginas siguientes y el enlace de las filas
+ *   de item_note.xml.
+ *
+ * - Datos: La base de datos se llena una vez por cantidad de notas, antes de la primera prueba.
+ */
+@RunWith(Parameterized.class)
+public class NoteListBenchmark {
+
+    private static final int ITERATIONS = 10;
+    private static final int FLINGS = 4;
+    private static final long TIMEOUT_MS = 10_000;
+
+    // Cantidad de notas con la que se llenó la base de datos por última vez
+    private static int seededCount = -1;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    private final int noteCount;
+
+    public NoteListBenchmark(int noteCount) {
+        this.noteCount = noteCount;
+    }
+
+    @Parameterized.Parameters(name = "notes={0}")
+    public static List<Object[]> parameters() {
+        return Arrays.asList(new Object[][]{{100}, {5_000}, {50_000}});
+    }
+
+    @Before
+    public void seedNotes() throws IOException {
+        if (seededCount != noteCount) {
+            NoteSeeder.seed(noteCount);
+            seededCount = noteCount;
+        }
+    }
+
+    @Test
+    public void openList() {
+        benchmarkRule.measureRepeated(
+                NoteSeeder.PACKAGE_NAME,
+                Collections.singletonList(new StartupTimingMetric()),
+                new CompilationMode.Partial(),
+                StartupMode.COLD,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    startListAndWait(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    @Test
+    public void scrollList() {
+        benchmarkRule.measureRepeated(
+                NoteSeeder.PACKAGE_NAME,
+                Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(),
+                StartupMode.WARM,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    startListAndWait(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    UiDevice device = scope.getDevice();
+                    UiObject2 list = device.findObject(By.res(NoteSeeder.PACKAGE_NAME, "recyclerViewNotes"));
+                    // Evita que el gesto empiece sobre la barra de navegación
+                    list.setGestureMargin(device.getDisplayWidth() / 5);
+                    for (int i = 0; i < FLINGS; i++) {
+                        list.fling(Direction.DOWN);
+                    }
+                    device.waitForIdle();
+                    return Unit.INSTANCE;
+                });
+    }
+
+    /**
+     * Abre la lista directamente y espera a que muestre la primera fila.
+     */
+    static void startListAndWait(MacrobenchmarkScope scope) {
+        Intent intent = new Intent();
+        intent.setComponent(new ComponentName(NoteSeeder.PACKAGE_NAME,
+                NoteSeeder.PACKAGE_NAME + ".ui.notelist.NoteListActivity"));
+        scope.startActivityAndWait(intent);
+        scope.getDevice().wait(Until.hasObject(By.res(NoteSeeder.PACKAGE_NAME, "textViewNoteTitle")), TIMEOUT_MS);
+    }
+}
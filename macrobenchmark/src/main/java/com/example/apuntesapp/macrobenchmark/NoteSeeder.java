@@ -0,0 +1,42 @@
+package com.example.apuntesapp.macrobenchmark;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.UiDevice;
+
+import java.io.IOException;
+
+/**
+ * Clase que prepara los datos de la aplicación medida.
+ *
+ * Conceptos:
+ * - Base de datos sembrada: Se borran los datos de la aplicación y se insertan notas generadas con
+ *   SeedNotesReceiver, que solo existe en la compilación benchmark. El comando del shell espera a
+ *   que termine la inserción, por lo que la medición empieza con todas las notas guardadas.
+ */
+final class NoteSeeder {
+
+    static final String PACKAGE_NAME = "com.example.apuntesapp";
+
+    private NoteSeeder() {
+    }
+
+    /**
+     * Deja la aplicación con exactamente count notas.
+     *
+     * @param count Cantidad de notas.
+     * @throws IOException Si falla un comando del shell.
+     */
+    static void seed(int count) throws IOException {
+        UiDevice device = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+        device.executeShellCommand("pm clear " + PACKAGE_NAME);
+        if (count == 0) {
+            return;
+        }
+        // El receptor devuelve como resultado la cantidad de notas que insertó
+        String output = device.executeShellCommand("am broadcast -n " + PACKAGE_NAME
+                + "/.benchmark.SeedNotesReceiver --ei count " + count);
+        if (!output.contains("result=" + count)) {
+            throw new IllegalStateException("No se pudieron generar " + count + " notas: " + output);
+        }
+    }
+}
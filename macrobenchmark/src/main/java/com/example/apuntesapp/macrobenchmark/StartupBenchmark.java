@@ -0,0 +1,81 @@
+package com.example.apuntesapp.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Mide el arranque de MainActivity en frío y en caliente.
+ *
+ * Conceptos:
+ * - Compilación: Cada modo se mide sin compilar (solo el intérprete y el JIT) y con el Baseline
+ *   Profile instalado, para ver cuánto ahorra el perfil en el arranque.
+ *
+ * - Arranque en frío y en caliente: En frío el proceso se termina antes de cada iteración; en
+ *   caliente el proceso sigue vivo y solo se vuelve a crear la actividad.
+ */
+@RunWith(Parameterized.class)
+public class StartupBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    private final StartupMode startupMode;
+    private final CompilationMode compilationMode;
+
+    // compilationName solo da nombre a cada combinación en los resultados
+    public StartupBenchmark(StartupMode startupMode, String compilationName, CompilationMode compilationMode) {
+        this.startupMode = startupMode;
+        this.compilationMode = compilationMode;
+    }
+
+    @Parameterized.Parameters(name = "{0},{1}")
+    public static List<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (StartupMode mode : new StartupMode[]{StartupMode.COLD, StartupMode.WARM}) {
+            parameters.add(new Object[]{mode, "none", new CompilationMode.None()});
+            parameters.add(new Object[]{mode, "baselineProfile", new CompilationMode.Partial()});
+        }
+        return parameters;
+    }
+
+    // MainActivity no lee notas al arrancar; solo se parte siempre de una instalación sin datos
+    @BeforeClass
+    public static void clearData() throws IOException {
+        NoteSeeder.seed(0);
+    }
+
+    @Test
+    public void startup() {
+        benchmarkRule.measureRepeated(
+                NoteSeeder.PACKAGE_NAME,
+                Collections.singletonList(new StartupTimingMetric()),
+                compilationMode,
+                startupMode,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+}